@@ -0,0 +1,9 @@
+package com.pharmacyInventory.inventory.Enum;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
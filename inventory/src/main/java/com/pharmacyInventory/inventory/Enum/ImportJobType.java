@@ -0,0 +1,6 @@
+package com.pharmacyInventory.inventory.Enum;
+
+public enum ImportJobType {
+    INVENTORY,
+    EQUIVALENTS
+}
@@ -0,0 +1,10 @@
+package com.pharmacyInventory.inventory.Enum;
+
+public enum StockMovementType {
+    RECEIPT,
+    SALE,
+    ADJUSTMENT,
+    TRANSFER_IN,
+    TRANSFER_OUT,
+    EXPIRY_WRITE_OFF
+}
@@ -0,0 +1,80 @@
+package com.pharmacyInventory.inventory.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+@Configuration
+public class AsyncConfig {
+
+    @Bean(name = "dashboardExecutor")
+    public Executor dashboardExecutor(
+            @Value("${dashboard.executor.core-pool-size:8}") int corePoolSize,
+            @Value("${dashboard.executor.max-pool-size:16}") int maxPoolSize,
+            @Value("${dashboard.executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        // When saturated, run the section on the caller instead of failing it
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(requestContextDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    // Background import jobs. Deliberately small: each job already batches its writes, and
+    // a full queue rejects new uploads instead of piling them up
+    @Bean(name = "importExecutor")
+    public Executor importExecutor(
+            @Value("${import.executor.pool-size:2}") int poolSize,
+            @Value("${import.executor.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Flushes of the stock write-behind buffer. One thread and one queued task: a flush
+    // that is already waiting picks up everything buffered before it runs
+    @Bean(name = "stockFlushExecutor")
+    public Executor stockFlushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("stock-flush-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Feign's RequestInterceptor reads the Authorization header from the current request,
+    // so the request attributes have to follow the task onto the worker thread
+    private TaskDecorator requestContextDecorator() {
+        return runnable -> {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            return () -> {
+                RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+                try {
+                    RequestContextHolder.setRequestAttributes(attributes);
+                    runnable.run();
+                } finally {
+                    RequestContextHolder.setRequestAttributes(previous);
+                }
+            };
+        };
+    }
+}
@@ -31,16 +31,21 @@ public class FeignConfig {
     }
 
     @Bean
-    public RequestInterceptor requestInterceptor() {
+    public RequestInterceptor requestInterceptor(ServiceCredentials serviceCredentials) {
         return requestTemplate -> {
             // Forward authorization header if present
+            String authHeader = null;
             ServletRequestAttributes attributes = (ServletRequestAttributes) 
                 RequestContextHolder.getRequestAttributes();
             if (attributes != null) {
-                String authHeader = attributes.getRequest().getHeader("Authorization");
-                if (authHeader != null) {
-                    requestTemplate.header("Authorization", authHeader);
-                }
+                authHeader = attributes.getRequest().getHeader("Authorization");
+            }
+            // Calls made outside a request (scheduled jobs) authenticate as this service
+            if (authHeader == null) {
+                authHeader = serviceCredentials.authorization().orElse(null);
+            }
+            if (authHeader != null) {
+                requestTemplate.header("Authorization", authHeader);
             }
         };
     }
@@ -0,0 +1,25 @@
+package com.pharmacyInventory.inventory.config;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+// Authorization header value this service sends on Feign calls made outside a request,
+// where there is no caller's header to forward (e.g. the dashboard's background refresh).
+// Unset, such calls go out unauthenticated, so jobs that need them should not run.
+@Component
+public class ServiceCredentials {
+
+    @Value("${inventory.feign.service-authorization:}")
+    private String authorization;
+
+    public Optional<String> authorization() {
+        return isConfigured() ? Optional.of(authorization) : Optional.empty();
+    }
+
+    public boolean isConfigured() {
+        return StringUtils.hasText(authorization);
+    }
+}
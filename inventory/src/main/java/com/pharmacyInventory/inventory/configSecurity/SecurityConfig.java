@@ -83,6 +83,7 @@ public class SecurityConfig {
                         "/api/taxes/**",
                         "/api/settings/**",
                         "/api/bulk/**",
+                        "/api/import-jobs/**",
                         "/api/equivalents/**",
                         "/api/brands/**",
                         "/api/dashboard/**",
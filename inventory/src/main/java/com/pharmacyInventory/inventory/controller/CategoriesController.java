@@ -2,6 +2,7 @@ package com.pharmacyInventory.inventory.controller;
 
 import com.pharmacyInventory.inventory.Enum.CategoryType;
 import com.pharmacyInventory.inventory.dtos.categories.CategoriesDTO;
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
 import com.pharmacyInventory.inventory.services.CategoriesService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,14 @@ public class CategoriesController {
         return ResponseEntity.ok(categories);
     }
 
+    @GetMapping(value = "/listCategories/{branchId}")
+    public ResponseEntity<CursorPageDTO<CategoriesDTO>> listCategories(@PathVariable String branchId,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false) String sort,
+                                                                       @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(categoriesService.listCategories(branchId, cursor, sort, size));
+    }
+
     @GetMapping(value = "/getAllForms/{branchId}")
     public ResponseEntity<List<CategoriesDTO>> getAllForms(@PathVariable String branchId) {
         log.info("Fetching all forms");
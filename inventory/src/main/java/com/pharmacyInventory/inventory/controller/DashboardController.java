@@ -17,11 +17,11 @@ public class DashboardController {
 
     private final DashboardService dashboardService;
 
-    @GetMapping(value = "/stats")
-    public ResponseEntity<?> getDashboardStats() {
-        log.info("Fetching dashboard statistics");
+    @GetMapping(value = {"/stats", "/stats/{branchId}"})
+    public ResponseEntity<?> getDashboardStats(@PathVariable(required = false) String branchId) {
+        log.info("Fetching dashboard statistics for branch: {}", branchId);
         try {
-            Map<String, Object> stats = dashboardService.getDashboardStats();
+            Map<String, Object> stats = dashboardService.getDashboardStats(branchId);
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             log.error("Error fetching dashboard statistics", e);
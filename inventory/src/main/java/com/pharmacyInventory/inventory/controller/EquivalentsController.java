@@ -1,5 +1,7 @@
 package com.pharmacyInventory.inventory.controller;
 
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
+import com.pharmacyInventory.inventory.dtos.common.ImportSummaryDTO;
 import com.pharmacyInventory.inventory.dtos.equivalents.EquivalentsDTO;
 import com.pharmacyInventory.inventory.services.EquivalentsService;
 import jakarta.validation.Valid;
@@ -12,8 +14,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +35,14 @@ public class EquivalentsController {
         return ResponseEntity.ok(equivalents);
     }
 
+    @GetMapping(value = "/list/byBranch/{branchId}")
+    public ResponseEntity<CursorPageDTO<EquivalentsDTO>> listEquivalents(@PathVariable String branchId,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) String sort,
+                                                                         @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(equivalentsService.listEquivalents(branchId, cursor, sort, size));
+    }
+
     @GetMapping(value = "/medication/{medicationId}")
     public ResponseEntity<List<EquivalentsDTO>> getEquivalentsByMedicationId(@PathVariable Long medicationId) {
         log.info("Fetching equivalents for medication with id: {}", medicationId);
@@ -108,35 +118,33 @@ public class EquivalentsController {
     }
 
     @PostMapping("/import/byBranch/{branchId}")
-    public ResponseEntity<List<EquivalentsDTO>> importEquivalents(@RequestParam("file") MultipartFile file, @PathVariable String branchId) {
+    public ResponseEntity<ImportSummaryDTO> importEquivalents(@RequestParam("file") MultipartFile file, @PathVariable String branchId) {
         try {
-            List<EquivalentsDTO> imported = equivalentsService.importEquivalentsFromFile(file, branchId);
-            return ResponseEntity.ok(imported);
+            ImportSummaryDTO summary = equivalentsService.importEquivalentsFromFile(file, branchId);
+            return ResponseEntity.ok(summary);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
     }
 
     @GetMapping("/export/excel/byBranch/{branchId}")
-    public ResponseEntity<byte[]> exportToExcel(@PathVariable String branchId) throws IOException {
-        byte[] data = equivalentsService.exportEquivalentsToFile("excel", branchId);
+    public ResponseEntity<StreamingResponseBody> exportToExcel(@PathVariable String branchId) {
+        StreamingResponseBody body = outputStream -> equivalentsService.exportEquivalentsToFile("excel", branchId, outputStream);
         
         return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=equivalents_export_" + branchId + ".xlsx")
             .contentType(MediaType.APPLICATION_OCTET_STREAM)
-            .contentLength(data.length)
-            .body(data);
+            .body(body);
     }
 
     @GetMapping("/export/csv/byBranch/{branchId}")
-    public ResponseEntity<byte[]> exportToCsv(@PathVariable String branchId) throws IOException {
-        byte[] data = equivalentsService.exportEquivalentsToFile("csv", branchId);
+    public ResponseEntity<StreamingResponseBody> exportToCsv(@PathVariable String branchId) {
+        StreamingResponseBody body = outputStream -> equivalentsService.exportEquivalentsToFile("csv", branchId, outputStream);
         
         return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=equivalents_export_" + branchId + ".csv")
             .contentType(MediaType.parseMediaType("text/csv"))
-            .contentLength(data.length)
-            .body(data);
+            .body(body);
     }
 
     @GetMapping("/stats/branch/{branchId}")
@@ -0,0 +1,66 @@
+package com.pharmacyInventory.inventory.controller;
+
+import com.pharmacyInventory.inventory.Enum.ImportJobType;
+import com.pharmacyInventory.inventory.dtos.importjobs.ImportJobDTO;
+import com.pharmacyInventory.inventory.services.ImportJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/import-jobs")
+@CrossOrigin(origins = "*")
+public class ImportJobsController {
+
+    private final ImportJobService importJobService;
+
+    @PostMapping(value = "/inventory/{branchId}")
+    public ResponseEntity<?> submitInventoryImport(@RequestParam("file") MultipartFile file, @PathVariable String branchId) {
+        return submit(ImportJobType.INVENTORY, file, branchId);
+    }
+
+    @PostMapping(value = "/equivalents/{branchId}")
+    public ResponseEntity<?> submitEquivalentsImport(@RequestParam("file") MultipartFile file, @PathVariable String branchId) {
+        return submit(ImportJobType.EQUIVALENTS, file, branchId);
+    }
+
+    @GetMapping(value = "/{id}")
+    public ResponseEntity<ImportJobDTO> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(importJobService.getJob(id));
+    }
+
+    @GetMapping(value = "/byBranch/{branchId}")
+    public ResponseEntity<List<ImportJobDTO>> getJobsByBranch(@PathVariable String branchId) {
+        return ResponseEntity.ok(importJobService.getJobsByBranch(branchId));
+    }
+
+    @PostMapping(value = "/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(importJobService.cancel(id));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> submit(ImportJobType type, MultipartFile file, String branchId) {
+        try {
+            ImportJobDTO job = importJobService.submit(type, file, branchId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("Import queue is full, rejecting {} import for branch {}", type, branchId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many imports in progress, please try again later");
+        } catch (Exception e) {
+            log.error("Error submitting {} import", type, e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.pharmacyInventory.inventory.controller;
 
 import com.pharmacyInventory.inventory.Enum.StockStatus;
+import com.pharmacyInventory.inventory.dtos.autocomplete.AutocompleteSuggestionDTO;
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
+import com.pharmacyInventory.inventory.dtos.common.ImportSummaryDTO;
 import com.pharmacyInventory.inventory.dtos.medications.MedicationsDTO;
+import com.pharmacyInventory.inventory.dtos.stock.StockMovementDTO;
+import com.pharmacyInventory.inventory.services.MedicationsExportService;
 import com.pharmacyInventory.inventory.services.MedicationsService;
+import com.pharmacyInventory.inventory.services.StockLedgerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -19,6 +30,8 @@ import java.util.List;
 public class MedicationsController {
 
     private final MedicationsService medicationsService;
+    private final MedicationsExportService medicationsExportService;
+    private final StockLedgerService stockLedgerService;
 
     @GetMapping(value = "/getAllMedications/{branchId}")
     public ResponseEntity<List<MedicationsDTO>> getAllMedications(@PathVariable String branchId) {
@@ -27,6 +40,14 @@ public class MedicationsController {
         return ResponseEntity.ok(medications);
     }
 
+    @GetMapping(value = "/listMedications/{branchId}")
+    public ResponseEntity<CursorPageDTO<MedicationsDTO>> listMedications(@PathVariable String branchId,
+                                                                         @RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) String sort,
+                                                                         @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(medicationsService.listMedications(branchId, cursor, sort, size));
+    }
+
     @GetMapping(value = "/getMedicationById/{id}/{branchId}")
     public ResponseEntity<MedicationsDTO> getMedicationById(@PathVariable Long id, @PathVariable String branchId) {
         log.info("Fetching medication with id: {}", id);
@@ -82,6 +103,23 @@ public class MedicationsController {
         }
     }
 
+    @PostMapping(value = "/{id}/movements/{branchId}")
+    public ResponseEntity<?> recordStockMovement(@PathVariable Long id, @RequestBody StockMovementDTO movement, @PathVariable String branchId) {
+        try {
+            int onHand = stockLedgerService.record(id, branchId, movement.getMovementType(), movement.getQuantity(),
+                    movement.getReason(), movement.getReference());
+            return ResponseEntity.ok(Map.of("medicationId", id, "stockQuantity", onHand));
+        } catch (Exception e) {
+            log.error("Error recording stock movement for medication with id: {}", id, e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/{id}/movements/{branchId}")
+    public ResponseEntity<Page<StockMovementDTO>> getStockMovements(@PathVariable Long id, @PathVariable String branchId, Pageable pageable) {
+        return ResponseEntity.ok(stockLedgerService.getMovements(id, branchId, pageable));
+    }
+
     @GetMapping(value = "/searchMedications/{branchId}")
     public ResponseEntity<List<MedicationsDTO>> searchMedications(@RequestParam String query, @PathVariable String branchId) {
         log.info("Searching medications with query: {}", query);
@@ -89,6 +127,21 @@ public class MedicationsController {
         return ResponseEntity.ok(medications);
     }
 
+    // Ranked and typo tolerant, one page at a time (at most 100 per page); /searchMedications
+    // above stays an unranked substring match on the name returning every hit
+    @GetMapping(value = "/search/{branchId}")
+    public ResponseEntity<Page<MedicationsDTO>> search(@RequestParam String query, @PathVariable String branchId, Pageable pageable) {
+        log.info("Searching medications with query: {}", query);
+        Page<MedicationsDTO> medications = medicationsService.searchMedications(query, branchId, pageable);
+        return ResponseEntity.ok(medications);
+    }
+
+    @GetMapping(value = "/autocomplete/{branchId}")
+    public ResponseEntity<List<AutocompleteSuggestionDTO>> autocomplete(@RequestParam String prefix, @PathVariable String branchId,
+                                                                        @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(medicationsService.autocomplete(prefix, branchId, limit));
+    }
+
     @GetMapping(value = "/filterMedicationsByCategory/{categoryId}/{branchId}")
     public ResponseEntity<List<MedicationsDTO>> filterMedicationsByCategory(@PathVariable Long categoryId, @PathVariable String branchId) {
         log.info("Filtering medications by category id: {}", categoryId);
@@ -139,6 +192,17 @@ public class MedicationsController {
         }
     }
 
+    @PostMapping(value = "/importInventory/{branchId}")
+    public ResponseEntity<?> importInventory(@RequestParam("file") org.springframework.web.multipart.MultipartFile file, @PathVariable String branchId) {
+        try {
+            ImportSummaryDTO summary = medicationsService.importInventory(file, branchId);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            log.error("Error importing inventory file", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping(value = "/downloadTemplate")
     public ResponseEntity<?> downloadTemplate() {
         try {
@@ -154,16 +218,37 @@ public class MedicationsController {
     }
 
     @GetMapping(value = "/exportInventory/{branchId}")
-    public ResponseEntity<?> exportInventory(@PathVariable String branchId) {
+    public ResponseEntity<StreamingResponseBody> exportInventory(@PathVariable String branchId) {
+        log.info("Exporting inventory for branch: {}", branchId);
+        StreamingResponseBody body = outputStream -> medicationsService.exportToExcel(branchId, outputStream);
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=inventory.xlsx")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
+    }
+
+    // Raw dump for reporting jobs: ?format=csv|ndjson, gzip-compressed unless gzip=false
+    @GetMapping(value = "/export/{branchId}")
+    public ResponseEntity<?> exportMedications(
+            @PathVariable String branchId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+        MedicationsExportService.Format exportFormat;
         try {
-            byte[] template = medicationsService.exportToExcel(branchId);
-            log.info("Downloaded inventory template");
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=inventory.xlsx")
-                    .body(template);
-        } catch (Exception e) {
-            log.error("Error downloading template", e);
-            return ResponseEntity.badRequest().body(e.getMessage());
+            exportFormat = MedicationsExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unsupported export format: " + format);
         }
+        String fileName = "medications_" + branchId + (exportFormat == MedicationsExportService.Format.CSV ? ".csv" : ".ndjson")
+                + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == MedicationsExportService.Format.CSV ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody body = outputStream -> medicationsExportService.export(branchId, exportFormat, gzip, outputStream);
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=" + fileName)
+                .contentType(contentType)
+                .body(body);
     }
 }
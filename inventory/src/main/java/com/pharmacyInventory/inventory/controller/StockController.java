@@ -0,0 +1,57 @@
+package com.pharmacyInventory.inventory.controller;
+
+import com.pharmacyInventory.inventory.dtos.stock.StockAllocationDTO;
+import com.pharmacyInventory.inventory.dtos.stock.StockDTO;
+import com.pharmacyInventory.inventory.services.StockService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/stock")
+@CrossOrigin(origins = "*")
+public class StockController {
+
+    private final StockService stockService;
+
+    @GetMapping(value = "/getAllStocks/{branchId}")
+    public ResponseEntity<List<StockDTO>> getAllStocks(@PathVariable String branchId) {
+        log.info("Fetching all stocks for branch: {}", branchId);
+        return ResponseEntity.ok(stockService.getAllStocks(branchId));
+    }
+
+    @GetMapping(value = "/lots/{medicationId}/{branchId}")
+    public ResponseEntity<List<StockDTO>> getLots(@PathVariable Long medicationId, @PathVariable String branchId) {
+        return ResponseEntity.ok(stockService.getLots(medicationId, branchId));
+    }
+
+    @PostMapping(value = "/receiveLot/{branchId}")
+    public ResponseEntity<?> receiveLot(@RequestBody StockDTO stockDTO, @PathVariable String branchId) {
+        try {
+            StockDTO lot = stockService.receiveLot(stockDTO, branchId);
+            log.info("Received lot with id: {}", lot.getId());
+            return ResponseEntity.ok(lot);
+        } catch (Exception e) {
+            log.error("Error receiving lot for medication with id: {}", stockDTO.getMedicationId(), e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // commit=false previews the allocation without taking any stock
+    @PostMapping(value = "/allocate/{medicationId}/{branchId}")
+    public ResponseEntity<?> allocate(@PathVariable Long medicationId, @PathVariable String branchId,
+                                      @RequestParam Integer quantity, @RequestParam(defaultValue = "false") boolean commit) {
+        try {
+            List<StockAllocationDTO> allocation = stockService.allocate(medicationId, branchId, quantity, commit);
+            return ResponseEntity.ok(allocation);
+        } catch (Exception e) {
+            log.error("Error allocating {} units of medication with id: {}", quantity, medicationId, e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.pharmacyInventory.inventory.controller;
 
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
 import com.pharmacyInventory.inventory.dtos.suppliers.SuppliersDTO;
 import com.pharmacyInventory.inventory.services.SuppliersService;
 
@@ -29,6 +30,14 @@ public class SuppliersController {
         return ResponseEntity.ok(suppliers);
     }
 
+    @GetMapping("/list/branch/{branchId}")
+    public ResponseEntity<CursorPageDTO<SuppliersDTO>> listSuppliers(@PathVariable String branchId,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) String sort,
+                                                                     @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(suppliersService.listSuppliers(branchId, cursor, sort, size));
+    }
+
     @GetMapping("/{id}/branch/{branchId}")
     public ResponseEntity<SuppliersDTO> getSupplierById(
             @PathVariable Long id,
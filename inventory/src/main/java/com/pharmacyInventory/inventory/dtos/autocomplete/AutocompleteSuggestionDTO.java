@@ -0,0 +1,17 @@
+package com.pharmacyInventory.inventory.dtos.autocomplete;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AutocompleteSuggestionDTO {
+    // MEDICATION or EQUIVALENT
+    private String type;
+    private Long id;
+    private String label;
+}
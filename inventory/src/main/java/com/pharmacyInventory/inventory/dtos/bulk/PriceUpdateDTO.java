@@ -0,0 +1,15 @@
+package com.pharmacyInventory.inventory.dtos.bulk;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceUpdateDTO {
+    private Long medicationId;
+    private Double newPrice;
+}
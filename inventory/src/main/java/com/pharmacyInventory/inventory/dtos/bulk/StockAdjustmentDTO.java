@@ -0,0 +1,16 @@
+package com.pharmacyInventory.inventory.dtos.bulk;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAdjustmentDTO {
+    private Long medicationId;
+    private Integer quantityAdjustment;
+    private String reason;
+}
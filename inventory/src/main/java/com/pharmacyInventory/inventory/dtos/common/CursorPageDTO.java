@@ -0,0 +1,21 @@
+package com.pharmacyInventory.inventory.dtos.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of a keyset-paginated listing. Pass nextCursor back as ?cursor= to get the
+// following page; it is null on the last page.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageDTO<T> {
+    private List<T> items;
+    private String nextCursor;
+    private int size;
+    private String sort;
+}
@@ -0,0 +1,32 @@
+package com.pharmacyInventory.inventory.dtos.common;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportSummaryDTO {
+
+    // Only the first errors are kept so a badly broken file cannot grow the response without bound
+    public static final int MAX_ERRORS = 500;
+
+    private int totalRows;
+    private int imported;
+    private int failed;
+    @Builder.Default
+    private List<String> errors = new ArrayList<>();
+
+    public void recordFailure(int rowNumber, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Row " + rowNumber + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pharmacyInventory.inventory.dtos.dashboard;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PeriodTotalDTO {
+    private String period;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Double total;
+}
@@ -0,0 +1,35 @@
+package com.pharmacyInventory.inventory.dtos.importjobs;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.pharmacyInventory.inventory.Enum.ImportJobStatus;
+import com.pharmacyInventory.inventory.Enum.ImportJobType;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportJobDTO {
+    private Long id;
+    private String branchId;
+    private ImportJobType type;
+    private ImportJobStatus status;
+    private String fileName;
+    private Integer totalRows;
+    private Integer rowsProcessed;
+    private Integer rowsImported;
+    private Integer rowsFailed;
+    private Double rowsPerSecond;
+    private Long etaSeconds;
+    private Boolean cancelRequested;
+    private List<String> errors;
+    private String failureReason;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
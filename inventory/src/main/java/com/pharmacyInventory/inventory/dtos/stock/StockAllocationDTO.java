@@ -0,0 +1,20 @@
+package com.pharmacyInventory.inventory.dtos.stock;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDate;
+
+// Units taken from one lot by a first-expiry-first-out allocation
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAllocationDTO {
+    private Long stockId;
+    private String batchNumber;
+    private LocalDate expiryDate;
+    private Integer quantity;
+}
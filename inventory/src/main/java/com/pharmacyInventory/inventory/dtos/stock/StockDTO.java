@@ -5,6 +5,8 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import java.time.LocalDate;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,7 +16,7 @@ public class StockDTO {
     private String branchId;
     private Integer quantity;
     private String batchNumber;
-    private String expiryDate;
+    private LocalDate expiryDate;
     private Long medicationId;
     private String medicationName;
 }
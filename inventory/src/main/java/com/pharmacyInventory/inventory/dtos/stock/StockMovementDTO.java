@@ -0,0 +1,26 @@
+package com.pharmacyInventory.inventory.dtos.stock;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovementDTO {
+    private Long id;
+    private Long medicationId;
+    private String branchId;
+    private StockMovementType movementType;
+    // Units moved. Positive for every type except ADJUSTMENT, where the sign is the direction;
+    // in responses it is the signed change
+    private Integer quantity;
+    private String reason;
+    private String reference;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,12 @@
+package com.pharmacyInventory.inventory.events;
+
+import java.util.List;
+
+// Published after equivalents are created, updated, deleted or imported.
+// An empty id list means "anything in the branch may have changed" (imports).
+public record EquivalentsChangedEvent(String branchId, List<Long> equivalentIds) {
+
+    public static EquivalentsChangedEvent of(String branchId, Long equivalentId) {
+        return new EquivalentsChangedEvent(branchId, List.of(equivalentId));
+    }
+}
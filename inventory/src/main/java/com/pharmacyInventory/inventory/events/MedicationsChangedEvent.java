@@ -0,0 +1,12 @@
+package com.pharmacyInventory.inventory.events;
+
+import java.util.List;
+
+// Published after medications are created, updated, deleted or restocked.
+// branchId is null when the writer only knows medication ids (bulk operations).
+public record MedicationsChangedEvent(String branchId, List<Long> medicationIds) {
+
+    public static MedicationsChangedEvent of(String branchId, Long medicationId) {
+        return new MedicationsChangedEvent(branchId, List.of(medicationId));
+    }
+}
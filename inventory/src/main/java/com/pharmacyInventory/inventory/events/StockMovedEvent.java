@@ -0,0 +1,12 @@
+package com.pharmacyInventory.inventory.events;
+
+import java.util.List;
+
+// Published after stock movements are recorded and after they are folded into the
+// medication snapshots. branchId is null when the writer only knows medication ids.
+public record StockMovedEvent(String branchId, List<Long> medicationIds) {
+
+    public static StockMovedEvent of(String branchId, Long medicationId) {
+        return new StockMovedEvent(branchId, List.of(medicationId));
+    }
+}
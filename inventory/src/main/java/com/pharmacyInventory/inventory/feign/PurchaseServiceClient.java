@@ -1,12 +1,16 @@
 package com.pharmacyInventory.inventory.feign;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import com.pharmacyInventory.inventory.config.FeignConfig;
+import com.pharmacyInventory.inventory.dtos.dashboard.PeriodTotalDTO;
 
 @FeignClient(name = "sales-service", configuration = FeignConfig.class)
 public interface PurchaseServiceClient {
@@ -19,5 +23,9 @@ public interface PurchaseServiceClient {
         @RequestParam("startDate") LocalDateTime startDate,
         @RequestParam("endDate") LocalDateTime endDate
     );
+
+    // Totals for several date ranges in one round trip; the response echoes each period with its total
+    @PostMapping("/api/purchases/total-amount-by-date/batch")
+    List<PeriodTotalDTO> getTotalPurchasesByDateRanges(@RequestBody List<PeriodTotalDTO> periods);
     
 }
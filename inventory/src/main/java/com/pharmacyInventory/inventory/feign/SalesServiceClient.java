@@ -6,9 +6,12 @@ import java.util.Map;
 
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import com.pharmacyInventory.inventory.config.FeignConfig;
+import com.pharmacyInventory.inventory.dtos.dashboard.PeriodTotalDTO;
 
 @FeignClient(name = "sales-service", configuration = FeignConfig.class)
 public interface SalesServiceClient {
@@ -21,6 +24,10 @@ public interface SalesServiceClient {
         @RequestParam("startDate") LocalDateTime startDate,
         @RequestParam("endDate") LocalDateTime endDate
     );
+
+    // Totals for several date ranges in one round trip; the response echoes each period with its total
+    @PostMapping("/api/sales/total-amount-by-date/batch")
+    List<PeriodTotalDTO> getTotalSalesByDateRanges(@RequestBody List<PeriodTotalDTO> periods);
     
     @GetMapping("/api/sales/payment-methods")
     Map<String, Double> getPaymentMethodBreakdown();
@@ -2,6 +2,7 @@ package com.pharmacyInventory.inventory.mapper;
 
 import com.pharmacyInventory.inventory.dtos.equivalents.EquivalentsDTO;
 import com.pharmacyInventory.inventory.model.Equivalents;
+import com.pharmacyInventory.inventory.repository.projection.EquivalentsView;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -42,6 +43,31 @@ public class EquivalentsMapper {
                 .build();
     }
 
+    public List<EquivalentsDTO> toEquivalentsDTOFromViews(List<EquivalentsView> views) {
+        return views.stream()
+                .map(this::toEquivalentsDTO)
+                .collect(Collectors.toList());
+    }
+
+    public EquivalentsDTO toEquivalentsDTO(EquivalentsView view) {
+        return EquivalentsDTO.builder()
+                .id(view.getId())
+                .branchId(view.getBranchId())
+                .inn(view.getInn())
+                .form(view.getForm())
+                .strength(view.getStrength())
+                .referenceSourceId(view.getReferenceSourceId())
+                .referenceSourceName(view.getReferenceSourceName())
+                .brandIds(view.getBrandIds())
+                .brandNames(view.getBrandNames())
+                .createdAt(view.getCreatedAt())
+                .originalMedicationId(view.getOriginalMedicationId())
+                .originalMedicationName(view.getOriginalMedicationName())
+                .equivalentMedicationId(view.getEquivalentMedicationId())
+                .equivalentMedicationName(view.getEquivalentMedicationName())
+                .build();
+    }
+
     public Equivalents toEquivalents(EquivalentsDTO equivalentsDTO) {
         if(equivalentsDTO == null) {
             return null;
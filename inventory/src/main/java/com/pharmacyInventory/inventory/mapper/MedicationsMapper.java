@@ -4,6 +4,7 @@ import com.pharmacyInventory.inventory.dtos.medications.MedicationsDTO;
 import com.pharmacyInventory.inventory.model.Medications;
 import com.pharmacyInventory.inventory.model.Categories;
 import com.pharmacyInventory.inventory.repository.CategoriesRepository;
+import com.pharmacyInventory.inventory.repository.projection.MedicationsView;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -54,6 +55,37 @@ public class MedicationsMapper {
                 .build();
     }
 
+    public List<MedicationsDTO> toMedicationsDTOFromViews(List<MedicationsView> views) {
+        return views.stream()
+                .map(this::toMedicationsDTO)
+                .collect(Collectors.toList());
+    }
+
+    public MedicationsDTO toMedicationsDTO(MedicationsView view) {
+        return MedicationsDTO.builder()
+                .medicationId(view.getMedicationId())
+                .name(view.getName())
+                .form(view.getFormName())
+                .formId(view.getFormId())
+                .formName(view.getFormName())
+                .strength(view.getStrength())
+                .stockQuantity(view.getStockQuantity())
+                .reorderLevel(view.getReorderLevel())
+                .price(view.getPrice())
+                .batchNumber(view.getBatchNumber())
+                .expiryDate(view.getExpiryDate())
+                .description(view.getDescription())
+                .stockStatus(view.getStockStatus())
+                .createdAt(view.getCreatedAt())
+                .updatedAt(view.getUpdatedAt())
+                .branchId(view.getBranchId())
+                .categoryId(view.getCategoryId())
+                .categoryName(view.getCategoryName())
+                .supplierId(view.getSupplierId())
+                .supplierName(view.getSupplierName())
+                .build();
+    }
+
     public Medications toMedications(MedicationsDTO medicationsDTO) {
         if(medicationsDTO == null) {
             return null;
@@ -30,6 +30,8 @@ public class StockMapper {
                 .quantity(stock.getQuantity())
                 .batchNumber(stock.getBatchNumber())
                 .expiryDate(stock.getExpiryDate())
+                .medicationId(stock.getMedication() != null ? stock.getMedication().getMedicationId() : null)
+                .medicationName(stock.getMedication() != null ? stock.getMedication().getName() : null)
                 .build();
     }
 
@@ -2,6 +2,7 @@ package com.pharmacyInventory.inventory.mapper;
 
 import com.pharmacyInventory.inventory.dtos.transfers.TransfersDTO;
 import com.pharmacyInventory.inventory.model.Transfers;
+import com.pharmacyInventory.inventory.repository.projection.TransfersView;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -36,6 +37,25 @@ public class TransfersMapper {
                 .build();
     }
 
+    public List<TransfersDTO> toTransfersDTOFromViews(List<TransfersView> views) {
+        return views.stream()
+                .map(this::toTransfersDTO)
+                .collect(Collectors.toList());
+    }
+
+    public TransfersDTO toTransfersDTO(TransfersView view) {
+        return TransfersDTO.builder()
+                .id(view.getId())
+                .branchId(view.getBranchId())
+                .toBranchId(view.getToBranchId())
+                .quantity(view.getQuantity())
+                .status(view.getStatus())
+                .notes(view.getNotes())
+                .medicationId(view.getMedicationId())
+                .medicationName(view.getMedicationName())
+                .build();
+    }
+
     public Transfers toTransfers(TransfersDTO transfersDTO) {
         if(transfersDTO == null) {
             return null;
@@ -0,0 +1,108 @@
+package com.pharmacyInventory.inventory.model;
+
+import java.time.LocalDateTime;
+
+import com.pharmacyInventory.inventory.Enum.ImportJobStatus;
+import com.pharmacyInventory.inventory.Enum.ImportJobType;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.*;
+
+
+@Entity
+@Table(name = "import_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id", nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private String branchId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ImportJobType type;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ImportJobStatus status;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    // Where the upload was spooled; removed once the job reaches a final state
+    @Column(name = "spool_path", nullable = false)
+    private String spoolPath;
+
+    @Column(name = "total_rows")
+    private Integer totalRows;
+
+    @Column(name = "rows_imported", nullable = false)
+    @Builder.Default
+    private Integer rowsImported = 0;
+
+    @Column(name = "rows_failed", nullable = false)
+    @Builder.Default
+    private Integer rowsFailed = 0;
+
+    // Last sheet row of the last committed chunk; a restarted job continues after it
+    @Column(name = "last_row_number", nullable = false)
+    @Builder.Default
+    private Integer lastRowNumber = 0;
+
+    // Only ever set through ImportJobRepository.requestCancel
+    @Column(name = "cancel_requested", nullable = false, updatable = false)
+    @Builder.Default
+    private Boolean cancelRequested = false;
+
+    // Instance holding the job and when it last renewed its lease. Written on insert and
+    // afterwards only through ImportJobRepository, so a progress save cannot undo a takeover.
+    @Column(name = "owner", updatable = false)
+    private String owner;
+
+    @Column(name = "heartbeat_at", updatable = false)
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "error_report", columnDefinition = "TEXT")
+    private String errorReport;
+
+    @Column(name = "failure_reason", length = 1000)
+    private String failureReason;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -21,6 +21,7 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.*;
 
 
@@ -49,9 +50,15 @@ public class Medications {
     @Column(name = "strength", nullable = false)
     private String strength;
 
-    @Column(name = "stock_quantity",nullable = false)
+    // Snapshot of the stock ledger: every movement of a transaction below stockFoldedBelow.
+    // Only the ledger changes it after insert, see StockLedgerService for the quantity on hand.
+    @Column(name = "stock_quantity",nullable = false, updatable = false)
     private Integer stockQuantity;
 
+    // Written only by the ledger; new rows start at the column default of 1
+    @Column(name = "stock_folded_below", nullable = false, insertable = false, updatable = false)
+    private Long stockFoldedBelow;
+
     @Column(name = "reorder_level", nullable = false)
     private Integer reorderLevel;
 
@@ -78,6 +85,11 @@ public class Medications {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Optimistic locking; saves of a stale copy fail, see OptimisticLockRetry
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     //relationships
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,5 +1,7 @@
 package com.pharmacyInventory.inventory.model;
 
+import java.time.LocalDate;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -9,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.*;
 
 
@@ -33,8 +36,14 @@ public class Stock {
     @Column(name = "batch_number")
     private String batchNumber;
     
+    // Null when the lot has no known expiry; such lots are allocated last
     @Column(name = "expiry_date")
-    private String expiryDate;
+    private LocalDate expiryDate;
+
+    // Optimistic locking; saves of a stale copy fail, see OptimisticLockRetry
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 
     //relationships
     @ManyToOne(fetch = FetchType.LAZY)
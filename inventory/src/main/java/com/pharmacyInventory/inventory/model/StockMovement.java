@@ -0,0 +1,60 @@
+package com.pharmacyInventory.inventory.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Immutable;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+// One row of the append-only stock ledger; written by StockLedgerRepository, read-only here.
+// quantity is signed: receipts are positive, sales and write-offs negative.
+@Entity
+@Immutable
+@Table(name = "stock_movements")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "medication_id", nullable = false)
+    private Long medicationId;
+
+    @Column(name = "branch_id", nullable = false)
+    private String branchId;
+
+    @Column(name = "movement_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private StockMovementType movementType;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "reason")
+    private String reason;
+
+    @Column(name = "reference")
+    private String reference;
+
+    // Both set by the database on insert: the writing transaction's id, which orders the
+    // ledger for folding, and the wall-clock time of the insert itself
+    @Column(name = "xact_id", nullable = false, insertable = false, updatable = false)
+    private Long xactId;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
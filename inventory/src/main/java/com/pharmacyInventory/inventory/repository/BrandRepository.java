@@ -1,20 +1,35 @@
 package com.pharmacyInventory.inventory.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import com.pharmacyInventory.inventory.model.Brands;
 
 
 
 @Repository
 public interface BrandRepository extends JpaRepository<Brands, Long>{
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
     Optional<Brands> findByName(String name);
 
+    // [id, name] pairs for resolving a whole import chunk in one query
+    @Query("SELECT b.id, b.name FROM Brands b WHERE b.id IN :ids")
+    List<Object[]> findNamesByIds(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT COUNT(b) FROM Brands b WHERE b.branchId = :branchId")
     long countByBranchId(@Param("branchId") String branchId);
         
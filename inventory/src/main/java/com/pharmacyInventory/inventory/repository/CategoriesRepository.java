@@ -3,11 +3,17 @@ package com.pharmacyInventory.inventory.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import com.pharmacyInventory.inventory.Enum.CategoryType;
 import com.pharmacyInventory.inventory.model.Categories;
 
@@ -21,12 +27,28 @@ public interface CategoriesRepository extends JpaRepository<Categories, Long> {
 
     Optional<Categories> findByIdAndBranchId(Long id, String branchId);
 
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
     List<Categories> findByBranchId(String branchId);
 
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
     @Query("SELECT c FROM Categories c WHERE c.type = :type AND c.branchId = :branchId")
     List<Categories> findByType(
         @Param("type") CategoryType type,
         @Param("branchId") String branchId
     );
- 
+
+    // Keyset pages for the listing API
+    @Query("SELECT c FROM Categories c WHERE c.branchId = :branchId AND c.id > :afterId ORDER BY c.id ASC")
+    List<Categories> findPageAfterId(@Param("branchId") String branchId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT c FROM Categories c WHERE c.branchId = :branchId AND " +
+           "(c.name > :afterName OR (c.name = :afterName AND c.id > :afterId)) ORDER BY c.name ASC, c.id ASC")
+    List<Categories> findPageAfterName(@Param("branchId") String branchId, @Param("afterName") String afterName,
+                                       @Param("afterId") Long afterId, Pageable pageable);
 }
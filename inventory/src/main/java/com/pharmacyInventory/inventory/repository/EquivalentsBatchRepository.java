@@ -0,0 +1,58 @@
+package com.pharmacyInventory.inventory.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// JDBC batch inserts for equivalents imports. brand_ids and brand_names are the PostgreSQL
+// arrays Hibernate maps the entity's basic List columns to.
+@Repository
+@RequiredArgsConstructor
+public class EquivalentsBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record NewEquivalent(
+            String branchId,
+            String inn,
+            String form,
+            String strength,
+            String referenceSourceName,
+            List<Long> brandIds,
+            List<String> brandNames,
+            Long originalMedicationId,
+            Long equivalentMedicationId,
+            Long categoryId,
+            Long referenceSourceId,
+            Long brandId) {
+    }
+
+    public void insertEquivalents(List<NewEquivalent> equivalents, LocalDateTime createdAt) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO equivalents (branch_id, inn, form, strength, reference_source_name, brand_ids, brand_names, " +
+                "created_at, medication_id, equivalent_medication_id, category_id, reference_source_id, brand_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                equivalents,
+                equivalents.size(),
+                (ps, equivalent) -> {
+                    ps.setString(1, equivalent.branchId());
+                    ps.setString(2, equivalent.inn());
+                    ps.setString(3, equivalent.form());
+                    ps.setString(4, equivalent.strength());
+                    ps.setString(5, equivalent.referenceSourceName());
+                    ps.setArray(6, ps.getConnection().createArrayOf("bigint", equivalent.brandIds().toArray()));
+                    ps.setArray(7, ps.getConnection().createArrayOf("varchar", equivalent.brandNames().toArray()));
+                    ps.setTimestamp(8, timestamp);
+                    ps.setLong(9, equivalent.originalMedicationId());
+                    ps.setLong(10, equivalent.equivalentMedicationId());
+                    ps.setLong(11, equivalent.categoryId());
+                    ps.setLong(12, equivalent.referenceSourceId());
+                    ps.setLong(13, equivalent.brandId());
+                });
+    }
+}
@@ -1,20 +1,40 @@
 package com.pharmacyInventory.inventory.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import com.pharmacyInventory.inventory.model.Equivalents;
 import com.pharmacyInventory.inventory.model.Medications;
+import com.pharmacyInventory.inventory.repository.projection.EquivalentsView;
 
 @Repository
 public interface EquivalentsRepository extends JpaRepository<Equivalents, Long> {
+
+    // Shared select list of the EquivalentsView queries below
+    String VIEW_SELECT = "SELECT e.id AS id, e.branchId AS branchId, e.inn AS inn, e.form AS form, " +
+            "e.strength AS strength, r.id AS referenceSourceId, r.name AS referenceSourceName, " +
+            "e.brandIds AS brandIds, e.brandNames AS brandNames, e.createdAt AS createdAt, " +
+            "o.medicationId AS originalMedicationId, o.name AS originalMedicationName, " +
+            "q.medicationId AS equivalentMedicationId, q.name AS equivalentMedicationName " +
+            "FROM Equivalents e LEFT JOIN e.referenceSource r LEFT JOIN e.originalMedication o " +
+            "LEFT JOIN e.equivalentMedication q ";
+
     List<Equivalents> findByOriginalMedication(Medications originalMedication);
     List<Equivalents> findByEquivalentMedication(Medications equivalentMedication);
     List<Equivalents> findByBranchId(String branchId);
@@ -23,6 +43,18 @@ public interface EquivalentsRepository extends JpaRepository<Equivalents, Long>
     void deleteByIdAndBranchId(Long id, String branchId);
     boolean existsByIdAndBranchId(Long id, String branchId);
 
+    // Cursor-backed stream for exports; brand ids and names are columns of the row itself
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Equivalents e WHERE e.branchId = :branchId ORDER BY e.id ASC")
+    Stream<Equivalents> streamByBranchId(@Param("branchId") String branchId);
+
+    @Modifying
+    @Query("DELETE FROM Equivalents e WHERE e.originalMedication.medicationId IN :medicationIds")
+    int deleteByOriginalMedicationIds(@Param("medicationIds") Collection<Long> medicationIds);
+
     @Query("SELECT COUNT(DISTINCT e.inn) FROM Equivalents e WHERE e.branchId = :branchId")
     long countDistinctInnByBranchId(String branchId);
 
@@ -35,6 +67,14 @@ public interface EquivalentsRepository extends JpaRepository<Equivalents, Long>
     @Query("SELECT e.inn, COUNT(e) as count FROM Equivalents e WHERE e.branchId = :branchId GROUP BY e.inn ORDER BY count DESC")
     List<Object[]> findTopInnsByBranchId(@Param("branchId") String branchId, Pageable pageable);
 
+    // Listing queries that map straight into EquivalentsView, one statement per call
+    @Query(VIEW_SELECT + "WHERE e.branchId = :branchId ORDER BY e.id ASC")
+    List<EquivalentsView> findViewsByBranchId(@Param("branchId") String branchId);
+
+    @Query(VIEW_SELECT + "WHERE o.medicationId = :medicationId ORDER BY e.id ASC")
+    List<EquivalentsView> findViewsByOriginalMedicationId(@Param("medicationId") Long medicationId);
+
+    @EntityGraph(attributePaths = {"referenceSource", "originalMedication", "equivalentMedication"})
     @Query("SELECT e FROM Equivalents e WHERE e.branchId = :branchId AND " +
     "(e.inn LIKE %:query% OR e.brandNames LIKE %:query%)")
     List<Equivalents> findByInnContainingOrBrandNameContaining(
@@ -45,6 +85,7 @@ public interface EquivalentsRepository extends JpaRepository<Equivalents, Long>
     @Query("SELECT COUNT(e) FROM Equivalents e WHERE e.branchId = :branchId")
     long countByBranchId(@Param("branchId") String branchId);
 
+    @EntityGraph(attributePaths = {"referenceSource", "originalMedication", "equivalentMedication"})
     @Query("SELECT e FROM Equivalents e WHERE " +
            "(e.form IN :forms OR :forms IS NULL) " +
            "AND (e.referenceSource.name IN :referenceSources OR :referenceSources IS NULL) " +
@@ -57,4 +98,23 @@ public interface EquivalentsRepository extends JpaRepository<Equivalents, Long>
 
 
     
+
+    // [id, inn, brandNames] rows for building the autocomplete index without loading entities
+    @Query("SELECT e.id, e.inn, e.brandNames FROM Equivalents e WHERE e.branchId = :branchId")
+    List<Object[]> findAutocompleteTermsByBranchId(@Param("branchId") String branchId);
+
+    // [id, branchId, inn, brandNames]; ids that no longer exist are simply absent
+    @Query("SELECT e.id, e.branchId, e.inn, e.brandNames FROM Equivalents e WHERE e.id IN :ids")
+    List<Object[]> findAutocompleteTermsByIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset pages for the listing API; NAME sorts by INN
+    @EntityGraph(attributePaths = {"referenceSource", "originalMedication", "equivalentMedication"})
+    @Query("SELECT e FROM Equivalents e WHERE e.branchId = :branchId AND e.id > :afterId ORDER BY e.id ASC")
+    List<Equivalents> findPageAfterId(@Param("branchId") String branchId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"referenceSource", "originalMedication", "equivalentMedication"})
+    @Query("SELECT e FROM Equivalents e WHERE e.branchId = :branchId AND " +
+           "(e.inn > :afterName OR (e.inn = :afterName AND e.id > :afterId)) ORDER BY e.inn ASC, e.id ASC")
+    List<Equivalents> findPageAfterName(@Param("branchId") String branchId, @Param("afterName") String afterName,
+                                        @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,57 @@
+package com.pharmacyInventory.inventory.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pharmacyInventory.inventory.Enum.ImportJobStatus;
+import com.pharmacyInventory.inventory.model.ImportJob;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    List<ImportJob> findByStatusInOrderByIdAsc(Collection<ImportJobStatus> statuses);
+
+    List<ImportJob> findTop50ByBranchIdOrderByIdDesc(String branchId);
+
+    @Query("SELECT j.cancelRequested FROM ImportJob j WHERE j.id = :id")
+    Boolean isCancelRequested(@Param("id") Long id);
+
+    // cancel_requested is not updatable through the entity, so the worker saving its
+    // progress can never overwrite a cancellation made in the meantime
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.cancelRequested = true WHERE j.id = :id")
+    int requestCancel(@Param("id") Long id);
+
+    // Takes or renews the lease on an unfinished job: succeeds when the job has no owner, is
+    // already held by this owner, or its owner's heartbeat is older than the lease. Compared
+    // against the database clock only, so clock skew between instances does not matter.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE import_jobs SET owner = :owner, heartbeat_at = now() " +
+                   "WHERE job_id = :id AND status IN ('QUEUED', 'RUNNING') AND (owner IS NULL OR owner = :owner " +
+                   "OR heartbeat_at IS NULL OR heartbeat_at < now() - CAST(:leaseMs AS bigint) * interval '1 millisecond')",
+           nativeQuery = true)
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("leaseMs") long leaseMs);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.heartbeatAt = CURRENT_TIMESTAMP WHERE j.id IN :ids AND j.owner = :owner")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    // Fallback when saving the whole job fails: records just the final state
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.status = :status, j.failureReason = :failureReason, j.finishedAt = :finishedAt " +
+           "WHERE j.id = :id")
+    int markFinished(@Param("id") Long id, @Param("status") ImportJobStatus status,
+                     @Param("failureReason") String failureReason, @Param("finishedAt") LocalDateTime finishedAt);
+}
@@ -0,0 +1,62 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.dtos.bulk.PriceUpdateDTO;
+import com.pharmacyInventory.inventory.model.Medications;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Plain JDBC batch statements for the bulk endpoints, where loading and saving
+// entities one by one costs a round trip per row
+@Repository
+@RequiredArgsConstructor
+public class MedicationsBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Returns the affected row count per update, in the same order as the input
+    public int[] updatePrices(List<PriceUpdateDTO> updates, LocalDateTime updatedAt) {
+        Timestamp timestamp = Timestamp.valueOf(updatedAt);
+        return jdbcTemplate.batchUpdate(
+                "UPDATE medications SET price = ?, updated_at = ?, version = version + 1 WHERE medication_id = ?",
+                updates,
+                updates.size(),
+                (ps, update) -> {
+                    ps.setFloat(1, update.getNewPrice().floatValue());
+                    ps.setTimestamp(2, timestamp);
+                    ps.setLong(3, update.getMedicationId());
+                })[0];
+    }
+
+    // Multi-row insert for imports; with reWriteBatchedInserts the driver sends each batch
+    // as a handful of INSERT statements instead of one per row
+    public void insertMedications(List<Medications> medications) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO medications (branch_id, name, form_id, category_id, strength, stock_quantity, " +
+                "reorder_level, price, batch_number, expiry_date, description, stock_status, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                medications,
+                medications.size(),
+                (ps, medication) -> {
+                    ps.setString(1, medication.getBranchId());
+                    ps.setString(2, medication.getName());
+                    ps.setLong(3, medication.getForm().getId());
+                    ps.setObject(4, medication.getCategory() != null ? medication.getCategory().getId() : null, Types.BIGINT);
+                    ps.setString(5, medication.getStrength());
+                    ps.setInt(6, medication.getStockQuantity());
+                    ps.setInt(7, medication.getReorderLevel());
+                    ps.setFloat(8, medication.getPrice());
+                    ps.setString(9, medication.getBatchNumber());
+                    ps.setObject(10, medication.getExpiryDate());
+                    ps.setString(11, medication.getDescription());
+                    ps.setString(12, medication.getStockStatus().name());
+                    ps.setTimestamp(13, Timestamp.valueOf(medication.getCreatedAt()));
+                    ps.setTimestamp(14, Timestamp.valueOf(medication.getUpdatedAt()));
+                });
+    }
+}
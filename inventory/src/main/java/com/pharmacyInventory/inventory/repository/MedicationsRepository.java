@@ -2,19 +2,45 @@ package com.pharmacyInventory.inventory.repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import com.pharmacyInventory.inventory.model.Medications;
+import com.pharmacyInventory.inventory.repository.projection.MedicationMetrics;
+import com.pharmacyInventory.inventory.repository.projection.MedicationsView;
 import com.pharmacyInventory.inventory.Enum.StockStatus;
 
 @Repository
 public interface MedicationsRepository extends JpaRepository<Medications, Long> {
+
+    // Shared select list of the MedicationsView queries below. stockQuantity is the quantity
+    // on hand: the snapshot plus the stock movements not folded into it yet.
+    String VIEW_SELECT = "SELECT m.medicationId AS medicationId, m.branchId AS branchId, m.name AS name, " +
+            "m.strength AS strength, CAST(m.stockQuantity + COALESCE((SELECT SUM(sm.quantity) FROM StockMovement sm " +
+            "WHERE sm.medicationId = m.medicationId AND sm.xactId >= m.stockFoldedBelow), 0) AS Integer) AS stockQuantity, " +
+            "m.reorderLevel AS reorderLevel, " +
+            "m.price AS price, m.batchNumber AS batchNumber, m.expiryDate AS expiryDate, " +
+            "m.description AS description, m.stockStatus AS stockStatus, m.createdAt AS createdAt, " +
+            "m.updatedAt AS updatedAt, f.id AS formId, f.name AS formName, c.id AS categoryId, " +
+            "c.name AS categoryName, s.id AS supplierId, s.name AS supplierName " +
+            "FROM Medications m LEFT JOIN m.form f LEFT JOIN m.category c LEFT JOIN m.suppliers s ";
+
     List<Medications> findByNameContainingIgnoreCase(String name);
     List<Medications> findByStockStatusAndBranchId(StockStatus stockStatus, String branchId);
     List<Medications> findByStockQuantityLessThan(Integer stockQuantity);
@@ -30,6 +56,18 @@ public interface MedicationsRepository extends JpaRepository<Medications, Long>
 
 
 
+    // Listing queries that map straight into MedicationsView, one statement per call
+    @Query(VIEW_SELECT + "WHERE m.branchId = :branchId ORDER BY m.medicationId ASC")
+    List<MedicationsView> findViewsByBranchId(@Param("branchId") String branchId);
+
+    @Query(VIEW_SELECT + "WHERE m.branchId = :branchId AND c.id = :categoryId ORDER BY m.medicationId ASC")
+    List<MedicationsView> findViewsByCategoryIdAndBranchId(@Param("categoryId") Long categoryId,
+                                                           @Param("branchId") String branchId);
+
+    @Query(VIEW_SELECT + "WHERE m.branchId = :branchId AND m.stockStatus = :stockStatus ORDER BY m.medicationId ASC")
+    List<MedicationsView> findViewsByStockStatusAndBranchId(@Param("stockStatus") StockStatus stockStatus,
+                                                            @Param("branchId") String branchId);
+
     // Alert-specific queries
     @Query("SELECT m FROM Medications m WHERE m.stockQuantity <= m.reorderLevel AND m.stockStatus = StockStatus.LOW_STOCK")
     List<Medications> findLowStockMedications();
@@ -42,4 +80,97 @@ public interface MedicationsRepository extends JpaRepository<Medications, Long>
     
     @Query("SELECT m FROM Medications m WHERE m.stockQuantity < m.reorderLevel AND m.stockStatus = StockStatus.IN_STOCK")
     List<Medications> findCriticalLowStockMedications();
+
+    // Dashboard aggregates: every scalar metric and expiry bucket in a single pass (null branchId = all branches).
+    // Native, so each row's quantity on hand (snapshot plus the unfolded ledger tail) is computed once in
+    // the derived table instead of once per aggregate.
+    @Query(value = "SELECT COALESCE(SUM(t.price * t.on_hand), 0) AS \"stockValue\", " +
+           "COALESCE(SUM(CASE WHEN t.expiry_date < :today THEN t.price * t.on_hand ELSE 0 END), 0) AS \"expiryLoss\", " +
+           "COALESCE(SUM(CASE WHEN t.on_hand <= t.reorder_level THEN 1 ELSE 0 END), 0) AS \"lowStockItems\", " +
+           "COALESCE(SUM(CASE WHEN t.on_hand = 0 THEN 1 ELSE 0 END), 0) AS \"outOfStock\", " +
+           "COALESCE(SUM(CASE WHEN t.on_hand > 0 AND t.on_hand <= t.reorder_level THEN 1 ELSE 0 END), 0) AS \"lowStock\", " +
+           "COALESCE(SUM(CASE WHEN t.on_hand > t.reorder_level THEN 1 ELSE 0 END), 0) AS \"inStock\", " +
+           "COALESCE(SUM(CASE WHEN t.expiry_date BETWEEN :today AND :in30Days THEN 1 ELSE 0 END), 0) AS \"expiringIn30Days\", " +
+           "COALESCE(SUM(CASE WHEN t.expiry_date BETWEEN :today AND :in60Days THEN 1 ELSE 0 END), 0) AS \"expiringIn60Days\", " +
+           "COALESCE(SUM(CASE WHEN t.expiry_date BETWEEN :today AND :in90Days THEN 1 ELSE 0 END), 0) AS \"expiringIn90Days\" " +
+           "FROM (SELECT CAST(m.price AS double precision) AS price, m.reorder_level, m.expiry_date, " +
+           "m.stock_quantity + COALESCE((SELECT SUM(s.quantity) FROM stock_movements s " +
+           "WHERE s.medication_id = m.medication_id AND s.xact_id >= m.stock_folded_below), 0) AS on_hand " +
+           "FROM medications m WHERE (CAST(:branchId AS varchar) IS NULL OR m.branch_id = :branchId)) t",
+           nativeQuery = true)
+    MedicationMetrics aggregateDashboardMetrics(
+        @Param("branchId") String branchId,
+        @Param("today") LocalDate today,
+        @Param("in30Days") LocalDate in30Days,
+        @Param("in60Days") LocalDate in60Days,
+        @Param("in90Days") LocalDate in90Days
+    );
+
+    @Query("SELECT m FROM Medications m WHERE (:branchId IS NULL OR m.branchId = :branchId) " +
+           "AND m.expiryDate BETWEEN :startDate AND :endDate ORDER BY m.expiryDate ASC")
+    List<Medications> findExpiringByBranchId(
+        @Param("branchId") String branchId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    // Keyset page for exports: continues after the last id of the previous page instead of
+    // using an offset, and fetches the associations shown in the export in the same query
+    @EntityGraph(attributePaths = {"form", "category", "suppliers"})
+    @Query("SELECT m FROM Medications m WHERE m.branchId = :branchId AND m.medicationId > :afterId " +
+           "ORDER BY m.medicationId ASC")
+    List<Medications> findExportPage(
+        @Param("branchId") String branchId,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+
+    // Cursor-backed stream for raw exports; must be consumed inside a transaction and closed.
+    // The fetch size makes the driver page through the result instead of loading it whole.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM Medications m LEFT JOIN FETCH m.form LEFT JOIN FETCH m.category " +
+           "LEFT JOIN FETCH m.suppliers WHERE m.branchId = :branchId ORDER BY m.medicationId ASC")
+    Stream<Medications> streamByBranchId(@Param("branchId") String branchId);
+
+    // Loads the rows behind a page of search hits; callers restore the ranked order
+    @EntityGraph(attributePaths = {"form", "category", "suppliers"})
+    List<Medications> findByMedicationIdIn(Collection<Long> ids);
+
+    // [medicationId, categoryId] pairs; the category id is null for uncategorized medications
+    @Query("SELECT m.medicationId, c.id FROM Medications m LEFT JOIN m.category c WHERE m.medicationId IN :ids")
+    List<Object[]> findCategoryIdsByMedicationIds(@Param("ids") Collection<Long> ids);
+
+    // Used by the bulk operations to check a whole chunk of ids with one statement
+    @Query("SELECT m.medicationId FROM Medications m WHERE m.medicationId IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT m.name FROM Medications m WHERE m.name IN :names")
+    Set<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @Modifying
+    @Query("DELETE FROM Medications m WHERE m.medicationId IN :ids")
+    int deleteByMedicationIds(@Param("ids") Collection<Long> ids);
+
+    // [medicationId, name] rows for building the autocomplete index without loading entities
+    @Query("SELECT m.medicationId, m.name FROM Medications m WHERE m.branchId = :branchId")
+    List<Object[]> findNamesByBranchId(@Param("branchId") String branchId);
+
+    // [medicationId, branchId, name]; ids that no longer exist are simply absent
+    @Query("SELECT m.medicationId, m.branchId, m.name FROM Medications m WHERE m.medicationId IN :ids")
+    List<Object[]> findNamesByMedicationIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset page ordered by name; rows after (afterName, afterId). Ordering by id uses findExportPage.
+    @EntityGraph(attributePaths = {"form", "category", "suppliers"})
+    @Query("SELECT m FROM Medications m WHERE m.branchId = :branchId AND " +
+           "(m.name > :afterName OR (m.name = :afterName AND m.medicationId > :afterId)) " +
+           "ORDER BY m.name ASC, m.medicationId ASC")
+    List<Medications> findPageAfterName(
+        @Param("branchId") String branchId,
+        @Param("afterName") String afterName,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
 }
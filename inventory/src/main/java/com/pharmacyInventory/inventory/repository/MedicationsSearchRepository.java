@@ -0,0 +1,84 @@
+package com.pharmacyInventory.inventory.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Ranked medication search over name, strength and batch number. Uses the pg_trgm GIN
+// indexes from db/migration/V2 when the extension is installed, which makes the
+// search typo tolerant; otherwise it falls back to LIKE matching ranked by name prefix.
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class MedicationsSearchRepository {
+
+    private static final String TRIGRAM_MATCH =
+            "m.branch_id = :branchId AND (lower(m.name) LIKE :contains OR :query <% lower(m.name) " +
+            "OR lower(m.strength) LIKE :contains OR lower(m.batch_number) LIKE :contains " +
+            "OR :query <% lower(m.batch_number))";
+
+    private static final String TRIGRAM_SCORE =
+            "CASE WHEN lower(m.name) LIKE :prefix THEN 1.0 ELSE 0.0 END + GREATEST(" +
+            "word_similarity(:query, lower(m.name)), word_similarity(:query, lower(m.strength)), " +
+            "word_similarity(:query, lower(m.batch_number)))";
+
+    private static final String LIKE_MATCH =
+            "m.branch_id = :branchId AND (lower(m.name) LIKE :contains " +
+            "OR lower(m.strength) LIKE :contains OR lower(m.batch_number) LIKE :contains)";
+
+    private static final String LIKE_SCORE =
+            "CASE WHEN lower(m.name) LIKE :prefix THEN 2.0 WHEN lower(m.name) LIKE :contains THEN 1.0 ELSE 0.5 END";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private volatile Boolean trigramAvailable;
+
+    public record SearchHit(Long medicationId, double score) { }
+
+    public List<SearchHit> search(String branchId, String query, int offset, int limit) {
+        boolean trigram = isTrigramAvailable();
+        String sql = "SELECT m.medication_id, " + (trigram ? TRIGRAM_SCORE : LIKE_SCORE) + " AS score " +
+                "FROM medications m WHERE " + (trigram ? TRIGRAM_MATCH : LIKE_MATCH) + " " +
+                "ORDER BY score DESC, m.name ASC, m.medication_id ASC LIMIT :limit OFFSET :offset";
+        MapSqlParameterSource params = parameters(branchId, query)
+                .addValue("limit", limit)
+                .addValue("offset", offset);
+        return jdbcTemplate.query(sql, params,
+                (rs, rowNum) -> new SearchHit(rs.getLong("medication_id"), rs.getDouble("score")));
+    }
+
+    public long count(String branchId, String query) {
+        String sql = "SELECT COUNT(*) FROM medications m WHERE " + (isTrigramAvailable() ? TRIGRAM_MATCH : LIKE_MATCH);
+        Long count = jdbcTemplate.queryForObject(sql, parameters(branchId, query), Long.class);
+        return count != null ? count : 0;
+    }
+
+    private MapSqlParameterSource parameters(String branchId, String query) {
+        String normalized = query.trim().toLowerCase();
+        String escaped = normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return new MapSqlParameterSource()
+                .addValue("branchId", branchId)
+                .addValue("query", normalized)
+                .addValue("contains", "%" + escaped + "%")
+                .addValue("prefix", escaped + "%");
+    }
+
+    private boolean isTrigramAvailable() {
+        if (trigramAvailable == null) {
+            try {
+                trigramAvailable = Boolean.TRUE.equals(jdbcTemplate.getJdbcTemplate().queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+            } catch (Exception e) {
+                trigramAvailable = false;
+            }
+            if (!trigramAvailable) {
+                log.warn("pg_trgm is not installed, medication search falls back to LIKE matching");
+            }
+        }
+        return trigramAvailable;
+    }
+}
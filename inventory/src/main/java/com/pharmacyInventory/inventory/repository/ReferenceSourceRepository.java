@@ -1,18 +1,37 @@
 package com.pharmacyInventory.inventory.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import com.pharmacyInventory.inventory.model.ReferenceSource;
 
 @Repository
 public interface ReferenceSourceRepository extends JpaRepository<ReferenceSource, Long> {
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
     Optional<ReferenceSource> findByName(String name);
+
     boolean existsByName(String name);
 
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
+    List<ReferenceSource> findByNameIn(Collection<String> names);
+
     @Query("SELECT COUNT(DISTINCT rs) FROM ReferenceSource rs WHERE rs.branchId = :branchId")
     long countByBranchId(String branchId);
 }
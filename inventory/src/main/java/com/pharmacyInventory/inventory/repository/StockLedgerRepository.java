@@ -0,0 +1,167 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.model.StockMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+// Plain JDBC access to the stock ledger (db/migration/V4). Movements are appended with a
+// single INSERT and never update the medications row, so concurrent sales of the same item
+// do not queue behind its row lock.
+@Repository
+@RequiredArgsConstructor
+public class StockLedgerRepository {
+
+    // Snapshot plus the movements not folded into it yet
+    private static final String ON_HAND = "m.stock_quantity + COALESCE((SELECT SUM(s.quantity) FROM stock_movements s " +
+            "WHERE s.medication_id = m.medication_id AND s.xact_id >= m.stock_folded_below), 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record FoldedMedication(String branchId, Long medicationId) { }
+
+    // Appends each movement whose medication exists (in its branch, when one is set) and would
+    // not drop below zero stock. Returns 1 or 0 per movement, in input order; later movements
+    // see the earlier ones. Hold lock() for outgoing movements, or two concurrent sales can
+    // both pass the check.
+    public int[] append(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_movements (medication_id, branch_id, movement_type, quantity, reason, reference) " +
+                "SELECT m.medication_id, m.branch_id, ?, ?, ?, ? FROM medications m " +
+                "WHERE m.medication_id = ? AND (CAST(? AS varchar) IS NULL OR m.branch_id = ?) " +
+                "AND " + ON_HAND + " + ? >= 0",
+                movements,
+                movements.size(),
+                (ps, movement) -> {
+                    ps.setString(1, movement.getMovementType().name());
+                    ps.setInt(2, movement.getQuantity());
+                    ps.setString(3, movement.getReason());
+                    ps.setString(4, movement.getReference());
+                    ps.setLong(5, movement.getMedicationId());
+                    ps.setString(6, movement.getBranchId());
+                    ps.setString(7, movement.getBranchId());
+                    ps.setInt(8, movement.getQuantity());
+                })[0];
+    }
+
+    // Appends movements as they are, without the existence and stock checks of append(); for
+    // deltas that were already checked when they were buffered (StockWriteBehindBuffer)
+    public void appendUnchecked(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO stock_movements (medication_id, branch_id, movement_type, quantity, reason, reference) " +
+                "VALUES (?, ?, ?, ?, ?, ?)",
+                movements,
+                movements.size(),
+                (ps, movement) -> {
+                    ps.setLong(1, movement.getMedicationId());
+                    ps.setString(2, movement.getBranchId());
+                    ps.setString(3, movement.getMovementType().name());
+                    ps.setInt(4, movement.getQuantity());
+                    ps.setString(5, movement.getReason());
+                    ps.setString(6, movement.getReference());
+                });
+    }
+
+    // Whether a write-behind batch reached the ledger. The LIKE repeats the predicate of the
+    // partial index idx_stock_movements_write_behind so the planner can use it.
+    public boolean isReferenced(String reference) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM stock_movements WHERE reference = ? AND reference LIKE 'write-behind:%')",
+                Boolean.class, reference));
+    }
+
+    // Transaction-scoped advisory locks keyed by medication id. They serialize stock checks
+    // for an item without locking its row, so reads and receipts carry on; ids are locked in
+    // ascending order so two batches cannot deadlock.
+    public void lock(Collection<Long> medicationIds) {
+        if (medicationIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = new TreeSet<>(medicationIds).toArray(new Long[0]);
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(id) FROM unnest(?) AS id",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)),
+                rs -> { });
+    }
+
+    // Empty when the medication does not exist in the branch
+    public Optional<Integer> onHand(Long medicationId, String branchId) {
+        return jdbcTemplate.queryForList(
+                "SELECT " + ON_HAND + " FROM medications m WHERE m.medication_id = ? AND m.branch_id = ?",
+                Integer.class, medicationId, branchId).stream().findFirst();
+    }
+
+    public Map<Long, Integer> onHand(Collection<Long> medicationIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        if (medicationIds.isEmpty()) {
+            return quantities;
+        }
+        jdbcTemplate.query("SELECT m.medication_id, " + ON_HAND + " FROM medications m WHERE m.medication_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", medicationIds.toArray())),
+                rs -> {
+                    quantities.put(rs.getLong(1), rs.getInt(2));
+                });
+        return quantities;
+    }
+
+    // Brings stock_status in line with the quantity on hand, in the caller's transaction.
+    // Rows whose status is already right are left alone, so their version does not move.
+    public void refreshStockStatus(Collection<Long> medicationIds) {
+        if (medicationIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(
+                "UPDATE medications m SET stock_status = t.status, version = m.version + 1 " +
+                "FROM (SELECT m.medication_id, CASE WHEN q.on_hand <= 0 THEN 'OUT_OF_STOCK' " +
+                "WHEN q.on_hand <= m.reorder_level THEN 'LOW_STOCK' ELSE 'IN_STOCK' END AS status " +
+                "FROM medications m CROSS JOIN LATERAL (SELECT " + ON_HAND + " AS on_hand) q " +
+                "WHERE m.medication_id = ANY(?)) t " +
+                "WHERE m.medication_id = t.medication_id AND m.stock_status IS DISTINCT FROM t.status",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", medicationIds.toArray())));
+    }
+
+    // Folds the movements of whole transactions, up to about maxMovements of them, into the
+    // medication snapshots. Must run in a transaction: the state row lock keeps two instances
+    // from folding the same range. Folding leaves the quantity on hand, and so the stock
+    // status, as it was.
+    public List<FoldedMedication> fold(int maxMovements) {
+        Long from = jdbcTemplate.queryForObject(
+                "SELECT folded_below FROM stock_ledger_state WHERE id = 1 FOR UPDATE", Long.class);
+        // Every transaction below the oldest one still running has committed or rolled back,
+        // and every later one gets a higher id, so no movement can turn up below this any more
+        Long horizon = jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+        Long last = jdbcTemplate.queryForObject(
+                "SELECT MAX(xact_id) FROM (SELECT xact_id FROM stock_movements WHERE xact_id >= ? AND xact_id < ? " +
+                "ORDER BY xact_id LIMIT ?) batch",
+                Long.class, from, horizon, maxMovements);
+        if (last == null) {
+            return List.of();
+        }
+        // Up to and including the last transaction, so none is split across two folds
+        long to = last + 1;
+
+        List<FoldedMedication> folded = jdbcTemplate.query(
+                "UPDATE medications m SET stock_quantity = m.stock_quantity + t.delta, stock_folded_below = ?, " +
+                "version = m.version + 1 " +
+                "FROM (SELECT medication_id, SUM(quantity) AS delta FROM stock_movements " +
+                "WHERE xact_id >= ? AND xact_id < ? GROUP BY medication_id) t " +
+                "WHERE m.medication_id = t.medication_id RETURNING m.branch_id, m.medication_id",
+                (rs, rowNum) -> new FoldedMedication(rs.getString(1), rs.getLong(2)),
+                to, from, to);
+        jdbcTemplate.update("UPDATE stock_ledger_state SET folded_below = ? WHERE id = 1", to);
+        return folded;
+    }
+}
@@ -0,0 +1,15 @@
+package com.pharmacyInventory.inventory.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.pharmacyInventory.inventory.model.StockMovement;
+
+// Reads of the stock ledger; movements are appended through StockLedgerRepository
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    Page<StockMovement> findByMedicationIdAndBranchIdOrderByIdDesc(Long medicationId, String branchId, Pageable pageable);
+}
@@ -1,11 +1,35 @@
 package com.pharmacyInventory.inventory.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pharmacyInventory.inventory.model.Stock;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, Long> {
-    
+
+    @EntityGraph(attributePaths = "medication")
+    List<Stock> findByBranchIdOrderByIdAsc(String branchId);
+
+    // Non-empty lots of one medication, served by the partial idx_stock_fefo index
+    @Query("SELECT s FROM Stock s WHERE s.branchId = :branchId AND s.medication.medicationId = :medicationId " +
+           "AND s.quantity > 0")
+    List<Stock> findAvailableLots(@Param("branchId") String branchId, @Param("medicationId") Long medicationId);
+
+    // Takes units from a lot only if it still holds them; 0 means the lot changed underneath
+    @Modifying
+    @Query("UPDATE Stock s SET s.quantity = s.quantity - :quantity, s.version = s.version + 1 " +
+           "WHERE s.id = :id AND s.quantity >= :quantity")
+    int takeFromLot(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("DELETE FROM Stock s WHERE s.medication.medicationId IN :medicationIds")
+    int deleteByMedicationIds(@Param("medicationIds") Collection<Long> medicationIds);
 }
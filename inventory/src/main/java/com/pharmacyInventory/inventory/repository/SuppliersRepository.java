@@ -49,4 +49,13 @@ public interface SuppliersRepository extends JpaRepository<Suppliers, Long> {
             @Param("branchId") String branchId,
             @Param("query") String nameQuery,
             @Param("query") String emailQuery);
+
+    // Keyset pages for the listing API
+    @Query("SELECT s FROM Suppliers s WHERE s.branchId = :branchId AND s.id > :afterId ORDER BY s.id ASC")
+    List<Suppliers> findPageAfterId(@Param("branchId") String branchId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT s FROM Suppliers s WHERE s.branchId = :branchId AND " +
+           "(s.name > :afterName OR (s.name = :afterName AND s.id > :afterId)) ORDER BY s.name ASC, s.id ASC")
+    List<Suppliers> findPageAfterName(@Param("branchId") String branchId, @Param("afterName") String afterName,
+                                      @Param("afterId") Long afterId, Pageable pageable);
 }
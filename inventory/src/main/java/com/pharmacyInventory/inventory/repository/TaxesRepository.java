@@ -1,7 +1,10 @@
 package com.pharmacyInventory.inventory.repository;
 
 import com.pharmacyInventory.inventory.model.Taxes;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
 
@@ -12,8 +15,17 @@ import java.util.Optional;
 public interface TaxesRepository extends JpaRepository<Taxes, Long> {
     List<Taxes> findByIsActive(@NonNull Boolean isActive);
     Optional<Taxes> findByName(@NonNull String name);
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
     List<Taxes> findAllByBranchId(@NonNull String branchId);
     Optional<Taxes> findByIdAndBranchId(@NonNull Long id, @NonNull String branchId);
     boolean existsByIdAndBranchId(@NonNull Long id, @NonNull String branchId);
+
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference.queries")
+    })
     List<Taxes> findByIsActiveAndBranchId(@NonNull Boolean isActive, @NonNull String branchId);
 }
@@ -1,12 +1,17 @@
 package com.pharmacyInventory.inventory.repository;
 
 import com.pharmacyInventory.inventory.model.Transfers;
+import com.pharmacyInventory.inventory.repository.projection.TransfersView;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -17,5 +22,26 @@ public interface TransfersRepository extends JpaRepository<Transfers, Long>{
     List<Transfers> findByIdOrBranchId(Long id, String branchId);
     Page<Transfers> findByBranchId(String branchId, Pageable pageable);
 
+    // Listing queries that map straight into TransfersView, with the medication name joined in
+    String VIEW_SELECT = "SELECT t.id AS id, t.branchId AS branchId, t.toBranchId AS toBranchId, " +
+            "t.quantity AS quantity, t.status AS status, t.notes AS notes, " +
+            "m.medicationId AS medicationId, m.name AS medicationName " +
+            "FROM Transfers t LEFT JOIN t.medication m ";
+
+    @Query(VIEW_SELECT + "WHERE t.branchId = :branchId")
+    List<TransfersView> findViewsByBranchId(@Param("branchId") String branchId);
+
+    @Query(VIEW_SELECT + "WHERE t.branchId = :branchId OR t.toBranchId = :toBranchId")
+    List<TransfersView> findViewsByBranchIdOrToBranchId(@Param("branchId") String branchId,
+                                                        @Param("toBranchId") String toBranchId);
+
+    @Query(value = VIEW_SELECT + "WHERE t.branchId = :branchId",
+           countQuery = "SELECT COUNT(t) FROM Transfers t WHERE t.branchId = :branchId")
+    Page<TransfersView> findViewsByBranchId(@Param("branchId") String branchId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Transfers t WHERE t.medication.medicationId IN :medicationIds")
+    int deleteByMedicationIds(@Param("medicationIds") Collection<Long> medicationIds);
+
 
 }
@@ -0,0 +1,23 @@
+package com.pharmacyInventory.inventory.repository.projection;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Flat read model for equivalents listings, with the reference source and both
+// medication names joined in the same statement
+public interface EquivalentsView {
+    Long getId();
+    String getBranchId();
+    String getInn();
+    String getForm();
+    String getStrength();
+    Long getReferenceSourceId();
+    String getReferenceSourceName();
+    List<Long> getBrandIds();
+    List<String> getBrandNames();
+    LocalDateTime getCreatedAt();
+    Long getOriginalMedicationId();
+    String getOriginalMedicationName();
+    Long getEquivalentMedicationId();
+    String getEquivalentMedicationName();
+}
@@ -0,0 +1,13 @@
+package com.pharmacyInventory.inventory.repository.projection;
+
+public interface MedicationMetrics {
+    Double getStockValue();
+    Double getExpiryLoss();
+    Long getLowStockItems();
+    Long getOutOfStock();
+    Long getLowStock();
+    Long getInStock();
+    Long getExpiringIn30Days();
+    Long getExpiringIn60Days();
+    Long getExpiringIn90Days();
+}
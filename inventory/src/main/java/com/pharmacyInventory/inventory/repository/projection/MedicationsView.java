@@ -0,0 +1,30 @@
+package com.pharmacyInventory.inventory.repository.projection;
+
+import com.pharmacyInventory.inventory.Enum.StockStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Flat read model for medication listings: form, category and supplier names are joined
+// in the same statement instead of being loaded lazily per row
+public interface MedicationsView {
+    Long getMedicationId();
+    String getBranchId();
+    String getName();
+    String getStrength();
+    Integer getStockQuantity();
+    Integer getReorderLevel();
+    Float getPrice();
+    String getBatchNumber();
+    LocalDate getExpiryDate();
+    String getDescription();
+    StockStatus getStockStatus();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+    Long getFormId();
+    String getFormName();
+    Long getCategoryId();
+    String getCategoryName();
+    Long getSupplierId();
+    String getSupplierName();
+}
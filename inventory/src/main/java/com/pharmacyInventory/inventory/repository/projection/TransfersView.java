@@ -0,0 +1,13 @@
+package com.pharmacyInventory.inventory.repository.projection;
+
+// Flat read model for transfer listings, with the medication name joined in
+public interface TransfersView {
+    Long getId();
+    String getBranchId();
+    String getToBranchId();
+    Integer getQuantity();
+    String getStatus();
+    String getNotes();
+    Long getMedicationId();
+    String getMedicationName();
+}
@@ -0,0 +1,308 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.dtos.autocomplete.AutocompleteSuggestionDTO;
+import com.pharmacyInventory.inventory.events.EquivalentsChangedEvent;
+import com.pharmacyInventory.inventory.events.MedicationsChangedEvent;
+import com.pharmacyInventory.inventory.repository.EquivalentsRepository;
+import com.pharmacyInventory.inventory.repository.MedicationsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Per-branch prefix index over medication names and equivalent INNs / brand names for the
+// till typeahead. A branch is loaded on its first lookup and then kept current from the
+// change events, so lookups never touch the database. Every word of a label is indexed,
+// which lets "clav" find "Amoxicillin Clavulanate".
+//
+// As in LotIndex, a branch is registered as a future before it is loaded and the queries run
+// outside any map operation, so a slow load holds up only the lookups for that branch.
+@Component
+@Slf4j
+public class AutocompleteIndex {
+
+    private static final String MEDICATION = "MEDICATION";
+    private static final String EQUIVALENT = "EQUIVALENT";
+
+    private final MedicationsRepository medicationsRepository;
+    private final EquivalentsRepository equivalentsRepository;
+    private final Map<String, CompletableFuture<BranchIndex>> branches = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter fallbacks;
+    private final Timer lookups;
+
+    // Least recently used branches are dropped beyond this many
+    @Value("${autocomplete.max-branches:50}")
+    private int maxBranches;
+
+    // Branches with more index entries than this are served from the database instead
+    @Value("${autocomplete.max-entries-per-branch:200000}")
+    private int maxEntriesPerBranch;
+
+    // An oversized branch is loaded and counted again after this long, in case it shrank
+    @Value("${autocomplete.oversized-recheck-ms:600000}")
+    private long oversizedRecheckMs;
+
+    public AutocompleteIndex(MedicationsRepository medicationsRepository, EquivalentsRepository equivalentsRepository,
+                             MeterRegistry meterRegistry) {
+        this.medicationsRepository = medicationsRepository;
+        this.equivalentsRepository = equivalentsRepository;
+        this.hits = Counter.builder("autocomplete.lookups").tag("result", "index").register(meterRegistry);
+        this.fallbacks = Counter.builder("autocomplete.lookups").tag("result", "fallback").register(meterRegistry);
+        this.lookups = Timer.builder("autocomplete.lookup.duration").register(meterRegistry);
+        Gauge.builder("autocomplete.index.branches", branches, Map::size).register(meterRegistry);
+        Gauge.builder("autocomplete.index.entries", branches,
+                        map -> map.values().stream()
+                                .map(AutocompleteIndex::loaded)
+                                .mapToLong(index -> index != null ? index.size() : 0)
+                                .sum())
+                .register(meterRegistry);
+    }
+
+    // Top suggestions whose label has a word starting with the prefix. Empty when the branch
+    // is too large to index, in which case the caller should search the database.
+    public Optional<List<AutocompleteSuggestionDTO>> suggest(String branchId, String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return Optional.of(List.of());
+        }
+        if (!branches.containsKey(branchId)) {
+            evictLeastRecentlyUsed();
+        }
+        BranchIndex index = index(branchId);
+        if (index.oversized) {
+            // Fallback lookups leave lastAccess alone, so an oversized branch is evicted before
+            // the indexed ones, and it is reloaded and counted again once the recheck is due
+            if (System.nanoTime() - index.oversizedAt > oversizedRecheckMs * 1_000_000) {
+                branches.computeIfPresent(branchId, (key, holder) -> loaded(holder) == index ? null : holder);
+            }
+            fallbacks.increment();
+            return Optional.empty();
+        }
+        index.lastAccess = System.nanoTime();
+        hits.increment();
+        return Optional.of(lookups.record(() -> index.suggest(normalized, limit)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMedicationsChanged(MedicationsChangedEvent event) {
+        if (event.branchId() == null) {
+            // Bulk deletes also remove equivalents we cannot identify by id
+            branches.clear();
+            return;
+        }
+        if (event.medicationIds().isEmpty()) {
+            branches.remove(event.branchId());
+            return;
+        }
+        List<Object[]> rows = medicationsRepository.findNamesByMedicationIds(event.medicationIds());
+        update(event.branchId(), index -> {
+            event.medicationIds().forEach(id -> index.remove(MEDICATION, id));
+            for (Object[] row : rows) {
+                index.add(MEDICATION, (Long) row[0], (String) row[2]);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEquivalentsChanged(EquivalentsChangedEvent event) {
+        if (event.equivalentIds().isEmpty()) {
+            branches.remove(event.branchId());
+            return;
+        }
+        List<Object[]> rows = equivalentsRepository.findAutocompleteTermsByIds(event.equivalentIds());
+        update(event.branchId(), index -> {
+            event.equivalentIds().forEach(id -> index.remove(EQUIVALENT, id));
+            for (Object[] row : rows) {
+                addEquivalent(index, (Long) row[0], (String) row[2], row[3]);
+            }
+        });
+    }
+
+    private BranchIndex index(String branchId) {
+        CompletableFuture<BranchIndex> holder = branches.get(branchId);
+        if (holder == null) {
+            CompletableFuture<BranchIndex> loading = new CompletableFuture<>();
+            holder = branches.putIfAbsent(branchId, loading);
+            if (holder == null) {
+                holder = loading;
+                load(branchId, loading);
+            }
+        }
+        try {
+            return holder.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Applies a change to a loaded branch. A branch still loading may have read the rows
+    // before the change, so it is dropped and loaded again by the next lookup.
+    private void update(String branchId, Consumer<BranchIndex> change) {
+        CompletableFuture<BranchIndex> holder = branches.get(branchId);
+        if (holder == null) {
+            return;
+        }
+        BranchIndex index = loaded(holder);
+        if (index == null) {
+            branches.remove(branchId, holder);
+            return;
+        }
+        // Change events may arrive on several threads at once
+        synchronized (index) {
+            change.accept(index);
+            index.checkSize(maxEntriesPerBranch);
+        }
+    }
+
+    // A failed load is not kept, so the next lookup queries again
+    private void load(String branchId, CompletableFuture<BranchIndex> loading) {
+        try {
+            long start = System.nanoTime();
+            BranchIndex index = new BranchIndex();
+            for (Object[] row : medicationsRepository.findNamesByBranchId(branchId)) {
+                index.add(MEDICATION, (Long) row[0], (String) row[1]);
+            }
+            for (Object[] row : equivalentsRepository.findAutocompleteTermsByBranchId(branchId)) {
+                addEquivalent(index, (Long) row[0], (String) row[1], row[2]);
+            }
+            index.checkSize(maxEntriesPerBranch);
+            if (index.oversized) {
+                log.warn("Autocomplete index for branch {} exceeds {} entries, lookups will use the database",
+                        branchId, maxEntriesPerBranch);
+            }
+            log.info("Loaded autocomplete index for branch {} with {} entries in {} ms",
+                    branchId, index.size(), (System.nanoTime() - start) / 1_000_000);
+            loading.complete(index);
+        } catch (RuntimeException e) {
+            branches.remove(branchId, loading);
+            loading.completeExceptionally(e);
+        }
+    }
+
+    private void addEquivalent(BranchIndex index, Long id, String inn, Object brandNames) {
+        index.add(EQUIVALENT, id, inn);
+        if (brandNames instanceof Collection<?> names) {
+            names.forEach(name -> index.add(EQUIVALENT, id, (String) name));
+        }
+    }
+
+    private static BranchIndex loaded(CompletableFuture<BranchIndex> holder) {
+        return holder.isDone() && !holder.isCompletedExceptionally() ? holder.join() : null;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (branches.size() >= maxBranches) {
+            Optional<String> oldest = branches.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> {
+                        BranchIndex index = loaded(entry.getValue());
+                        return index != null ? index.lastAccess : 0;
+                    }))
+                    .map(Map.Entry::getKey);
+            if (oldest.isEmpty()) {
+                return;
+            }
+            branches.remove(oldest.get());
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+
+    private static class BranchIndex {
+
+        // "<term>\0<type>:<id>:<label>" -> suggestion; the suffix keeps keys unique while
+        // prefix scans stay a contiguous range of the map
+        private final ConcurrentSkipListMap<String, AutocompleteSuggestionDTO> entries = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<String>> keysByItem = new ConcurrentHashMap<>();
+        // ConcurrentSkipListMap.size() walks the whole map, so the count is kept separately
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile long lastAccess = System.nanoTime();
+        private volatile boolean oversized;
+        private volatile long oversizedAt;
+
+        void add(String type, Long id, String label) {
+            String normalized = normalize(label);
+            if (oversized || normalized.isEmpty()) {
+                return;
+            }
+            String item = type + ":" + id;
+            AutocompleteSuggestionDTO suggestion = new AutocompleteSuggestionDTO(type, id, label.trim());
+            Set<String> keys = keysByItem.computeIfAbsent(item, key -> new HashSet<>());
+            // One entry per word start
+            for (int i = 0; i < normalized.length(); i++) {
+                if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                    String key = normalized.substring(i) + '\0' + item + ":" + normalized;
+                    if (entries.put(key, suggestion) == null) {
+                        size.incrementAndGet();
+                    }
+                    keys.add(key);
+                }
+            }
+        }
+
+        void remove(String type, Long id) {
+            Set<String> keys = keysByItem.remove(type + ":" + id);
+            if (keys != null) {
+                keys.forEach(key -> {
+                    if (entries.remove(key) != null) {
+                        size.decrementAndGet();
+                    }
+                });
+            }
+        }
+
+        List<AutocompleteSuggestionDTO> suggest(String prefix, int limit) {
+            Set<String> seen = new LinkedHashSet<>();
+            List<AutocompleteSuggestionDTO> results = new ArrayList<>(limit);
+            for (AutocompleteSuggestionDTO suggestion :
+                    entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                // An item matches once per label even when several of its words do
+                if (seen.add(suggestion.getType() + ":" + suggestion.getId() + ":" + suggestion.getLabel())) {
+                    results.add(suggestion);
+                    if (results.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        }
+
+        // Once over the limit the entries are dropped for good; the branch is rebuilt from
+        // scratch when it is evicted, invalidated by an import or due for a recheck
+        void checkSize(int maxEntries) {
+            if (size.get() > maxEntries) {
+                oversizedAt = System.nanoTime();
+                oversized = true;
+                entries.clear();
+                keysByItem.clear();
+                size.set(0);
+            }
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+}
@@ -1,16 +1,30 @@
 package com.pharmacyInventory.inventory.services;
 
-import com.pharmacyInventory.inventory.model.Medications;
+import com.pharmacyInventory.inventory.dtos.bulk.PriceUpdateDTO;
+import com.pharmacyInventory.inventory.dtos.bulk.StockAdjustmentDTO;
+import com.pharmacyInventory.inventory.events.MedicationsChangedEvent;
+import com.pharmacyInventory.inventory.events.StockMovedEvent;
+import com.pharmacyInventory.inventory.repository.EquivalentsRepository;
+import com.pharmacyInventory.inventory.repository.MedicationsBatchRepository;
 import com.pharmacyInventory.inventory.repository.MedicationsRepository;
+import com.pharmacyInventory.inventory.repository.StockRepository;
+import com.pharmacyInventory.inventory.repository.TransfersRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +32,16 @@ import java.util.Map;
 public class BulkOperationsService {
 
     private final MedicationsRepository medicationsRepository;
+    private final MedicationsBatchRepository medicationsBatchRepository;
+    private final TransfersRepository transfersRepository;
+    private final EquivalentsRepository equivalentsRepository;
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLedgerService stockLedgerService;
+
+    @Value("${bulk.chunk-size:500}")
+    private int chunkSize;
 
     public Map<String, Object> bulkDeleteMedications(List<Long> medicationIds) {
         log.info("Starting bulk delete for {} medications", medicationIds.size());
@@ -25,25 +49,52 @@ public class BulkOperationsService {
         int successCount = 0;
         int failureCount = 0;
         List<String> errors = new ArrayList<>();
+        List<Long> changedIds = new ArrayList<>();
         
-        for (Long medicationId : medicationIds) {
-            try {
-                if (medicationsRepository.existsById(medicationId)) {
-                    medicationsRepository.deleteById(medicationId);
-                    successCount++;
-                    log.debug("Successfully deleted medication with id: {}", medicationId);
-                } else {
-                    failureCount++;
-                    errors.add("Medication not found with id: " + medicationId);
-                    log.warn("Medication not found for deletion: {}", medicationId);
+        for (int from = 0; from < medicationIds.size(); from += chunkSize) {
+            List<Long> chunk = medicationIds.subList(from, Math.min(from + chunkSize, medicationIds.size()));
+            Set<Long> existingIds = medicationsRepository.findExistingIds(chunk);
+
+            // Duplicate ids in the request are reported as not found after their first occurrence,
+            // as they were when each id was deleted on its own
+            Set<Long> toDelete = new LinkedHashSet<>();
+            for (Long medicationId : chunk) {
+                if (existingIds.contains(medicationId) && toDelete.add(medicationId)) {
+                    continue;
                 }
-            } catch (Exception e) {
                 failureCount++;
-                errors.add("Failed to delete medication with id " + medicationId + ": " + e.getMessage());
-                log.error("Error deleting medication with id: {}", medicationId, e);
+                errors.add("Medication not found with id: " + medicationId);
+                log.warn("Medication not found for deletion: {}", medicationId);
+            }
+            if (toDelete.isEmpty()) {
+                continue;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> deleteWithChildren(toDelete));
+                changedIds.addAll(toDelete);
+                successCount += toDelete.size();
+                log.debug("Deleted {} medications in chunk starting at {}", toDelete.size(), from);
+            } catch (Exception e) {
+                // Something in the chunk is still referenced elsewhere; retry one by one
+                // so only the offending ids are reported
+                log.warn("Chunk delete starting at {} failed, retrying individually: {}", from, e.getMessage());
+                for (Long medicationId : toDelete) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> deleteWithChildren(List.of(medicationId)));
+                        changedIds.add(medicationId);
+                        successCount++;
+                    } catch (Exception ex) {
+                        failureCount++;
+                        errors.add("Failed to delete medication with id " + medicationId + ": " + ex.getMessage());
+                        log.error("Error deleting medication with id: {}", medicationId, ex);
+                    }
+                }
             }
         }
         
+        publishChanges(changedIds);
+
         Map<String, Object> result = new HashMap<>();
         result.put("successCount", successCount);
         result.put("failureCount", failureCount);
@@ -60,29 +111,68 @@ public class BulkOperationsService {
         int successCount = 0;
         int failureCount = 0;
         List<String> errors = new ArrayList<>();
-        
+        List<Long> changedIds = new ArrayList<>();
+
+        // Parse the whole payload up front so malformed lines are reported without touching the database
+        List<PriceUpdateDTO> updates = new ArrayList<>();
         for (Map<String, Object> update : priceUpdates) {
             try {
-                Long medicationId = Long.valueOf(update.get("medicationId").toString());
-                Double newPrice = Double.valueOf(update.get("newPrice").toString());
-                
-                Medications medication = medicationsRepository.findById(medicationId)
-                        .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
-                
-                medication.setPrice(newPrice.floatValue());
-                medication.setUpdatedAt(LocalDateTime.now());
-                
-                medicationsRepository.save(medication);
-                successCount++;
-                log.debug("Successfully updated price for medication with id: {}", medicationId);
-                
+                updates.add(PriceUpdateDTO.builder()
+                        .medicationId(Long.valueOf(update.get("medicationId").toString()))
+                        .newPrice(Double.valueOf(update.get("newPrice").toString()))
+                        .build());
             } catch (Exception e) {
                 failureCount++;
-                errors.add("Failed to update price: " + e.getMessage());
-                log.error("Error updating price", e);
+                errors.add("Failed to update price: invalid entry " + update);
+                log.warn("Skipping invalid price update entry: {}", update);
+            }
+        }
+
+        for (int from = 0; from < updates.size(); from += chunkSize) {
+            List<PriceUpdateDTO> chunk = updates.subList(from, Math.min(from + chunkSize, updates.size()));
+            try {
+                Set<Long> existingIds = medicationsRepository.findExistingIds(
+                        chunk.stream().map(PriceUpdateDTO::getMedicationId).collect(Collectors.toSet()));
+
+                List<PriceUpdateDTO> found = new ArrayList<>();
+                for (PriceUpdateDTO update : chunk) {
+                    if (existingIds.contains(update.getMedicationId())) {
+                        found.add(update);
+                    } else {
+                        failureCount++;
+                        errors.add("Failed to update price: Medication not found with id: " + update.getMedicationId());
+                    }
+                }
+                if (found.isEmpty()) {
+                    continue;
+                }
+
+                // One transaction and one batched statement per chunk
+                int[] updated = transactionTemplate.execute(status ->
+                        medicationsBatchRepository.updatePrices(found, LocalDateTime.now()));
+                for (int i = 0; i < found.size(); i++) {
+                    Long medicationId = found.get(i).getMedicationId();
+                    if (updated[i] == 0) {
+                        // Deleted between the lookup and the update
+                        failureCount++;
+                        errors.add("Failed to update price: Medication not found with id: " + medicationId);
+                    } else {
+                        changedIds.add(medicationId);
+                        successCount++;
+                    }
+                }
+                log.debug("Updated prices for {} medications in chunk starting at {}", found.size(), from);
+
+            } catch (Exception e) {
+                failureCount += chunk.size();
+                errors.add("Failed to update prices for " + chunk.size() + " medications starting at entry "
+                        + (from + 1) + ": " + e.getMessage());
+                log.error("Error updating price chunk starting at {}", from, e);
             }
         }
         
+        publishChanges(changedIds);
+
         Map<String, Object> result = new HashMap<>();
         result.put("successCount", successCount);
         result.put("failureCount", failureCount);
@@ -99,38 +189,70 @@ public class BulkOperationsService {
         int successCount = 0;
         int failureCount = 0;
         List<String> errors = new ArrayList<>();
-        
+        List<Long> changedIds = new ArrayList<>();
+
+        List<StockAdjustmentDTO> adjustments = new ArrayList<>();
         for (Map<String, Object> adjustment : stockAdjustments) {
             try {
-                Long medicationId = Long.valueOf(adjustment.get("medicationId").toString());
-                Integer quantityAdjustment = Integer.valueOf(adjustment.get("quantityAdjustment").toString());
-                String reason = adjustment.containsKey("reason") ? adjustment.get("reason").toString() : "Bulk adjustment";
-                
-                Medications medication = medicationsRepository.findById(medicationId)
-                        .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
-                
-                Integer currentStock = medication.getStockQuantity() != null ? medication.getStockQuantity() : 0;
-                Integer newStock = currentStock + quantityAdjustment;
-                
-                if (newStock < 0) {
-                    throw new RuntimeException("Stock cannot be negative. Current: " + currentStock + ", Adjustment: " + quantityAdjustment);
-                }
-                
-                medication.setStockQuantity(newStock);
-                medication.setUpdatedAt(LocalDateTime.now());
-                
-                medicationsRepository.save(medication);
-                successCount++;
-                log.debug("Successfully adjusted stock for medication with id: {} from {} to {}", 
-                         medicationId, currentStock, newStock);
-                
+                adjustments.add(StockAdjustmentDTO.builder()
+                        .medicationId(Long.valueOf(adjustment.get("medicationId").toString()))
+                        .quantityAdjustment(Integer.valueOf(adjustment.get("quantityAdjustment").toString()))
+                        .reason(adjustment.containsKey("reason") ? adjustment.get("reason").toString() : "Bulk adjustment")
+                        .build());
             } catch (Exception e) {
                 failureCount++;
-                errors.add("Failed to adjust stock: " + e.getMessage());
-                log.error("Error adjusting stock", e);
+                errors.add("Failed to adjust stock: invalid entry " + adjustment);
+                log.warn("Skipping invalid stock adjustment entry: {}", adjustment);
+            }
+        }
+
+        for (int from = 0; from < adjustments.size(); from += chunkSize) {
+            List<StockAdjustmentDTO> chunk = adjustments.subList(from, Math.min(from + chunkSize, adjustments.size()));
+            try {
+                Set<Long> existingIds = medicationsRepository.findExistingIds(
+                        chunk.stream().map(StockAdjustmentDTO::getMedicationId).collect(Collectors.toSet()));
+
+                List<StockAdjustmentDTO> found = new ArrayList<>();
+                for (StockAdjustmentDTO adjustment : chunk) {
+                    if (existingIds.contains(adjustment.getMedicationId())) {
+                        found.add(adjustment);
+                    } else {
+                        failureCount++;
+                        errors.add("Failed to adjust stock: Medication not found with id: " + adjustment.getMedicationId());
+                    }
+                }
+                if (found.isEmpty()) {
+                    continue;
+                }
+
+                // Each line is a stock ledger movement with the stock check in its INSERT, so
+                // lines are applied in order and a rejected line never blocks the rest of the chunk
+                int[] updated = stockLedgerService.adjust(found);
+                for (int i = 0; i < found.size(); i++) {
+                    StockAdjustmentDTO adjustment = found.get(i);
+                    if (updated[i] == 0) {
+                        failureCount++;
+                        errors.add("Failed to adjust stock: Stock cannot be negative for medication with id: "
+                                + adjustment.getMedicationId() + ", Adjustment: " + adjustment.getQuantityAdjustment());
+                    } else {
+                        changedIds.add(adjustment.getMedicationId());
+                        successCount++;
+                    }
+                }
+                log.debug("Adjusted stock for {} medications in chunk starting at {}", found.size(), from);
+
+            } catch (Exception e) {
+                failureCount += chunk.size();
+                errors.add("Failed to adjust stock for " + chunk.size() + " medications starting at entry "
+                        + (from + 1) + ": " + e.getMessage());
+                log.error("Error adjusting stock chunk starting at {}", from, e);
             }
         }
         
+        if (!changedIds.isEmpty()) {
+            eventPublisher.publishEvent(new StockMovedEvent(null, changedIds));
+        }
+
         Map<String, Object> result = new HashMap<>();
         result.put("successCount", successCount);
         result.put("failureCount", failureCount);
@@ -140,4 +262,18 @@ public class BulkOperationsService {
         log.info("Bulk stock adjustment completed. Success: {}, Failures: {}", successCount, failureCount);
         return result;
     }
+
+    // Same rows the CascadeType.ALL collections on Medications would remove, one statement per table
+    private void deleteWithChildren(Collection<Long> medicationIds) {
+        transfersRepository.deleteByMedicationIds(medicationIds);
+        equivalentsRepository.deleteByOriginalMedicationIds(medicationIds);
+        stockRepository.deleteByMedicationIds(medicationIds);
+        medicationsRepository.deleteByMedicationIds(medicationIds);
+    }
+
+    private void publishChanges(List<Long> changedIds) {
+        if (!changedIds.isEmpty()) {
+            eventPublisher.publishEvent(new MedicationsChangedEvent(null, changedIds));
+        }
+    }
 }
@@ -2,12 +2,16 @@ package com.pharmacyInventory.inventory.services;
 
 import com.pharmacyInventory.inventory.Enum.CategoryType;
 import com.pharmacyInventory.inventory.dtos.categories.CategoriesDTO;
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
 import com.pharmacyInventory.inventory.mapper.CategoriesMapper;
 import com.pharmacyInventory.inventory.model.Categories;
 import com.pharmacyInventory.inventory.repository.CategoriesRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,6 +30,21 @@ public class CategoriesService {
         return categoriesMapper.toCategoriesDTO(categories);
     }
 
+    // Keyset-paginated listing; sort is "id" (default) or "name"
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CategoriesDTO> listCategories(String branchId, String cursor, String sort, Integer size) {
+        log.info("Listing categories for branch: {} (sort: {}, size: {})", branchId, sort, size);
+        KeysetCursor position = KeysetCursor.decode(cursor, sort);
+        int pageSize = KeysetCursor.pageSize(size);
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Categories> rows = position.sort() == KeysetCursor.Sort.NAME
+                ? categoriesRepository.findPageAfterName(branchId, position.lastValue(), position.lastId(), limit)
+                : categoriesRepository.findPageAfterId(branchId, position.lastId(), limit);
+        return KeysetCursor.page(rows, pageSize, position.sort(), Categories::getId, Categories::getName,
+                categoriesMapper::toCategoriesDTO);
+    }
+
     public List<CategoriesDTO> getAllForms(String branchId) {
         log.info("Fetching all forms");
         List<Categories> forms = categoriesRepository.findByType(CategoryType.FORM, branchId);
@@ -1,19 +1,34 @@
 package com.pharmacyInventory.inventory.services;
 
+import com.pharmacyInventory.inventory.config.ServiceCredentials;
+import com.pharmacyInventory.inventory.dtos.dashboard.PeriodTotalDTO;
 import com.pharmacyInventory.inventory.feign.PurchaseServiceClient;
 import com.pharmacyInventory.inventory.feign.SalesServiceClient;
 import com.pharmacyInventory.inventory.model.Medications;
 import com.pharmacyInventory.inventory.repository.MedicationsRepository;
+import com.pharmacyInventory.inventory.repository.projection.MedicationMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,127 +37,256 @@ import java.util.stream.Collectors;
 public class DashboardService {
 
     private final MedicationsRepository medicationsRepository;
+    private final StockLedgerService stockLedgerService;
     private final SalesServiceClient salesServiceClient;
     private final PurchaseServiceClient purchaseServiceClient;
+    private final DashboardSnapshotCache snapshotCache;
+    private final ServiceCredentials serviceCredentials;
 
-                              
+    @Qualifier("dashboardExecutor")
+    private final Executor dashboardExecutor;
+
+    @Value("${dashboard.section-timeout-ms:5000}")
+    private long sectionTimeoutMs;
+
+    @Value("${dashboard.snapshot.remote-refresh-ms:30000}")
+    private long remoteRefreshMs;
+
+    public Map<String, Object> getDashboardStats(String branchId) {
+        log.info("Calculating dashboard statistics for branch: {}", branchId);
 
-    public Map<String, Object> getDashboardStats() {
-        log.info("Calculating dashboard statistics");
-        
         Map<String, Object> response = new HashMap<>();
         Map<String, Object> data = new HashMap<>();
-        
+
         try {
-            LocalDate today = LocalDate.now();            
-            // 1. Basic Metrics
-            calculateBasicMetrics(data);
-            
-            // 2. Sales vs Purchases Trend (Last 12 months)
-            calculateSalesPurchasesTrend(data, today);
-            
-            // 3. Revenue by Payment Method
-            calculateRevenueByPaymentMethod(data);
-            
-            // 4. Top 10 Selling Medications
-            calculateTopSellingMedications(data);
-            
-            // 5. Stock Level Distribution
-            calculateStockLevelDistribution(data);
-            
-            // 6. Expiry Forecast
-            calculateExpiryForecast(data, today);
-            
+            LocalDate today = LocalDate.now();
+
+            // Every section is independent, so they all run at once and the
+            // dashboard takes about as long as the slowest one. Sections already
+            // held in the snapshot cache complete immediately.
+            Map<String, CompletableFuture<SectionResult>> sections = new LinkedHashMap<>();
+
+            // 1. Inventory metrics, stock level distribution and expiry forecast
+            sections.put("inventory", inventorySection(branchId, today));
+
+            // 2-5. Sales and purchase sections served by the remote services
+            remoteSections(today).forEach((name, section) -> sections.put(name, remoteSection(name, section)));
+
+            List<String> failedSections = new ArrayList<>();
+            sections.forEach((name, section) -> {
+                SectionResult result = section.join();
+                if (result.error() != null) {
+                    log.warn("Dashboard section '{}' degraded: {}", name, describe(result.error()));
+                    failedSections.add(name);
+                }
+                data.putAll(result.values());
+            });
+
             response.put("success", true);
+            response.put("partial", !failedSections.isEmpty());
+            response.put("failedSections", failedSections);
             response.put("data", data);
-            
+
             log.info("Dashboard statistics calculated successfully");
-            
+
         } catch (Exception e) {
             log.error("Error calculating dashboard statistics", e);
             response.put("success", false);
             response.put("message", "Failed to calculate dashboard statistics: " + e.getMessage());
         }
-        
+
         return response;
     }
-    
-    private void calculateBasicMetrics(Map<String, Object> data) {
+
+    // Keeps the cached remote sections warm while someone is looking at the dashboard,
+    // so polling terminals never wait on the sales service. There is no caller to take an
+    // Authorization header from here, so this needs the service credential.
+    @Scheduled(fixedDelayString = "${dashboard.snapshot.remote-refresh-ms:30000}")
+    public void refreshRemoteSections() {
+        if (!serviceCredentials.isConfigured() || !snapshotCache.accessedWithin(Duration.ofMinutes(5))) {
+            return;
+        }
+        remoteSections(LocalDate.now()).forEach((name, section) -> {
+            SectionResult result = runSection(section.calculation(), section.fallback()).join();
+            if (result.error() == null) {
+                snapshotCache.putRemote(name, result.values());
+            } else {
+                log.warn("Background refresh of dashboard section '{}' failed: {}", name, describe(result.error()));
+            }
+        });
+    }
+
+    private CompletableFuture<SectionResult> inventorySection(String branchId, LocalDate today) {
+        Optional<Map<String, Object>> cached = snapshotCache.getInventory(branchId);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(new SectionResult(cached.get(), null));
+        }
+        long generation = snapshotCache.currentGeneration();
+        return runSection(() -> calculateInventoryMetrics(branchId, today), Map.of())
+                .thenApply(result -> {
+                    if (result.error() == null) {
+                        snapshotCache.putInventory(branchId, result.values(), generation);
+                    }
+                    return result;
+                });
+    }
+
+    private CompletableFuture<SectionResult> remoteSection(String name, RemoteSection section) {
+        // Without the background refresh, requests refresh the sections themselves, with
+        // the caller's credentials, once they are a refresh interval old
+        Optional<Map<String, Object>> cached = serviceCredentials.isConfigured()
+                ? snapshotCache.getRemote(name)
+                : snapshotCache.getRemote(name, remoteRefreshMs);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(new SectionResult(cached.get(), null));
+        }
+        return runSection(section.calculation(), section.fallback())
+                .thenApply(result -> {
+                    if (result.error() == null) {
+                        snapshotCache.putRemote(name, result.values());
+                    }
+                    return result;
+                });
+    }
+
+    private Map<String, RemoteSection> remoteSections(LocalDate today) {
+        Map<String, RemoteSection> sections = new LinkedHashMap<>();
+
+        // 2. Total sales and purchases
+        sections.put("totals", new RemoteSection(this::calculateTotals, Map.of()));
+
+        // 3. Sales vs Purchases Trend (Last 12 months)
+        sections.put("monthlyTrend", new RemoteSection(() -> calculateSalesPurchasesTrend(today),
+                Map.of("monthlyTrend", List.of())));
+
+        // 4. Revenue by Payment Method
+        sections.put("paymentMethods", new RemoteSection(this::calculateRevenueByPaymentMethod,
+                Map.of("paymentMethods", Map.of(), "revenueByPaymentMethod", List.of())));
+
+        // 5. Top 10 Selling Medications
+        sections.put("topSellingMedications", new RemoteSection(this::calculateTopSellingMedications,
+                Map.of("topSellingMedications", List.of())));
+        return sections;
+    }
+
+    // Runs a section on the dashboard executor with its own deadline; a failed or
+    // timed-out section completes with its fallback values instead of failing the dashboard
+    private CompletableFuture<SectionResult> runSection(Supplier<Map<String, Object>> section, Map<String, Object> fallback) {
+        return CompletableFuture.supplyAsync(section, dashboardExecutor)
+                .orTimeout(sectionTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((values, error) -> error == null
+                        ? new SectionResult(values, null)
+                        : new SectionResult(fallback, error));
+    }
+
+    private String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return "timed out after " + sectionTimeoutMs + " ms";
+        }
+        return cause.getMessage();
+    }
+
+    private record SectionResult(Map<String, Object> values, Throwable error) { }
+
+    private record RemoteSection(Supplier<Map<String, Object>> calculation, Map<String, Object> fallback) { }
+
+    private Map<String, Object> calculateInventoryMetrics(String branchId, LocalDate today) {
+        Map<String, Object> data = new HashMap<>();
+
+        // All inventory metrics come from one aggregate query
+        MedicationMetrics metrics = medicationsRepository.aggregateDashboardMetrics(
+                branchId, today, today.plusDays(30), today.plusDays(60), today.plusDays(90));
+
+        calculateBasicMetrics(data, metrics);
+        calculateStockLevelDistribution(data, metrics);
+        calculateExpiryForecast(data, metrics, branchId, today);
+        return data;
+    }
+
+    private Map<String, Object> calculateTotals() {
+        Map<String, Object> data = new HashMap<>();
+
         // Total Sales (sum of all sales)
         double totalSales = salesServiceClient.getTotalSales();
         data.put("totalSales", roundToTwoDecimalPlaces(totalSales));
-        
+
         // Total Purchases (sum of all purchases)
         double totalPurchases = purchaseServiceClient.getTotalPurchases();
         data.put("totalPurchases", roundToTwoDecimalPlaces(totalPurchases));
-        
+        return data;
+    }
+
+    private void calculateBasicMetrics(Map<String, Object> data, MedicationMetrics metrics) {
         // Stock Value (sum of (quantity * price) for all medications)
-        double stockValue = medicationsRepository.findAll().stream()
-                .mapToDouble(med -> {
-                    double price = med.getPrice() != null ? med.getPrice() : 0.0;
-                    int quantity = med.getStockQuantity() != null ? med.getStockQuantity() : 0;
-                    return price * quantity;
-                })
-                .sum();
-        data.put("stockValue", roundToTwoDecimalPlaces(stockValue));
-        
+        data.put("stockValue", roundToTwoDecimalPlaces(metrics.getStockValue()));
+
         // Expiry Loss (sum of value of expired medications)
-        double expiryLoss = medicationsRepository.findAll().stream()
-                .filter(med -> med.getExpiryDate() != null && med.getExpiryDate().isBefore(LocalDate.now()))
-                .mapToDouble(med -> {
-                    double price = med.getPrice() != null ? med.getPrice() : 0.0;
-                    int quantity = med.getStockQuantity() != null ? med.getStockQuantity() : 0;
-                    return price * quantity;
-                })
-                .sum();
-        data.put("expiryLoss", roundToTwoDecimalPlaces(expiryLoss));
-        
+        data.put("expiryLoss", roundToTwoDecimalPlaces(metrics.getExpiryLoss()));
+
         // Low Stock Items (items below reorder level)
-        long lowStockItems = medicationsRepository.findAll().stream()
-                .filter(med -> med.getStockQuantity() != null && med.getReorderLevel() != null)
-                .filter(med -> med.getStockQuantity() <= med.getReorderLevel())
-                .count();
-        data.put("lowStockItems", lowStockItems);
-        
+        data.put("lowStockItems", metrics.getLowStockItems());
+
         // Expiring Items (within 30 days)
-        LocalDate thirtyDaysFromNow = LocalDate.now().plusDays(30);
-        long expiringItems = medicationsRepository.findAll().stream()
-                .filter(med -> med.getExpiryDate() != null)
-                .filter(med -> (med.getExpiryDate().isAfter(LocalDate.now()) || med.getExpiryDate().isEqual(LocalDate.now())) 
-                        && (med.getExpiryDate().isBefore(thirtyDaysFromNow) || med.getExpiryDate().isEqual(thirtyDaysFromNow)))
-                .count();
-        data.put("expiringItems", expiringItems);
+        data.put("expiringItems", metrics.getExpiringIn30Days());
     }
-    
-    private void calculateSalesPurchasesTrend(Map<String, Object> data, LocalDate today) {
-        List<Map<String, Object>> monthlyTrend = new ArrayList<>();
-        
-        // Get data for the last 12 months
+
+    private Map<String, Object> calculateSalesPurchasesTrend(LocalDate today) {
+        // Build the buckets for the last 12 months once and send them to each service in a single call
+        List<PeriodTotalDTO> periods = new ArrayList<>();
         for (int i = 11; i >= 0; i--) {
             LocalDate startDate = today.minusMonths(i).withDayOfMonth(1);
             LocalDate endDate = today.minusMonths(i-1).withDayOfMonth(1).minusDays(1);
-            
-            LocalDateTime startDateTime = startDate.atStartOfDay();
-            LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
-            
-            // Calculate monthly sales
-            double monthlySales = salesServiceClient.getTotalSalesByDateRange(startDateTime, endDateTime);
-            
-            // Calculate monthly purchases
-            double monthlyPurchases = purchaseServiceClient.getTotalPurchasesByDateRange(startDateTime, endDateTime);
-            
+
+            periods.add(PeriodTotalDTO.builder()
+                    .period(startDate.getMonth().toString() + " " + startDate.getYear())
+                    .startDate(startDate.atStartOfDay())
+                    .endDate(endDate.atTime(23, 59, 59))
+                    .build());
+        }
+
+        // Calculate monthly sales
+        Map<String, Double> monthlySales = fetchPeriodTotals(periods,
+                salesServiceClient::getTotalSalesByDateRanges,
+                salesServiceClient::getTotalSalesByDateRange);
+
+        // Calculate monthly purchases
+        Map<String, Double> monthlyPurchases = fetchPeriodTotals(periods,
+                purchaseServiceClient::getTotalPurchasesByDateRanges,
+                purchaseServiceClient::getTotalPurchasesByDateRange);
+
+        List<Map<String, Object>> monthlyTrend = new ArrayList<>();
+        for (PeriodTotalDTO period : periods) {
             Map<String, Object> monthlyData = new HashMap<>();
-            monthlyData.put("month", startDate.getMonth().toString() + " " + startDate.getYear());
-            monthlyData.put("sales", roundToTwoDecimalPlaces(monthlySales));
-            monthlyData.put("purchases", roundToTwoDecimalPlaces(monthlyPurchases));
+            monthlyData.put("month", period.getPeriod());
+            monthlyData.put("sales", roundToTwoDecimalPlaces(monthlySales.getOrDefault(period.getPeriod(), 0.0)));
+            monthlyData.put("purchases", roundToTwoDecimalPlaces(monthlyPurchases.getOrDefault(period.getPeriod(), 0.0)));
             monthlyTrend.add(monthlyData);
         }
-        data.put("monthlyTrend", monthlyTrend);
+        return Map.of("monthlyTrend", monthlyTrend);
     }
-    
+
+    // Uses the batch endpoint, falling back to one call per period while the remote service doesn't expose it yet
+    private Map<String, Double> fetchPeriodTotals(List<PeriodTotalDTO> periods,
+                                                  Function<List<PeriodTotalDTO>, List<PeriodTotalDTO>> batchCall,
+                                                  BiFunction<LocalDateTime, LocalDateTime, Double> singleCall) {
+        Map<String, Double> totals = new HashMap<>();
+        try {
+            for (PeriodTotalDTO result : batchCall.apply(periods)) {
+                totals.put(result.getPeriod(), result.getTotal() != null ? result.getTotal() : 0.0);
+            }
+        } catch (Exception e) {
+            log.warn("Batch period totals unavailable, falling back to per-period calls: {}", e.getMessage());
+            for (PeriodTotalDTO period : periods) {
+                totals.put(period.getPeriod(), singleCall.apply(period.getStartDate(), period.getEndDate()));
+            }
+        }
+        return totals;
+    }
+
     // private void calculateRevenueByPaymentMethod(Map<String, Object> data) {
     //     Map<String, Double> revenueByPaymentMethod = new HashMap<>();
-        
+
     //     salesServiceClient.getPaymentMethodBreakdown().forEach(sale -> {
     //         if (sale.getPaymentMethod() != null) {
     //             String method = sale.getPaymentMethod().toString();
@@ -151,32 +295,28 @@ public class DashboardService {
     //         }
     //     });
 
-    private void calculateRevenueByPaymentMethod(Map<String, Object> data) {
-        try {
-            // Get the payment method breakdown from the sales service
-            Map<String, Double> paymentMethodBreakdown = salesServiceClient.getPaymentMethodBreakdown();
-            
-            // Convert the map to a list of maps for better JSON structure
-            List<Map<String, Object>> paymentMethodData = paymentMethodBreakdown.entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("method", entry.getKey());
-                        item.put("amount", roundToTwoDecimalPlaces(entry.getValue()));
-                        return item;
-                    })
-                    .collect(Collectors.toList());
-            
-            // Add both the raw breakdown and formatted data to the response
-            data.put("paymentMethods", paymentMethodBreakdown);
-            data.put("revenueByPaymentMethod", paymentMethodData);
-            
-        } catch (Exception e) {
-            log.error("Error fetching payment method breakdown: {}", e.getMessage(), e);
-            data.put("paymentMethods", Map.of());
-            data.put("revenueByPaymentMethod", List.of());
-        }
+    private Map<String, Object> calculateRevenueByPaymentMethod() {
+        Map<String, Object> data = new HashMap<>();
+
+        // Get the payment method breakdown from the sales service
+        Map<String, Double> paymentMethodBreakdown = salesServiceClient.getPaymentMethodBreakdown();
+
+        // Convert the map to a list of maps for better JSON structure
+        List<Map<String, Object>> paymentMethodData = paymentMethodBreakdown.entrySet().stream()
+                .map(entry -> {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("method", entry.getKey());
+                    item.put("amount", roundToTwoDecimalPlaces(entry.getValue()));
+                    return item;
+                })
+                .collect(Collectors.toList());
+
+        // Add both the raw breakdown and formatted data to the response
+        data.put("paymentMethods", paymentMethodBreakdown);
+        data.put("revenueByPaymentMethod", paymentMethodData);
+        return data;
     }
-    
+
     // private void calculateTopSellingMedications(Map<String, Object> data) {
     //     // This is a simplified version - in a real app, you'd want to query SaleItem for accurate data
     //     List<Map<String, Object>> topSelling = medicationsRepository.findAll().stream()
@@ -186,7 +326,7 @@ public class DashboardService {
     //                         .filter(Objects::nonNull)
     //                         .mapToDouble(item -> item.getQuantity() * item.getUnitPrice())
     //                         .sum() : 0.0;
-                    
+
     //                 Map<String, Object> item = new HashMap<>();
     //                 item.put("id", med.getMedicationId());
     //                 item.put("name", med.getName());
@@ -197,103 +337,67 @@ public class DashboardService {
     //             .sorted((a, b) -> Double.compare((Double)b.get("totalSold"), (Double)a.get("totalSold")))
     //             .limit(10)
     //             .collect(Collectors.toList());
-                
+
     //     data.put("topSellingMedications", topSelling);
     // }
 
-    private void calculateTopSellingMedications(Map<String, Object> data) {
-        try {
-            // This will be implemented in the sales service
-            List<Map<String, Object>> topSelling = salesServiceClient.getTopSellingMedications(10);
-            
-            // Process the response to ensure consistent format
-            List<Map<String, Object>> processedTopSelling = topSelling.stream()
-                .map(med -> {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("id", med.get("id"));
-                    item.put("name", med.get("name"));
-                    item.put("totalSold", roundToTwoDecimalPlaces((Double) med.get("totalSold")));
-                    item.put("stockQuantity", med.get("stockQuantity"));
-                    return item;
-                })
-                .collect(Collectors.toList());
-                
-            data.put("topSellingMedications", processedTopSelling);
-        } catch (Exception e) {
-            log.error("Error fetching top selling medications: {}", e.getMessage(), e);
-            data.put("topSellingMedications", List.of());
-        }
+    private Map<String, Object> calculateTopSellingMedications() {
+        // This will be implemented in the sales service
+        List<Map<String, Object>> topSelling = salesServiceClient.getTopSellingMedications(10);
+
+        // Process the response to ensure consistent format
+        List<Map<String, Object>> processedTopSelling = topSelling.stream()
+            .map(med -> {
+                Map<String, Object> item = new HashMap<>();
+                item.put("id", med.get("id"));
+                item.put("name", med.get("name"));
+                item.put("totalSold", roundToTwoDecimalPlaces((Double) med.get("totalSold")));
+                item.put("stockQuantity", med.get("stockQuantity"));
+                return item;
+            })
+            .collect(Collectors.toList());
+
+        return Map.of("topSellingMedications", processedTopSelling);
     }
- 
-    private void calculateStockLevelDistribution(Map<String, Object> data) {
-        List<Medications> allMedications = medicationsRepository.findAll();
-        
+
+    private void calculateStockLevelDistribution(Map<String, Object> data, MedicationMetrics metrics) {
         Map<String, Object> stockLevels = new HashMap<>();
-        
-        // Count medications by stock level
-        long outOfStock = allMedications.stream()
-                .filter(med -> med.getStockQuantity() != null && med.getStockQuantity() == 0)
-                .count();
-                
-        long lowStock = allMedications.stream()
-                .filter(med -> med.getStockQuantity() != null && med.getReorderLevel() != null)
-                .filter(med -> med.getStockQuantity() > 0 && med.getStockQuantity() <= med.getReorderLevel())
-                .count();
-                
-        long inStock = allMedications.stream()
-                .filter(med -> med.getStockQuantity() != null && med.getReorderLevel() != null)
-                .filter(med -> med.getStockQuantity() > med.getReorderLevel())
-                .count();
-        
-        stockLevels.put("outOfStock", outOfStock);
-        stockLevels.put("lowStock", lowStock);
-        stockLevels.put("inStock", inStock);
-        
+
+        stockLevels.put("outOfStock", metrics.getOutOfStock());
+        stockLevels.put("lowStock", metrics.getLowStock());
+        stockLevels.put("inStock", metrics.getInStock());
+
         data.put("stockLevelDistribution", stockLevels);
     }
-    
-    private void calculateExpiryForecast(Map<String, Object> data, LocalDate today) {
+
+    private void calculateExpiryForecast(Map<String, Object> data, MedicationMetrics metrics, String branchId, LocalDate today) {
         Map<String, Object> expiryForecast = new HashMap<>();
-        
-        // Count medications expiring in 30, 60, and 90 days
-        long expiringIn30Days = countExpiringMedications(today, 30);
-        long expiringIn60Days = countExpiringMedications(today, 60);
-        long expiringIn90Days = countExpiringMedications(today, 90);
-        
-        // Get list of medications expiring soon
-        LocalDate endDate30 = today.plusDays(30);
-        List<Map<String, Object>> soonToExpire = medicationsRepository.findAll().stream()
-                .filter(med -> med.getExpiryDate() != null && 
-                        !med.getExpiryDate().isBefore(today) && 
-                        !med.getExpiryDate().isAfter(endDate30))
+
+        // Get list of medications expiring soon (already ordered by expiry date); the rows carry
+        // the snapshot, so the quantities on hand are looked up for the whole list
+        List<Medications> expiring = medicationsRepository.findExpiringByBranchId(branchId, today, today.plusDays(30));
+        Map<Long, Integer> onHand = stockLedgerService.quantitiesOnHand(
+                expiring.stream().map(Medications::getMedicationId).toList());
+        List<Map<String, Object>> soonToExpire = expiring.stream()
                 .map(med -> {
                     Map<String, Object> item = new HashMap<>();
                     item.put("id", med.getMedicationId());
                     item.put("name", med.getName());
                     item.put("expiryDate", med.getExpiryDate().toString());
                     item.put("daysToExpire", ChronoUnit.DAYS.between(today, med.getExpiryDate()));
-                    item.put("stockQuantity", med.getStockQuantity());
+                    item.put("stockQuantity", onHand.getOrDefault(med.getMedicationId(), med.getStockQuantity()));
                     return item;
                 })
-                .sorted(Comparator.comparing(item -> (Long)item.get("daysToExpire")))
                 .collect(Collectors.toList());
-        
-        expiryForecast.put("expiringIn30Days", expiringIn30Days);
-        expiryForecast.put("expiringIn60Days", expiringIn60Days);
-        expiryForecast.put("expiringIn90Days", expiringIn90Days);
+
+        expiryForecast.put("expiringIn30Days", metrics.getExpiringIn30Days());
+        expiryForecast.put("expiringIn60Days", metrics.getExpiringIn60Days());
+        expiryForecast.put("expiringIn90Days", metrics.getExpiringIn90Days());
         expiryForecast.put("soonToExpireList", soonToExpire);
-        
+
         data.put("expiryForecast", expiryForecast);
     }
-    
-    private long countExpiringMedications(LocalDate startDate, int days) {
-        LocalDate endDate = startDate.plusDays(days);
-        return medicationsRepository.findAll().stream()
-                .filter(med -> med.getExpiryDate() != null)
-                .filter(med -> !med.getExpiryDate().isBefore(startDate) && !med.getExpiryDate().isAfter(endDate))
-                .count();
-    }
-    
+
     private double roundToTwoDecimalPlaces(double value) {
         return BigDecimal.valueOf(value)
                 .setScale(2, RoundingMode.HALF_UP)
@@ -0,0 +1,148 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.events.MedicationsChangedEvent;
+import com.pharmacyInventory.inventory.events.StockMovedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds the last computed dashboard sections. Inventory sections are kept per branch and
+// dropped whenever medications change; remote (sales/purchase) sections are shared and
+// refreshed in the background by DashboardService.
+@Component
+@Slf4j
+public class DashboardSnapshotCache {
+
+    private static final String ALL_BRANCHES = "*";
+
+    private final Map<String, Snapshot> inventorySnapshots = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> remoteSnapshots = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private volatile Instant lastAccess = Instant.EPOCH;
+
+    @Value("${dashboard.snapshot.inventory-ttl-ms:60000}")
+    private long inventoryTtlMs;
+
+    @Value("${dashboard.snapshot.remote-max-age-ms:300000}")
+    private long remoteMaxAgeMs;
+
+    public DashboardSnapshotCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("dashboard.snapshot.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("dashboard.snapshot.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("dashboard.snapshot.hit.ratio", this, DashboardSnapshotCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("dashboard.snapshot.age", inventorySnapshots, DashboardSnapshotCache::oldestAgeSeconds)
+                .tag("section", "inventory").baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("dashboard.snapshot.age", remoteSnapshots, DashboardSnapshotCache::oldestAgeSeconds)
+                .tag("section", "remote").baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("dashboard.snapshot.size", inventorySnapshots, Map::size)
+                .tag("section", "inventory").register(meterRegistry);
+    }
+
+    // Taken before computing a section; a snapshot is only stored if nothing changed in between
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    public Optional<Map<String, Object>> getInventory(String branchId) {
+        lastAccess = Instant.now();
+        Snapshot snapshot = inventorySnapshots.get(key(branchId));
+        // Expiry buckets are relative to today, so a snapshot never outlives its day
+        boolean fresh = snapshot != null
+                && snapshot.day().equals(LocalDate.now())
+                && snapshot.age().toMillis() <= inventoryTtlMs;
+        return record(fresh ? snapshot : null);
+    }
+
+    public void putInventory(String branchId, Map<String, Object> values, long expectedGeneration) {
+        if (generation.get() == expectedGeneration) {
+            inventorySnapshots.put(key(branchId), new Snapshot(values, Instant.now(), LocalDate.now()));
+        }
+    }
+
+    public Optional<Map<String, Object>> getRemote(String section) {
+        return getRemote(section, remoteMaxAgeMs);
+    }
+
+    public Optional<Map<String, Object>> getRemote(String section, long maxAgeMs) {
+        lastAccess = Instant.now();
+        Snapshot snapshot = remoteSnapshots.get(section);
+        return record(snapshot != null && snapshot.age().toMillis() <= maxAgeMs ? snapshot : null);
+    }
+
+    public void putRemote(String section, Map<String, Object> values) {
+        remoteSnapshots.put(section, new Snapshot(values, Instant.now(), LocalDate.now()));
+    }
+
+    public boolean accessedWithin(Duration window) {
+        return lastAccess.isAfter(Instant.now().minus(window));
+    }
+
+    public void invalidate(String branchId) {
+        generation.incrementAndGet();
+        if (branchId == null) {
+            inventorySnapshots.clear();
+        } else {
+            inventorySnapshots.remove(branchId);
+            inventorySnapshots.remove(ALL_BRANCHES);
+        }
+    }
+
+    // After commit, so a section recomputed in the meantime cannot cache pre-commit numbers
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMedicationsChanged(MedicationsChangedEvent event) {
+        log.debug("Invalidating dashboard snapshot for branch: {}", event.branchId());
+        invalidate(event.branchId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockMoved(StockMovedEvent event) {
+        log.debug("Invalidating dashboard snapshot for branch: {} after stock movements", event.branchId());
+        invalidate(event.branchId());
+    }
+
+    private Optional<Map<String, Object>> record(Snapshot snapshot) {
+        if (snapshot == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(snapshot.values());
+    }
+
+    private String key(String branchId) {
+        return branchId != null ? branchId : ALL_BRANCHES;
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private static double oldestAgeSeconds(Map<String, Snapshot> snapshots) {
+        return snapshots.values().stream()
+                .mapToDouble(snapshot -> snapshot.age().toMillis() / 1000.0)
+                .max()
+                .orElse(0.0);
+    }
+
+    private record Snapshot(Map<String, Object> values, Instant builtAt, LocalDate day) {
+        Duration age() {
+            return Duration.between(builtAt, Instant.now());
+        }
+    }
+}
@@ -1,47 +1,65 @@
 package com.pharmacyInventory.inventory.services;
 
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
+import com.pharmacyInventory.inventory.dtos.common.ImportSummaryDTO;
 import com.pharmacyInventory.inventory.dtos.equivalents.EquivalentsDTO;
+import com.pharmacyInventory.inventory.events.EquivalentsChangedEvent;
 import com.pharmacyInventory.inventory.exception.ResourceNotFoundException;
 import com.pharmacyInventory.inventory.mapper.EquivalentsMapper;
 import com.pharmacyInventory.inventory.model.Brands;
 import com.pharmacyInventory.inventory.model.Equivalents;
 import com.pharmacyInventory.inventory.model.Medications;
+import com.pharmacyInventory.inventory.model.ReferenceSource;
 import com.pharmacyInventory.inventory.repository.BrandRepository;
+import com.pharmacyInventory.inventory.repository.EquivalentsBatchRepository;
+import com.pharmacyInventory.inventory.repository.EquivalentsBatchRepository.NewEquivalent;
 import com.pharmacyInventory.inventory.repository.EquivalentsRepository;
 import com.pharmacyInventory.inventory.repository.MedicationsRepository;
 import com.pharmacyInventory.inventory.repository.ReferenceSourceRepository;
+import com.pharmacyInventory.inventory.services.SpreadsheetStreamReader.SheetRow;
 
 import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStreamReader;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.Set;
 
 
 
@@ -56,13 +74,35 @@ public class EquivalentsService {
     private final EquivalentsMapper equivalentsMapper;
     private final ReferenceSourceRepository referenceSourceRepository;
     private final BrandRepository brandRepository;
+    private final SpreadsheetStreamReader spreadsheetStreamReader;
+    private final EntityManager entityManager;
+    private final EquivalentsBatchRepository equivalentsBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${inventory.import.chunk-size:1000}")
+    private int importChunkSize;
     
 
 
     public List<EquivalentsDTO> getAllEquivalentsByBranch(String branchId) {
         log.info("Fetching all equivalents by branch: {}", branchId);
-        List<Equivalents> equivalents = equivalentsRepository.findByBranchId(branchId);
-        return equivalentsMapper.toEquivalentsDTO(equivalents);
+        return equivalentsMapper.toEquivalentsDTOFromViews(equivalentsRepository.findViewsByBranchId(branchId));
+    }
+
+    // Keyset-paginated listing; sort is "id" (default) or "name"
+    @Transactional(readOnly = true)
+    public CursorPageDTO<EquivalentsDTO> listEquivalents(String branchId, String cursor, String sort, Integer size) {
+        log.info("Listing equivalents for branch: {} (sort: {}, size: {})", branchId, sort, size);
+        KeysetCursor position = KeysetCursor.decode(cursor, sort);
+        int pageSize = KeysetCursor.pageSize(size);
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Equivalents> rows = position.sort() == KeysetCursor.Sort.NAME
+                ? equivalentsRepository.findPageAfterName(branchId, position.lastValue(), position.lastId(), limit)
+                : equivalentsRepository.findPageAfterId(branchId, position.lastId(), limit);
+        return KeysetCursor.page(rows, pageSize, position.sort(), Equivalents::getId, Equivalents::getInn,
+                equivalentsMapper::toEquivalentsDTO);
     }
 
     public EquivalentsDTO getEquivalentById(Long id, String branchId) {
@@ -75,11 +115,11 @@ public class EquivalentsService {
     public List<EquivalentsDTO> getEquivalentsByMedicationId(Long medicationId) {
         log.info("Fetching equivalents for medication with id: {}", medicationId);
         
-        Medications medication = medicationsRepository.findById(medicationId)
-                .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
-        
-        List<Equivalents> equivalents = equivalentsRepository.findByOriginalMedication(medication);
-        return equivalentsMapper.toEquivalentsDTO(equivalents);
+        if (!medicationsRepository.existsById(medicationId)) {
+            throw new RuntimeException("Medication not found with id: " + medicationId);
+        }
+
+        return equivalentsMapper.toEquivalentsDTOFromViews(equivalentsRepository.findViewsByOriginalMedicationId(medicationId));
     }
 
     public EquivalentsDTO createEquivalent(EquivalentsDTO equivalentDTO, String branchId) {
@@ -106,6 +146,7 @@ public class EquivalentsService {
 
         Equivalents saved = equivalentsRepository.save(equivalent);
         log.info("Created equivalent with id: {} for branch: {}", saved.getId(), branchId);
+        eventPublisher.publishEvent(EquivalentsChangedEvent.of(branchId, saved.getId()));
         return equivalentsMapper.toEquivalentsDTO(saved);
     }
 
@@ -139,6 +180,7 @@ public class EquivalentsService {
         existing.setBranchId(branchId);
         Equivalents updated = equivalentsRepository.save(existing);
         log.info("Updated equivalent with id: {} for branch: {}", id, branchId);
+        eventPublisher.publishEvent(EquivalentsChangedEvent.of(branchId, id));
         return equivalentsMapper.toEquivalentsDTO(updated);
     }
 
@@ -151,6 +193,7 @@ public class EquivalentsService {
 
         equivalentsRepository.deleteByIdAndBranchId(id, branchId);
         log.info("Deleted equivalent with id: {} for branch: {}", id, branchId);
+        eventPublisher.publishEvent(EquivalentsChangedEvent.of(branchId, id));
     }
 
     public List<EquivalentsDTO> searchEquivalents(String query, String branchId) {
@@ -166,220 +209,230 @@ public class EquivalentsService {
     }
 
     //Import Equivalents from Excel and CSV
-    public List<EquivalentsDTO> importEquivalentsFromFile(MultipartFile file, String branchId) throws Exception {
+    public ImportSummaryDTO importEquivalentsFromFile(MultipartFile file, String branchId) throws Exception {
         String fileName = file.getOriginalFilename();
 
-        if (fileName == null || !fileName.endsWith(".xlsx")) {
-            throw new IllegalArgumentException("Invalid file format. Only XLSX files are allowed.");
+        if (fileName == null || !(fileName.endsWith(".xlsx") || fileName.endsWith(".csv"))) {
+            throw new IllegalArgumentException("Unsupported file format. Please upload an Excel (.xlsx) or CSV file.");
         }
 
-        if (fileName.endsWith(".xlsx") || fileName.endsWith(".xls")) {
-            return importFromExcel(file.getInputStream(), branchId);
-        } else if (fileName.endsWith(".csv")) {
-            return importFromCsv(file.getInputStream(), branchId);
-        } else {
-            throw new IllegalArgumentException("Unsupported file format. Please upload an Excel (.xlsx, .xls) or CSV file.");
-        }    
-        
+        Path spooled = Files.createTempFile("equivalents-upload-", fileName.substring(fileName.lastIndexOf('.')));
+        try {
+            try (InputStream input = file.getInputStream()) {
+                Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return importEquivalents(spooled, fileName, branchId, new ImportSummaryDTO(), ImportProgressListener.NONE);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
     }
 
-    private List<EquivalentsDTO> importFromExcel(InputStream inputStream, String branchId) throws IOException {
-        List<EquivalentsDTO> importedEquivalents = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Iterator<Row> rows = sheet.iterator();
+    // Chunked import shared by the upload endpoint and import jobs. Rows are read as a stream
+    // and only a summary is kept. Columns: INN, form, strength, reference source, brand names,
+    // brand IDs, original medication ID, equivalent medication ID.
+    public ImportSummaryDTO importEquivalents(Path file, String fileName, String branchId, ImportSummaryDTO summary,
+                                              ImportProgressListener listener) throws IOException {
+        int importedBefore = summary.getImported();
+        int resumeAfterRow = listener.resumeAfterRow();
+        Consumer<List<SheetRow>> importChunk = chunk -> {
+            List<SheetRow> pending = chunk.stream()
+                    .filter(row -> row.rowNumber() > resumeAfterRow)
+                    .collect(Collectors.toList());
+            if (!pending.isEmpty()) {
+                importEquivalentRows(pending, branchId, summary);
+                listener.chunkCompleted(pending.get(pending.size() - 1).rowNumber(), summary);
+            }
+        };
+
+        int totalRows = fileName.endsWith(".csv")
+                ? readCsvRows(file, importChunk)
+                : spreadsheetStreamReader.read(file, importChunkSize, importChunk);
+        summary.setTotalRows(totalRows);
 
-            // Skip header row
-            if (rows.hasNext()) {
-                rows.next();
+        if (summary.getImported() > importedBefore) {
+            eventPublisher.publishEvent(new EquivalentsChangedEvent(branchId, List.of()));
+        }
+        log.info("Imported {} of {} equivalents from file, {} failed",
+                summary.getImported(), summary.getTotalRows(), summary.getFailed());
+        return summary;
+    }
+
+    private void importEquivalentRows(List<SheetRow> rows, String branchId, ImportSummaryDTO summary) {
+        // Parse the whole chunk first so every reference in it can be resolved in bulk
+        List<ParsedEquivalent> parsed = new ArrayList<>();
+        for (SheetRow row : rows) {
+            try {
+                parsed.add(parseEquivalentRow(row));
+            } catch (Exception e) {
+                summary.recordFailure(row.rowNumber(), e.getMessage());
             }
+        }
+        if (parsed.isEmpty()) {
+            return;
+        }
 
-            while (rows.hasNext()) {
-                Row currentRow = rows.next();
-                try {
-                    EquivalentsDTO dto = new EquivalentsDTO();
-                    
-                    // Map Excel columns to DTO fields
-                    dto.setInn(getCellValue(currentRow.getCell(0))); // INN
-                    dto.setForm(getCellValue(currentRow.getCell(1))); // Form
-                    dto.setStrength(getCellValue(currentRow.getCell(2))); // Strength
-                    dto.setReferenceSourceName(getCellValue(currentRow.getCell(3))); // Reference Source
-                    
-                    // For brand names (comma-separated in Excel)
-                    String brandNamesStr = getCellValue(currentRow.getCell(4));
-                    if (brandNamesStr != null && !brandNamesStr.isEmpty()) {
-                        dto.setBrandNames(List.of(brandNamesStr.split("\\s*,\\s*")));
-                    }
-                    
-                    // For brand IDs (comma-separated in Excel)
-                    String brandIdsStr = getCellValue(currentRow.getCell(5));
-                    if (brandIdsStr != null && !brandIdsStr.isEmpty()) {
-                        dto.setBrandIds(Arrays.stream(brandIdsStr.split("\\s*,\\s*"))
-                                        .map(Long::parseLong)
-                                        .collect(Collectors.toList()));
-                    }
-                    
-                    // Save the equivalent
-                    log.info("Saving equivalent: INN={}, Form={}, Strength={}", dto.getInn(), dto.getForm(), dto.getStrength());
-                    dto.setBranchId(branchId);
-                    EquivalentsDTO savedDto = createEquivalent(dto, branchId);
-                    log.info("Successfully saved equivalent with ID: {}", savedDto.getId());
-                    importedEquivalents.add(savedDto);
-                    
-                } catch (Exception e) {
-                    log.error("Error processing row {}: {}", currentRow.getRowNum() + 1, e.getMessage());
-                    // Continue with next row even if one fails
+        Set<Long> medicationIds = new HashSet<>();
+        Set<Long> brandIds = new HashSet<>();
+        Set<String> referenceSourceNames = new HashSet<>();
+        for (ParsedEquivalent equivalent : parsed) {
+            medicationIds.add(equivalent.originalMedicationId());
+            medicationIds.add(equivalent.equivalentMedicationId());
+            brandIds.addAll(equivalent.brandIds());
+            referenceSourceNames.add(equivalent.referenceSourceName());
+        }
+
+        // One query per referenced table instead of three lookups per row
+        Map<Long, Long> medicationCategories = new HashMap<>();
+        for (Object[] pair : medicationsRepository.findCategoryIdsByMedicationIds(medicationIds)) {
+            medicationCategories.put((Long) pair[0], (Long) pair[1]);
+        }
+        Map<Long, String> brandNames = new HashMap<>();
+        for (Object[] pair : brandRepository.findNamesByIds(brandIds)) {
+            brandNames.put((Long) pair[0], (String) pair[1]);
+        }
+        Map<String, Long> referenceSources = new HashMap<>();
+        for (ReferenceSource source : referenceSourceRepository.findByNameIn(referenceSourceNames)) {
+            // Prefer the branch's own source when another branch uses the same name
+            if (branchId.equals(source.getBranchId()) || !referenceSources.containsKey(source.getName())) {
+                referenceSources.put(source.getName(), source.getId());
+            }
+        }
+
+        List<NewEquivalent> batch = new ArrayList<>();
+        List<Integer> rowNumbers = new ArrayList<>();
+        for (ParsedEquivalent equivalent : parsed) {
+            try {
+                if (!medicationCategories.containsKey(equivalent.originalMedicationId())) {
+                    throw new RuntimeException("Original medication not found with id: " + equivalent.originalMedicationId());
+                }
+                if (!medicationCategories.containsKey(equivalent.equivalentMedicationId())) {
+                    throw new RuntimeException("Equivalent medication not found with id: " + equivalent.equivalentMedicationId());
+                }
+                List<Long> missingBrands = equivalent.brandIds().stream()
+                        .filter(id -> !brandNames.containsKey(id))
+                        .collect(Collectors.toList());
+                if (!missingBrands.isEmpty()) {
+                    throw new ResourceNotFoundException("Brands not found with ids: " + missingBrands);
                 }
+                Long referenceSourceId = referenceSources.get(equivalent.referenceSourceName());
+                if (referenceSourceId == null) {
+                    throw new RuntimeException("Reference source not found with name: " + equivalent.referenceSourceName());
+                }
+                Long categoryId = medicationCategories.get(equivalent.originalMedicationId());
+                if (categoryId == null) {
+                    throw new RuntimeException("Original medication " + equivalent.originalMedicationId() + " has no category");
+                }
+
+                List<String> names = equivalent.brandNames().isEmpty()
+                        ? equivalent.brandIds().stream().map(brandNames::get).collect(Collectors.toList())
+                        : equivalent.brandNames();
+                batch.add(new NewEquivalent(branchId, equivalent.inn(), equivalent.form(), equivalent.strength(),
+                        equivalent.referenceSourceName(), equivalent.brandIds(), names,
+                        equivalent.originalMedicationId(), equivalent.equivalentMedicationId(),
+                        categoryId, referenceSourceId, equivalent.brandIds().get(0)));
+                rowNumbers.add(equivalent.rowNumber());
+            } catch (Exception e) {
+                summary.recordFailure(equivalent.rowNumber(), e.getMessage());
             }
-        } catch (Exception e) {
-            log.error("Error importing from Excel", e);
-            throw new RuntimeException("Failed to import equivalents from Excel", e);
         }
-        return importedEquivalents;
-    }
+        if (batch.isEmpty()) {
+            return;
+        }
 
-    private List<EquivalentsDTO> importFromCsv(InputStream inputStream, String branchId) throws IOException {
-        List<EquivalentsDTO> importedEquivalents = new ArrayList<>();
-        
-        try (CSVReader reader = new CSVReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)))) {
-            String[] line;
-            // Skip header
-            reader.readNext();
-            int lineNumber = 1; // Start from 1 to account for header row
-            
-            while ((line = reader.readNext()) != null) {
-                lineNumber++;
+        // One transaction per chunk; a rejected batch is retried row by row to find the bad rows
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> equivalentsBatchRepository.insertEquivalents(batch, now));
+            summary.setImported(summary.getImported() + batch.size());
+        } catch (Exception e) {
+            log.warn("Batch insert of {} equivalents failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                List<NewEquivalent> single = List.of(batch.get(i));
                 try {
-                    if (line.length < 6) {
-                        log.warn("Skipping invalid CSV line {}: {}", lineNumber, String.join(",", line));
-                        continue;
-                    }
-                    
-                    EquivalentsDTO dto = new EquivalentsDTO();
-                    dto.setInn(line[0].trim()); // INN
-                    dto.setForm(line[1].trim()); // Form
-                    dto.setStrength(line[2].trim()); // Strength
-                    dto.setReferenceSourceName(line[3].trim()); // Reference Source
-                    
-                    // Brand names (comma-separated in CSV)
-                    if (!line[4].trim().isEmpty()) {
-                        dto.setBrandNames(Arrays.stream(line[4].split("\\s*,\\s*"))
-                                            .map(String::trim)
-                                            .collect(Collectors.toList()));
-                    }
-                    
-                    // Brand IDs (comma-separated in CSV)
-                    if (line.length > 5 && !line[5].trim().isEmpty()) {
-                        List<Long> brandIds = Arrays.stream(line[5].split("\\s*,\\s*"))
-                                                .map(String::trim)
-                                                .map(Long::parseLong)
-                                                .collect(Collectors.toList());
-                        
-                        // Validate brand IDs exist
-                        List<Long> existingBrandIds = validateBrandIds(brandIds);
-                        if (existingBrandIds.size() != brandIds.size()) {
-                            log.warn("Skipping line {}: One or more brand IDs not found", lineNumber);
-                            continue;
-                        }
-                        
-                        dto.setBrandIds(existingBrandIds);
-                    } else {
-                        log.warn("Skipping line {}: Brand IDs are required", lineNumber);
-                        continue;
-                    }
-                    
-                    // Save the equivalent
-                    dto.setBranchId(branchId);
-                    EquivalentsDTO savedDto = createEquivalent(dto, branchId);
-                    importedEquivalents.add(savedDto);
-                    log.info("Successfully imported equivalent for INN: {}, Form: {}, Strength: {}", 
-                           dto.getInn(), dto.getForm(), dto.getStrength());
-                    
-                    log.info("Imported equivalent with ID: {}", savedDto.getId());
-                    
-                } catch (Exception e) {
-                    log.error("Error processing CSV line {}: {}", lineNumber, String.join(",", line), e);
-                    // Continue with next line even if one fails
+                    transactionTemplate.executeWithoutResult(status -> equivalentsBatchRepository.insertEquivalents(single, now));
+                    summary.setImported(summary.getImported() + 1);
+                } catch (Exception ex) {
+                    summary.recordFailure(rowNumbers.get(i), ex.getMessage());
                 }
             }
-        
-        } catch (Exception e) {
-            log.error("Error importing from CSV", e);
-            throw new RuntimeException("Failed to import equivalents from CSV", e);
         }
-        
-        log.info("Successfully imported {} equivalents", importedEquivalents.size());
-        return importedEquivalents;
     }
 
-    private String getCellValue(Cell cell) {
-        if (cell == null) {
-            return "";
+    private ParsedEquivalent parseEquivalentRow(SheetRow row) {
+        if (row.cell(0).isEmpty()) {
+            throw new RuntimeException("INN is required");
         }
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                }
-                return String.valueOf((long) cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case BLANK:
-                return "";
-            case FORMULA:
-                return cell.getCellFormula();
-            case ERROR:
-                return "ERROR";
-            default:
-                return "";
+        if (row.cell(3).isEmpty()) {
+            throw new RuntimeException("Reference source is required");
+        }
+        if (row.cell(5).isEmpty()) {
+            throw new RuntimeException("Brand IDs are required");
         }
+        if (row.cell(6).isEmpty() || row.cell(7).isEmpty()) {
+            throw new RuntimeException("Original and equivalent medication IDs are required");
+        }
+
+        // Brand names and brand IDs are comma-separated
+        List<String> brandNames = row.cell(4).isEmpty()
+                ? List.of()
+                : List.of(row.cell(4).split("\\s*,\\s*"));
+        List<Long> brandIds = Arrays.stream(row.cell(5).split("\\s*,\\s*"))
+                .map(Long::parseLong)
+                .collect(Collectors.toList());
+
+        return new ParsedEquivalent(row.rowNumber(), row.cell(0), row.cell(1), row.cell(2), row.cell(3),
+                brandNames, brandIds, Long.parseLong(row.cell(6)), Long.parseLong(row.cell(7)));
     }
 
-    // Validates that all brand IDs exist in the database
-    private List<Long> validateBrandIds(List<Long> brandIds) {
-        if (brandIds == null || brandIds.isEmpty()) {
-            return Collections.emptyList();
-        }
-    
-    // Get all existing brand IDs in a single query
-        List<Long> existingBrands = brandRepository.findAllById(brandIds).stream()
-            .map(Brands::getId)
-            .collect(Collectors.toList());
-    
-    // Check if all requested IDs exist
-        List<Long> missingBrands = brandIds.stream()
-            .filter(id -> !existingBrands.contains(id))
-            .collect(Collectors.toList());
-    
-        if (!missingBrands.isEmpty()) {
-            log.warn("The following brand IDs were not found: {}", missingBrands);
+    private record ParsedEquivalent(int rowNumber, String inn, String form, String strength, String referenceSourceName,
+                                    List<String> brandNames, List<Long> brandIds,
+                                    Long originalMedicationId, Long equivalentMedicationId) {
+    }
+
+    private int readCsvRows(Path file, Consumer<List<SheetRow>> chunkConsumer) throws IOException {
+        try (CSVReader reader = new CSVReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            // Skip header
+            reader.readNext();
+            int lineNumber = 1;
+            int rowCount = 0;
+            List<SheetRow> chunk = new ArrayList<>();
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                lineNumber++;
+                rowCount++;
+                chunk.add(new SheetRow(lineNumber, Arrays.asList(line)));
+                if (chunk.size() >= importChunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+            return rowCount;
+        } catch (CsvValidationException e) {
+            throw new IOException("Unable to read CSV file: " + e.getMessage(), e);
         }
-    
-        return existingBrands;
     }
 
-    // Export equivalents to file (CSV or Excel)
-    public byte[] exportEquivalentsToFile(String format, String branchId) throws IOException {
-        // Get all equivalents for the specified branch
-        List<Equivalents> equivalents = equivalentsRepository.findByBranchId(branchId);
-        
-        log.info("Exporting {} equivalents for branch: {}", equivalents.size(), branchId);
-        
-        if ("csv".equalsIgnoreCase(format)) {
-            return exportToCsv(equivalents);
-        } else {
-            return exportToExcel(equivalents);
+    // Export equivalents to file (CSV or Excel), streamed straight to the given output.
+    // Brand ids and names are columns of the equivalents row, so the one cursor query is all it takes.
+    @Transactional(readOnly = true)
+    public void exportEquivalentsToFile(String format, String branchId, OutputStream outputStream) throws IOException {
+        log.info("Exporting equivalents for branch: {} as {}", branchId, format);
+
+        try (Stream<Equivalents> equivalents = equivalentsRepository.streamByBranchId(branchId)) {
+            long count = "csv".equalsIgnoreCase(format)
+                    ? exportToCsv(equivalents, outputStream)
+                    : exportToExcel(equivalents, outputStream);
+            log.info("Exported {} equivalents for branch: {}", count, branchId);
         }
     }
 
-    private byte[] exportToExcel(List<Equivalents> equivalents) throws IOException {
-        log.info("Starting Excel export for {} equivalents", equivalents.size());
-        try (Workbook workbook = new XSSFWorkbook(); 
-            ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            
+    private long exportToExcel(Stream<Equivalents> equivalents, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        workbook.setCompressTempFiles(true);
+        try {
             Sheet sheet = workbook.createSheet("Equivalents");
             
             // Create header row
@@ -389,61 +442,70 @@ public class EquivalentsService {
                 "Brand Names", "Created At"
             };
             
+            // Widths follow the longest value written, since autoSizeColumn needs every row in memory
+            int[] widths = new int[headers.length];
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
+                widths[i] = headers[i].length();
             }
             
             // Fill data
             int rowNum = 1;
-            for (Equivalents eq : equivalents) {
+            for (Equivalents eq : (Iterable<Equivalents>) equivalents::iterator) {
                 Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(eq.getInn());
-                row.createCell(1).setCellValue(eq.getForm());
-                row.createCell(2).setCellValue(eq.getStrength());
-                row.createCell(3).setCellValue(eq.getReferenceSourceName());
-                row.createCell(4).setCellValue(String.join(", ", eq.getBrandNames()));
-                row.createCell(5).setCellValue(eq.getCreatedAt() != null ? 
-                        eq.getCreatedAt().toString() : "");
+                String[] values = toExportValues(eq);
+                for (int i = 0; i < values.length; i++) {
+                    row.createCell(i).setCellValue(values[i]);
+                    widths[i] = Math.max(widths[i], values[i].length());
+                }
+                detachPeriodically(rowNum - 1);
             }
             
-            // Auto-size columns
             for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+                sheet.setColumnWidth(i, Math.min(widths[i] + 2, 50) * 256);
             }
             
-            workbook.write(out);
-            return out.toByteArray();
-        
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to export equivalents to Excel", e);
+            workbook.write(outputStream);
+            return rowNum - 1;
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 
-    private byte[] exportToCsv(List<Equivalents> equivalents) throws IOException {
-        log.info("Starting CSV export for {} equivalents", equivalents.size());
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-            OutputStreamWriter writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-            CSVPrinter csvPrinter = new CSVPrinter(writer, 
+    private long exportToCsv(Stream<Equivalents> equivalents, OutputStream outputStream) throws IOException {
+        OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        CSVPrinter csvPrinter = new CSVPrinter(writer, 
                 CSVFormat.DEFAULT.builder()
                     .setHeader("INN", "Form", "Strength", "Reference Source", "Brand Names", "Created At")
-                    .build())) {
+                    .build());
             
-            for (Equivalents eq : equivalents) {
-                csvPrinter.printRecord(
-                    eq.getInn(),
-                    eq.getForm(),
-                    eq.getStrength(),
-                    eq.getReferenceSourceName(),
-                    String.join(", ", eq.getBrandNames()),
-                    eq.getCreatedAt() != null ? eq.getCreatedAt().toString() : ""
-                );
-            }
+        long count = 0;
+        for (Equivalents eq : (Iterable<Equivalents>) equivalents::iterator) {
+            csvPrinter.printRecord((Object[]) toExportValues(eq));
+            detachPeriodically(++count);
+        }
             
-            csvPrinter.flush();
-            return out.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to export equivalents to CSV", e);
+        csvPrinter.flush();
+        return count;
+    }
+
+    private String[] toExportValues(Equivalents eq) {
+        return new String[] {
+            eq.getInn() != null ? eq.getInn() : "",
+            eq.getForm() != null ? eq.getForm() : "",
+            eq.getStrength() != null ? eq.getStrength() : "",
+            eq.getReferenceSourceName() != null ? eq.getReferenceSourceName() : "",
+            eq.getBrandNames() != null ? String.join(", ", eq.getBrandNames()) : "",
+            eq.getCreatedAt() != null ? eq.getCreatedAt().toString() : ""
+        };
+    }
+
+    // Keeps the persistence context from growing with the export
+    private void detachPeriodically(long count) {
+        if (count % 1000 == 0) {
+            entityManager.clear();
         }
     }
     
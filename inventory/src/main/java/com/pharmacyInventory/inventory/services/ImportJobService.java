@@ -0,0 +1,367 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.ImportJobStatus;
+import com.pharmacyInventory.inventory.Enum.ImportJobType;
+import com.pharmacyInventory.inventory.dtos.common.ImportSummaryDTO;
+import com.pharmacyInventory.inventory.dtos.importjobs.ImportJobDTO;
+import com.pharmacyInventory.inventory.exception.ResourceNotFoundException;
+import com.pharmacyInventory.inventory.model.ImportJob;
+import com.pharmacyInventory.inventory.repository.ImportJobRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Runs inventory and equivalents uploads in the background. The upload is spooled to disk
+// and recorded in import_jobs, progress is checkpointed after every chunk, and jobs that
+// were queued or running when the service stopped are picked up again. Each unfinished job
+// is leased to one instance, which renews the lease while it queues or runs the job; other
+// instances only take over jobs whose lease has run out.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportJobService {
+
+    private static final Set<ImportJobStatus> UNFINISHED = EnumSet.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING);
+
+    // Length of import_jobs.failure_reason
+    private static final int FAILURE_REASON_LENGTH = 1000;
+
+    private final ImportJobRepository importJobRepository;
+    private final MedicationsService medicationsService;
+    private final EquivalentsService equivalentsService;
+    private final SpreadsheetStreamReader spreadsheetStreamReader;
+
+    @Qualifier("importExecutor")
+    private final Executor importExecutor;
+
+    @Value("${import.jobs.spool-dir:${java.io.tmpdir}/inventory-imports}")
+    private String spoolDir;
+
+    @Value("${import.jobs.instance-id:}")
+    private String instanceId;
+
+    @Value("${import.jobs.lease-ms:60000}")
+    private long leaseMs;
+
+    // Jobs this instance has queued or is running, whose leases the heartbeat renews
+    private final Set<Long> held = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = UUID.randomUUID().toString();
+        }
+    }
+
+    public ImportJobDTO submit(ImportJobType type, MultipartFile file, String branchId) throws IOException {
+        String fileName = file.getOriginalFilename();
+        log.info("Submitting {} import job for file: {} and branch: {}", type, fileName, branchId);
+
+        if (branchId == null || branchId.isEmpty()) {
+            throw new IllegalArgumentException("Branch ID is required");
+        }
+        boolean supported = fileName != null
+                && (fileName.endsWith(".xlsx") || (type == ImportJobType.EQUIVALENTS && fileName.endsWith(".csv")));
+        if (!supported) {
+            throw new IllegalArgumentException("Unsupported file format. Please upload an Excel (.xlsx)"
+                    + (type == ImportJobType.EQUIVALENTS ? " or CSV" : "") + " file.");
+        }
+
+        Path directory = Paths.get(spoolDir);
+        Files.createDirectories(directory);
+        Path spooled = directory.resolve(UUID.randomUUID() + fileName.substring(fileName.lastIndexOf('.')));
+        try (InputStream input = file.getInputStream()) {
+            Files.copy(input, spooled);
+        }
+
+        ImportJob job = importJobRepository.save(ImportJob.builder()
+                .branchId(branchId)
+                .type(type)
+                .status(ImportJobStatus.QUEUED)
+                .fileName(fileName)
+                .spoolPath(spooled.toString())
+                .owner(instanceId)
+                .heartbeatAt(LocalDateTime.now())
+                .build());
+        try {
+            schedule(job.getId());
+        } catch (RejectedExecutionException e) {
+            held.remove(job.getId());
+            importJobRepository.delete(job);
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+
+        log.info("Queued import job with id: {}", job.getId());
+        return toImportJobDTO(job);
+    }
+
+    public ImportJobDTO getJob(Long id) {
+        return toImportJobDTO(findJob(id));
+    }
+
+    public List<ImportJobDTO> getJobsByBranch(String branchId) {
+        return importJobRepository.findTop50ByBranchIdOrderByIdDesc(branchId).stream()
+                .map(this::toImportJobDTO)
+                .collect(Collectors.toList());
+    }
+
+    // The worker notices the request at its next chunk boundary (or before it starts)
+    public ImportJobDTO cancel(Long id) {
+        log.info("Cancelling import job with id: {}", id);
+        ImportJob job = findJob(id);
+        if (!UNFINISHED.contains(job.getStatus())) {
+            throw new IllegalStateException("Import job " + id + " has already finished with status " + job.getStatus());
+        }
+        importJobRepository.requestCancel(id);
+        return toImportJobDTO(findJob(id));
+    }
+
+    // On startup and with every heartbeat: picks up the unfinished jobs nobody holds, either
+    // because their owner stopped renewing the lease or because they were this instance's
+    // before a restart with the same instance id
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<ImportJob> unfinished = importJobRepository.findByStatusInOrderByIdAsc(UNFINISHED);
+        for (ImportJob job : unfinished) {
+            if (held.contains(job.getId()) || importJobRepository.claim(job.getId(), instanceId, leaseMs) == 0) {
+                continue;
+            }
+            try {
+                log.info("Resuming import job {} after row {}", job.getId(), job.getLastRowNumber());
+                schedule(job.getId());
+            } catch (RejectedExecutionException e) {
+                held.remove(job.getId());
+                log.warn("Import queue is full, job {} stays queued until its lease runs out", job.getId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${import.jobs.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        if (!held.isEmpty()) {
+            importJobRepository.heartbeat(List.copyOf(held), instanceId);
+        }
+        resumeUnfinishedJobs();
+    }
+
+    private void schedule(Long jobId) {
+        held.add(jobId);
+        importExecutor.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                held.remove(jobId);
+            }
+        });
+    }
+
+    private void run(Long jobId) {
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null || !UNFINISHED.contains(job.getStatus())) {
+            return;
+        }
+        // The job may have waited in the queue longer than the lease and been taken over
+        if (importJobRepository.claim(jobId, instanceId, leaseMs) == 0) {
+            log.info("Import job {} is held by another instance, not running it here", jobId);
+            return;
+        }
+        if (Boolean.TRUE.equals(job.getCancelRequested())) {
+            finish(job, ImportJobStatus.CANCELLED, null);
+            return;
+        }
+        Path file = Paths.get(job.getSpoolPath());
+        if (!Files.exists(file)) {
+            finish(job, ImportJobStatus.FAILED, "Uploaded file is no longer available");
+            return;
+        }
+
+        job.setStatus(ImportJobStatus.RUNNING);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        if (job.getTotalRows() == null) {
+            job.setTotalRows(estimateRowCount(job, file));
+        }
+        JobProgress progress = new JobProgress(importJobRepository.save(job));
+
+        // A resumed job carries on counting from its last checkpoint
+        ImportSummaryDTO summary = ImportSummaryDTO.builder()
+                .imported(job.getRowsImported())
+                .failed(job.getRowsFailed())
+                .errors(splitErrors(job.getErrorReport()))
+                .build();
+        try {
+            switch (job.getType()) {
+                case INVENTORY -> medicationsService.importInventory(file, job.getBranchId(), summary, progress);
+                case EQUIVALENTS -> equivalentsService.importEquivalents(
+                        file, job.getFileName(), job.getBranchId(), summary, progress);
+            }
+            progress.job.setTotalRows(summary.getTotalRows());
+            progress.record(summary);
+            finish(progress.job, ImportJobStatus.COMPLETED, null);
+        } catch (LeaseLostException e) {
+            log.warn("Import job {} was taken over by another instance after row {}", jobId, progress.job.getLastRowNumber());
+        } catch (CancellationException e) {
+            log.info("Import job {} cancelled after row {}", jobId, progress.job.getLastRowNumber());
+            finish(progress.job, ImportJobStatus.CANCELLED, null);
+        } catch (Exception e) {
+            log.error("Import job {} failed", jobId, e);
+            progress.record(summary);
+            finish(progress.job, ImportJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private void finish(ImportJob job, ImportJobStatus status, String failureReason) {
+        String reason = failureReason != null && failureReason.length() > FAILURE_REASON_LENGTH
+                ? failureReason.substring(0, FAILURE_REASON_LENGTH - 3) + "..."
+                : failureReason;
+        if (importJobRepository.claim(job.getId(), instanceId, leaseMs) == 0) {
+            log.warn("Import job {} was taken over by another instance before it finished here", job.getId());
+            return;
+        }
+        job.setStatus(status);
+        job.setFailureReason(reason);
+        job.setFinishedAt(LocalDateTime.now());
+        try {
+            importJobRepository.save(job);
+        } catch (RuntimeException e) {
+            // Whatever made the full save fail (the progress or error report of a failed run),
+            // the final status still has to be recorded or the job would stay RUNNING
+            log.error("Could not save import job {}, recording its final status only", job.getId(), e);
+            importJobRepository.markFinished(job.getId(), status, reason, job.getFinishedAt());
+        }
+        try {
+            Files.deleteIfExists(Paths.get(job.getSpoolPath()));
+        } catch (IOException e) {
+            log.warn("Could not delete spooled file {}: {}", job.getSpoolPath(), e.getMessage());
+        }
+        log.info("Import job {} finished with status {}: {} imported, {} failed",
+                job.getId(), status, job.getRowsImported(), job.getRowsFailed());
+    }
+
+    private Integer estimateRowCount(ImportJob job, Path file) {
+        if (!job.getFileName().endsWith(".csv")) {
+            return spreadsheetStreamReader.estimateRowCount(file);
+        }
+        try (Stream<String> lines = Files.lines(file)) {
+            return (int) Math.max(lines.count() - 1, 0);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private ImportJob findJob(Long id) {
+        return importJobRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Import job", "id", id));
+    }
+
+    private List<String> splitErrors(String errorReport) {
+        return errorReport == null || errorReport.isEmpty()
+                ? new ArrayList<>()
+                : new ArrayList<>(Arrays.asList(errorReport.split("\n")));
+    }
+
+    private ImportJobDTO toImportJobDTO(ImportJob job) {
+        int processed = job.getRowsImported() + job.getRowsFailed();
+
+        Double rowsPerSecond = null;
+        Long etaSeconds = null;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            double seconds = Math.max(Duration.between(job.getStartedAt(), end).toMillis() / 1000.0, 0.001);
+            rowsPerSecond = Math.round(processed / seconds * 10) / 10.0;
+            if (job.getStatus() == ImportJobStatus.RUNNING && job.getTotalRows() != null && rowsPerSecond > 0) {
+                etaSeconds = (long) Math.ceil(Math.max(job.getTotalRows() - processed, 0) / rowsPerSecond);
+            }
+        }
+
+        return ImportJobDTO.builder()
+                .id(job.getId())
+                .branchId(job.getBranchId())
+                .type(job.getType())
+                .status(job.getStatus())
+                .fileName(job.getFileName())
+                .totalRows(job.getTotalRows())
+                .rowsProcessed(processed)
+                .rowsImported(job.getRowsImported())
+                .rowsFailed(job.getRowsFailed())
+                .rowsPerSecond(rowsPerSecond)
+                .etaSeconds(etaSeconds)
+                .cancelRequested(job.getCancelRequested())
+                .errors(splitErrors(job.getErrorReport()))
+                .failureReason(job.getFailureReason())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+
+    // Checkpoints the job after each committed chunk and stops it once a cancel was requested
+    private class JobProgress implements ImportProgressListener {
+
+        private ImportJob job;
+
+        JobProgress(ImportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public int resumeAfterRow() {
+            return job.getLastRowNumber();
+        }
+
+        @Override
+        public void chunkCompleted(int lastRowNumber, ImportSummaryDTO summary) {
+            // Renews the lease, and stops before overwriting the progress of a new owner
+            if (importJobRepository.claim(job.getId(), instanceId, leaseMs) == 0) {
+                throw new LeaseLostException();
+            }
+            job.setLastRowNumber(lastRowNumber);
+            record(summary);
+            job = importJobRepository.save(job);
+            if (Boolean.TRUE.equals(importJobRepository.isCancelRequested(job.getId()))) {
+                throw new CancellationException("Import job " + job.getId() + " was cancelled");
+            }
+        }
+
+        void record(ImportSummaryDTO summary) {
+            job.setRowsImported(summary.getImported());
+            job.setRowsFailed(summary.getFailed());
+            job.setErrorReport(summary.getErrors().stream()
+                    .map(error -> error.replace('\n', ' '))
+                    .collect(Collectors.joining("\n")));
+        }
+    }
+
+    // A CancellationException, so it passes through the import loops the same way a cancel does
+    private static class LeaseLostException extends CancellationException {
+    }
+}
@@ -0,0 +1,18 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.dtos.common.ImportSummaryDTO;
+
+// Lets a caller follow (and stop) a chunked import. Import jobs use it to checkpoint
+// progress and to resume after a restart.
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = (lastRowNumber, summary) -> { };
+
+    // Rows up to and including this row number were handled by an earlier run and are skipped
+    default int resumeAfterRow() {
+        return 0;
+    }
+
+    // Called after every committed chunk; throwing aborts the rest of the import
+    void chunkCompleted(int lastRowNumber, ImportSummaryDTO summary);
+}
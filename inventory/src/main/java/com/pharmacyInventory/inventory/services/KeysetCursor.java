@@ -0,0 +1,85 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
+import com.pharmacyInventory.inventory.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+// Position in a listing sorted by (sort key, id) within a branch. Sent to clients as an
+// opaque Base64 token so they cannot depend on its layout.
+public record KeysetCursor(Sort sort, long lastId, String lastValue) {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public enum Sort { ID, NAME }
+
+    // Starting point for the first page: ids are positive and every name sorts after ""
+    public static KeysetCursor first(Sort sort) {
+        return new KeysetCursor(sort, 0L, "");
+    }
+
+    public static KeysetCursor decode(String token, String sortParam) {
+        Sort sort = parseSort(sortParam);
+        if (token == null || token.isBlank()) {
+            return first(sort);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\n", 3);
+            KeysetCursor cursor = new KeysetCursor(Sort.valueOf(parts[0]), Long.parseLong(parts[1]), parts[2]);
+            if (cursor.sort() != sort) {
+                throw new ValidationException("Cursor was issued for sort " + cursor.sort() + ", not " + sort);
+            }
+            return cursor;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    public static int pageSize(Integer requested) {
+        if (requested == null || requested < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    // Builds the response from a query that fetched size + 1 rows; the extra row only
+    // tells whether another page exists
+    public static <E, D> CursorPageDTO<D> page(List<E> rows, int size, Sort sort, Function<E, Long> id,
+                                               Function<E, String> value, Function<List<E>, List<D>> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<E> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            E last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(sort, id.apply(last), sort == Sort.NAME ? value.apply(last) : "").encode();
+        }
+        return CursorPageDTO.<D>builder()
+                .items(mapper.apply(items))
+                .nextCursor(nextCursor)
+                .size(items.size())
+                .sort(sort.name().toLowerCase(Locale.ROOT))
+                .build();
+    }
+
+    public String encode() {
+        String raw = sort.name() + "\n" + lastId + "\n" + (lastValue != null ? lastValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Sort parseSort(String sortParam) {
+        if (sortParam == null || sortParam.isBlank()) {
+            return Sort.ID;
+        }
+        try {
+            return Sort.valueOf(sortParam.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unsupported sort: " + sortParam + " (expected id or name)");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pharmacyInventory.inventory.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The non-empty lots of one medication in one branch, in first-expiry-first-out order:
+// earliest expiry first, lots without an expiry last, ties broken by stock id. Allocation
+// seeks to the first unexpired lot in O(log n) and then walks only the lots it takes from.
+public class LotBook {
+
+    public record Lot(Long stockId, String batchNumber, LocalDate expiryDate, int quantity) { }
+
+    private record Key(LocalDate expiryDate, long stockId) { }
+
+    private static final Comparator<Key> FEFO = Comparator
+            .comparing(Key::expiryDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+            .thenComparingLong(Key::stockId);
+
+    private final TreeMap<Key, Lot> lots = new TreeMap<>(FEFO);
+    private final Map<Long, Key> keysById = new HashMap<>();
+    volatile long lastAccess = System.nanoTime();
+
+    public LotBook(List<Lot> lots) {
+        lots.forEach(this::put);
+    }
+
+    // Adds or replaces a lot; an empty lot is dropped
+    public synchronized void put(Lot lot) {
+        remove(lot.stockId());
+        if (lot.quantity() > 0) {
+            Key key = new Key(lot.expiryDate(), lot.stockId());
+            lots.put(key, lot);
+            keysById.put(lot.stockId(), key);
+        }
+    }
+
+    public synchronized void remove(Long stockId) {
+        Key key = keysById.remove(stockId);
+        if (key != null) {
+            lots.remove(key);
+        }
+    }
+
+    // Lots to take quantity units from, without changing the book. Lots that expired before
+    // today are skipped. Falls short of quantity when the unexpired lots hold less.
+    public synchronized List<Lot> allocate(int quantity, LocalDate today) {
+        List<Lot> picks = new ArrayList<>();
+        int remaining = quantity;
+        for (Lot lot : lots.tailMap(new Key(today, Long.MIN_VALUE), true).values()) {
+            if (remaining <= 0) {
+                break;
+            }
+            int take = Math.min(remaining, lot.quantity());
+            picks.add(new Lot(lot.stockId(), lot.batchNumber(), lot.expiryDate(), take));
+            remaining -= take;
+        }
+        return picks;
+    }
+
+    // Applies an allocation once it is committed
+    public synchronized void take(List<Lot> picks) {
+        for (Lot pick : picks) {
+            Key key = keysById.get(pick.stockId());
+            Lot lot = key != null ? lots.get(key) : null;
+            if (lot != null) {
+                put(new Lot(lot.stockId(), lot.batchNumber(), lot.expiryDate(), lot.quantity() - pick.quantity()));
+            }
+        }
+    }
+
+    public synchronized List<Lot> lots() {
+        return new ArrayList<>(lots.values());
+    }
+
+    public synchronized int size() {
+        return lots.size();
+    }
+}
@@ -0,0 +1,137 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.events.MedicationsChangedEvent;
+import com.pharmacyInventory.inventory.repository.StockRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Per-branch in-memory lot books for FEFO allocation. A medication's lots are loaded on
+// first use and then updated by StockService as lots are received and allocated. The
+// database stays authoritative: allocations are applied with conditional updates, and a
+// book that turns out to be stale is dropped and reloaded.
+//
+// A book is registered as a future before it is loaded and the query runs outside any map
+// operation, so a slow load holds up only the callers that want that same book.
+@Component
+@Slf4j
+public class LotIndex {
+
+    private final StockRepository stockRepository;
+    private final Map<String, Map<Long, CompletableFuture<LotBook>>> branches = new ConcurrentHashMap<>();
+
+    // Least recently used branches are dropped beyond this many
+    @Value("${inventory.stock.lot-index.max-branches:50}")
+    private int maxBranches;
+
+    public LotIndex(StockRepository stockRepository, MeterRegistry meterRegistry) {
+        this.stockRepository = stockRepository;
+        Gauge.builder("stock.lot.index.books", branches,
+                        map -> map.values().stream().mapToLong(Map::size).sum())
+                .register(meterRegistry);
+    }
+
+    public LotBook book(String branchId, Long medicationId) {
+        if (!branches.containsKey(branchId)) {
+            evictLeastRecentlyUsed();
+        }
+        Map<Long, CompletableFuture<LotBook>> books = branches.computeIfAbsent(branchId, key -> new ConcurrentHashMap<>());
+        CompletableFuture<LotBook> holder = books.get(medicationId);
+        if (holder == null) {
+            CompletableFuture<LotBook> loading = new CompletableFuture<>();
+            holder = books.putIfAbsent(medicationId, loading);
+            if (holder == null) {
+                holder = loading;
+                load(branchId, medicationId, books, loading);
+            }
+        }
+        LotBook book;
+        try {
+            book = holder.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        book.lastAccess = System.nanoTime();
+        return book;
+    }
+
+    // Applies a change to the book if it is loaded; receiving a lot does not need to load
+    // one. A book still loading may have read the lots before the change, so it is dropped.
+    public void update(String branchId, Long medicationId, Consumer<LotBook> change) {
+        Map<Long, CompletableFuture<LotBook>> books = branches.get(branchId);
+        CompletableFuture<LotBook> holder = books != null ? books.get(medicationId) : null;
+        if (holder == null) {
+            return;
+        }
+        LotBook book = loaded(holder);
+        if (book != null) {
+            change.accept(book);
+        } else {
+            books.remove(medicationId, holder);
+        }
+    }
+
+    public void invalidate(String branchId, Long medicationId) {
+        Map<Long, CompletableFuture<LotBook>> books = branches.get(branchId);
+        if (books != null) {
+            books.remove(medicationId);
+        }
+    }
+
+    // Lots of deleted medications go with them
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMedicationsChanged(MedicationsChangedEvent event) {
+        if (event.branchId() == null) {
+            branches.values().forEach(books -> event.medicationIds().forEach(books::remove));
+        } else if (event.medicationIds().isEmpty()) {
+            branches.remove(event.branchId());
+        } else {
+            event.medicationIds().forEach(medicationId -> invalidate(event.branchId(), medicationId));
+        }
+    }
+
+    // A failed load is not kept, so the next caller queries again
+    private void load(String branchId, Long medicationId, Map<Long, CompletableFuture<LotBook>> books,
+                      CompletableFuture<LotBook> loading) {
+        try {
+            LotBook book = new LotBook(stockRepository.findAvailableLots(branchId, medicationId).stream()
+                    .map(stock -> new LotBook.Lot(stock.getId(), stock.getBatchNumber(), stock.getExpiryDate(), stock.getQuantity()))
+                    .toList());
+            log.debug("Loaded {} lots of medication id: {} in branch {}", book.size(), medicationId, branchId);
+            loading.complete(book);
+        } catch (RuntimeException e) {
+            books.remove(medicationId, loading);
+            loading.completeExceptionally(e);
+        }
+    }
+
+    private static LotBook loaded(CompletableFuture<LotBook> holder) {
+        return holder.isDone() && !holder.isCompletedExceptionally() ? holder.join() : null;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (branches.size() >= maxBranches) {
+            Optional<String> oldest = branches.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().values().stream()
+                            .map(LotIndex::loaded)
+                            .mapToLong(book -> book != null ? book.lastAccess : 0)
+                            .max().orElse(0)))
+                    .map(Map.Entry::getKey);
+            if (oldest.isEmpty()) {
+                return;
+            }
+            branches.remove(oldest.get());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacyInventory.inventory.model.Medications;
+import com.pharmacyInventory.inventory.repository.MedicationsRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Raw per-branch dumps of medications for reporting jobs. Rows are read through a database
+// cursor and written a page at a time, so at most one page is held in memory. The rows carry
+// the stock snapshot; each page's quantities on hand are looked up with one query.
+@Service
+@Slf4j
+public class MedicationsExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = {
+        "medicationId", "branchId", "name", "form", "strength", "category", "supplier", "stockQuantity",
+        "reorderLevel", "price", "batchNumber", "expiryDate", "stockStatus", "description", "createdAt", "updatedAt"
+    };
+
+    private final MedicationsRepository medicationsRepository;
+    private final StockLedgerService stockLedgerService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Rows per page; entities are detached after each page so the persistence context stays small
+    @Value("${inventory.export.clear-every:1000}")
+    private int clearEvery;
+
+    public MedicationsExportService(MedicationsRepository medicationsRepository, StockLedgerService stockLedgerService,
+                                    EntityManager entityManager, ObjectMapper objectMapper,
+                                    PlatformTransactionManager transactionManager) {
+        this.medicationsRepository = medicationsRepository;
+        this.stockLedgerService = stockLedgerService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        // The cursor behind the stream only lives as long as the transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void export(String branchId, Format format, boolean gzip, OutputStream outputStream) throws IOException {
+        log.info("Streaming {} export of medications for branch: {} (gzip: {})", format, branchId, gzip);
+
+        OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+        try {
+            long rows = readOnlyTransaction.execute(status -> {
+                try (Stream<Medications> medications = medicationsRepository.streamByBranchId(branchId)) {
+                    return format == Format.CSV ? writeCsv(medications, writer) : writeNdjson(medications, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            log.info("Exported {} medications for branch: {}", rows, branchId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long writeCsv(Stream<Medications> medications, Writer writer) throws IOException {
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(COLUMNS).build());
+        long count = writePages(medications, record -> printer.printRecord(record.values()));
+        printer.flush();
+        return count;
+    }
+
+    private long writeNdjson(Stream<Medications> medications, Writer writer) throws IOException {
+        return writePages(medications, record -> {
+            writer.write(objectMapper.writeValueAsString(record));
+            writer.write('\n');
+        });
+    }
+
+    private long writePages(Stream<Medications> medications, RecordWriter recordWriter) throws IOException {
+        long count = 0;
+        List<Medications> page = new ArrayList<>(clearEvery);
+        for (Medications medication : (Iterable<Medications>) medications::iterator) {
+            page.add(medication);
+            if (page.size() == clearEvery) {
+                count += writePage(page, recordWriter);
+            }
+        }
+        return count + writePage(page, recordWriter);
+    }
+
+    private int writePage(List<Medications> page, RecordWriter recordWriter) throws IOException {
+        int size = page.size();
+        if (size == 0) {
+            return 0;
+        }
+        Map<Long, Integer> onHand = stockLedgerService.quantitiesOnHand(
+                page.stream().map(Medications::getMedicationId).toList());
+        for (Medications medication : page) {
+            recordWriter.write(toRecord(medication,
+                    onHand.getOrDefault(medication.getMedicationId(), medication.getStockQuantity())));
+        }
+        page.clear();
+        entityManager.clear();
+        return size;
+    }
+
+    private interface RecordWriter {
+        void write(Map<String, Object> record) throws IOException;
+    }
+
+    private Map<String, Object> toRecord(Medications medication, Integer quantityOnHand) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("medicationId", medication.getMedicationId());
+        record.put("branchId", medication.getBranchId());
+        record.put("name", medication.getName());
+        record.put("form", medication.getForm() != null ? medication.getForm().getName() : null);
+        record.put("strength", medication.getStrength());
+        record.put("category", medication.getCategory() != null ? medication.getCategory().getName() : null);
+        record.put("supplier", medication.getSuppliers() != null ? medication.getSuppliers().getName() : null);
+        record.put("stockQuantity", quantityOnHand);
+        record.put("reorderLevel", medication.getReorderLevel());
+        record.put("price", medication.getPrice());
+        record.put("batchNumber", medication.getBatchNumber());
+        record.put("expiryDate", medication.getExpiryDate());
+        record.put("stockStatus", medication.getStockStatus());
+        record.put("description", medication.getDescription());
+        record.put("createdAt", medication.getCreatedAt());
+        record.put("updatedAt", medication.getUpdatedAt());
+        return record;
+    }
+}
@@ -1,11 +1,21 @@
 package com.pharmacyInventory.inventory.services;
 
+import com.pharmacyInventory.inventory.dtos.autocomplete.AutocompleteSuggestionDTO;
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
+import com.pharmacyInventory.inventory.dtos.common.ImportSummaryDTO;
 import com.pharmacyInventory.inventory.dtos.medications.MedicationsDTO;
+import com.pharmacyInventory.inventory.events.MedicationsChangedEvent;
+import com.pharmacyInventory.inventory.events.StockMovedEvent;
 import com.pharmacyInventory.inventory.mapper.MedicationsMapper;
 import com.pharmacyInventory.inventory.model.Medications;
 import com.pharmacyInventory.inventory.model.Categories;
+import com.pharmacyInventory.inventory.Enum.CategoryType;
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
 import com.pharmacyInventory.inventory.Enum.StockStatus;
+import com.pharmacyInventory.inventory.repository.MedicationsBatchRepository;
 import com.pharmacyInventory.inventory.repository.MedicationsRepository;
+import com.pharmacyInventory.inventory.repository.MedicationsSearchRepository;
+import com.pharmacyInventory.inventory.services.SpreadsheetStreamReader.SheetRow;
 
 import jakarta.transaction.Transactional;
 
@@ -13,16 +23,35 @@ import com.pharmacyInventory.inventory.repository.CategoriesRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -32,18 +61,56 @@ public class MedicationsService {
     private final MedicationsRepository medicationsRepository;
     private final MedicationsMapper medicationsMapper;
     private final CategoriesRepository categoriesRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SpreadsheetStreamReader spreadsheetStreamReader;
+    private final MedicationsBatchRepository medicationsBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MedicationsSearchRepository medicationsSearchRepository;
+    private final AutocompleteIndex autocompleteIndex;
+    private final StockLedgerService stockLedgerService;
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    private static final int EXPORT_ROW_WINDOW = 100;
+    private static final int MAX_COLUMN_CHARS = 50;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_AUTOCOMPLETE_LIMIT = 25;
+
+    @Value("${inventory.import.chunk-size:1000}")
+    private int importChunkSize;
+
+    @Value("${inventory.export.page-size:1000}")
+    private int exportPageSize;
 
     public List<MedicationsDTO> getAllMedications( String branchId) {
         log.info("Fetching all medications");
-        List<Medications> medications = medicationsRepository.findAllByBranchId(branchId);
-        return medicationsMapper.toMedicationsDTO(medications);
+        return stockLedgerService.withPending(() ->
+                medicationsMapper.toMedicationsDTOFromViews(medicationsRepository.findViewsByBranchId(branchId)));
+    }
+
+    // Keyset-paginated listing; sort is "id" (default) or "name"
+    @Transactional
+    public CursorPageDTO<MedicationsDTO> listMedications(String branchId, String cursor, String sort, Integer size) {
+        log.info("Listing medications for branch: {} (sort: {}, size: {})", branchId, sort, size);
+        KeysetCursor position = KeysetCursor.decode(cursor, sort);
+        int pageSize = KeysetCursor.pageSize(size);
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Medications> rows = position.sort() == KeysetCursor.Sort.NAME
+                ? medicationsRepository.findPageAfterName(branchId, position.lastValue(), position.lastId(), limit)
+                : medicationsRepository.findExportPage(branchId, position.lastId(), limit);
+        CursorPageDTO<MedicationsDTO> page = KeysetCursor.page(rows, pageSize, position.sort(),
+                Medications::getMedicationId, Medications::getName, medicationsMapper::toMedicationsDTO);
+        stockLedgerService.withQuantityOnHand(page.getItems());
+        return page;
     }
 
     public MedicationsDTO getMedicationById(Long medicationId, String branchId) {
         log.info("Fetching medication with id: {}", medicationId);
         Medications medication = medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
                 .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
-        return medicationsMapper.toMedicationsDTO(medication);
+        MedicationsDTO medicationDTO = medicationsMapper.toMedicationsDTO(medication);
+        medicationDTO.setStockQuantity(stockLedgerService.getQuantityOnHand(medicationId, branchId));
+        return medicationDTO;
     }
 
     public MedicationsDTO createMedication(MedicationsDTO medicationDTO, String branchId) {
@@ -65,37 +132,46 @@ public class MedicationsService {
         medication.setStockStatus(StockStatus.IN_STOCK);
 
         Medications saved = medicationsRepository.save(medication);
+        eventPublisher.publishEvent(MedicationsChangedEvent.of(branchId, saved.getMedicationId()));
         log.info("Created medication with id: {}", saved.getMedicationId());
         return medicationsMapper.toMedicationsDTO(saved);
     }
 
     public MedicationsDTO updateMedication(Long medicationId, MedicationsDTO medicationDTO, String branchId) {
         log.info("Updating medication with id: {}", medicationId);
-        
-        Medications existing = medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
-                .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
 
-        // Update fields
-        existing.setName(medicationDTO.getName());
-        
-        // Update form relationship if formId is provided
-        if (medicationDTO.getFormId() != null) {
-            Categories form = categoriesRepository.findById(medicationDTO.getFormId())
-                .orElseThrow(() -> new RuntimeException("Form not found with id: " + medicationDTO.getFormId()));
-            existing.setForm(form);
-        }
-        
-        existing.setStrength(medicationDTO.getStrength());
-        existing.setStockQuantity(medicationDTO.getStockQuantity());
-        existing.setReorderLevel(medicationDTO.getReorderLevel());
-        existing.setPrice(medicationDTO.getPrice());
-        existing.setBatchNumber(medicationDTO.getBatchNumber());
-        existing.setExpiryDate(medicationDTO.getExpiryDate());
-        existing.setUpdatedAt(LocalDateTime.now());
-
-        Medications updated = medicationsRepository.save(existing);
+        // Re-applied to a fresh copy when a stock status or price write got in between
+        MedicationsDTO updatedDTO = optimisticLockRetry.execute("medications.update", () -> transactionTemplate.execute(status -> {
+            Medications existing = medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
+                    .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
+
+            // Update fields
+            existing.setName(medicationDTO.getName());
+
+            // Update form relationship if formId is provided
+            if (medicationDTO.getFormId() != null) {
+                Categories form = categoriesRepository.findById(medicationDTO.getFormId())
+                    .orElseThrow(() -> new RuntimeException("Form not found with id: " + medicationDTO.getFormId()));
+                existing.setForm(form);
+            }
+
+            existing.setStrength(medicationDTO.getStrength());
+            existing.setReorderLevel(medicationDTO.getReorderLevel());
+            existing.setPrice(medicationDTO.getPrice());
+            existing.setBatchNumber(medicationDTO.getBatchNumber());
+            existing.setExpiryDate(medicationDTO.getExpiryDate());
+            existing.setUpdatedAt(LocalDateTime.now());
+
+            return medicationsMapper.toMedicationsDTO(medicationsRepository.saveAndFlush(existing));
+        }));
+        eventPublisher.publishEvent(MedicationsChangedEvent.of(branchId, medicationId));
         log.info("Updated medication with id: {}", medicationId);
-        return medicationsMapper.toMedicationsDTO(updated);
+
+        // A changed quantity on the form is recorded in the stock ledger as an adjustment
+        updatedDTO.setStockQuantity(medicationDTO.getStockQuantity() != null
+                ? stockLedgerService.setQuantity(medicationId, branchId, medicationDTO.getStockQuantity(), "Medication updated")
+                : stockLedgerService.getQuantityOnHand(medicationId, branchId));
+        return updatedDTO;
     }
 
     public void deleteMedication(Long medicationId, String branchId) {
@@ -105,109 +181,258 @@ public class MedicationsService {
                 .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
 
         medicationsRepository.delete(medication);
+        eventPublisher.publishEvent(MedicationsChangedEvent.of(branchId, medicationId));
         log.info("Deleted medication with id: {}", medicationId);
     }
 
     public void addStock(Long medicationId, Integer quantity, String branchId) {
         log.info("Adding {} units of stock to medication id: {}", quantity, medicationId);
-        
-        Medications medication = medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
-                .orElseThrow(() -> new RuntimeException("Medication not found with id: " + medicationId));
-
-        medication.setStockQuantity(medication.getStockQuantity() + quantity);
-        medication.setUpdatedAt(LocalDateTime.now());
 
-        medicationsRepository.save(medication);
+        stockLedgerService.record(medicationId, branchId, StockMovementType.RECEIPT, quantity, "Stock added", null);
         log.info("Added {} units of stock to medication id: {}", quantity, medicationId);
     }
 
+    // Every medication whose name contains the query, unranked. The ranked search below
+    // serves GET /search/{branchId} and is paginated.
     public List<MedicationsDTO> searchMedications(String query, String branchId) {
         log.info("Searching medications with query: {}", query);
         
         List<Medications> medications = medicationsRepository.findByNameContainingIgnoreCaseAndBranchId(query, branchId);
-        return medicationsMapper.toMedicationsDTO(medications);
+        return stockLedgerService.withQuantityOnHand(medicationsMapper.toMedicationsDTO(medications));
+    }
+
+    // Ranked, typo-tolerant search over name, strength and batch number, at most
+    // MAX_SEARCH_PAGE_SIZE hits per page
+    public Page<MedicationsDTO> searchMedications(String query, String branchId, Pageable pageable) {
+        log.info("Searching medications with query: {} (page {}, size {})", query, pageable.getPageNumber(), pageable.getPageSize());
+
+        if (query == null || query.isBlank()) {
+            return Page.empty(pageable);
+        }
+        int size = Math.min(pageable.getPageSize(), MAX_SEARCH_PAGE_SIZE);
+        Pageable page = PageRequest.of(pageable.getPageNumber(), size);
+
+        List<MedicationsSearchRepository.SearchHit> hits =
+                medicationsSearchRepository.search(branchId, query, (int) page.getOffset(), size);
+        if (hits.isEmpty()) {
+            return new PageImpl<>(List.of(), page, page.getOffset() == 0 ? 0 : medicationsSearchRepository.count(branchId, query));
+        }
+
+        Map<Long, Medications> byId = medicationsRepository.findByMedicationIdIn(
+                        hits.stream().map(MedicationsSearchRepository.SearchHit::medicationId).toList())
+                .stream()
+                .collect(Collectors.toMap(Medications::getMedicationId, medication -> medication));
+        List<MedicationsDTO> ranked = stockLedgerService.withQuantityOnHand(medicationsMapper.toMedicationsDTO(
+                hits.stream()
+                        .map(hit -> byId.get(hit.medicationId()))
+                        .filter(Objects::nonNull)
+                        .toList()));
+
+        // Only count when the page is full; otherwise the total is already known
+        long total = hits.size() < size ? page.getOffset() + hits.size() : medicationsSearchRepository.count(branchId, query);
+        return new PageImpl<>(ranked, page, total);
+    }
+
+    // Typeahead for the till: served from the in-memory index, or from the ranked database
+    // search when the branch is too large to keep in memory
+    public List<AutocompleteSuggestionDTO> autocomplete(String prefix, String branchId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_AUTOCOMPLETE_LIMIT));
+        return autocompleteIndex.suggest(branchId, prefix, size)
+                .orElseGet(() -> searchMedications(prefix, branchId, PageRequest.of(0, size)).stream()
+                        .map(medication -> new AutocompleteSuggestionDTO("MEDICATION", medication.getMedicationId(), medication.getName()))
+                        .toList());
     }
 
     public List<MedicationsDTO> filterMedicationsByCategory(Long categoryId, String branchId) {
         log.info("Filtering medications by category id: {}", categoryId);
         
-        List<Medications> medications = medicationsRepository.findByCategoryIdAndBranchId(categoryId, branchId);
-        return medicationsMapper.toMedicationsDTO(medications);
+        return stockLedgerService.withPending(() -> medicationsMapper.toMedicationsDTOFromViews(
+                medicationsRepository.findViewsByCategoryIdAndBranchId(categoryId, branchId)));
     }
 
     public List<MedicationsDTO> filterMedicationsByStatus(StockStatus stockStatus, String branchId) {
         log.info("Filtering medications by status: {}", stockStatus);
         
-        List<Medications> medications = medicationsRepository.findByStockStatusAndBranchId(stockStatus, branchId);
-        return medicationsMapper.toMedicationsDTO(medications);
+        return stockLedgerService.withPending(() -> medicationsMapper.toMedicationsDTOFromViews(
+                medicationsRepository.findViewsByStockStatusAndBranchId(stockStatus, branchId)));
     }
 
-    @Transactional
+    // stock_status is kept by the ledger with every movement; this only recomputes it, for a
+    // row whose status was changed some other way
     public void updateStockStatus(Long medicationId, String branchId) {
-        Medications medication = medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
-                .orElseThrow(() -> new RuntimeException("Medication not found"));
-        
-        if (medication.getStockQuantity() <= 0) {
-            medication.setStockStatus(StockStatus.OUT_OF_STOCK);
-        } else if (medication.getStockQuantity() <= medication.getReorderLevel()) {
-            medication.setStockStatus(StockStatus.LOW_STOCK);
-        } else {
-            medication.setStockStatus(StockStatus.IN_STOCK);
-        }
-        
-        medicationsRepository.save(medication);
+        stockLedgerService.refreshStockStatus(medicationId, branchId);
+        eventPublisher.publishEvent(StockMovedEvent.of(branchId, medicationId));
     }
 
-    @Transactional
     public MedicationsDTO updateStockQuantity(Long medicationId, Integer quantity, String branchId) {
-        Medications medication = medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
-                .orElseThrow(() -> new RuntimeException("Medication not found"));
-        
-        medication.setStockQuantity(quantity);
-        medicationsRepository.save(medication);
-        
-        // Update the stock status
-        updateStockStatus(medicationId, branchId);
-        
-        return medicationsMapper.toMedicationsDTO(medication);
+        // The ledger records the difference and updates the stock status in the same transaction
+        stockLedgerService.setQuantity(medicationId, branchId, quantity, "Stock count");
+
+        MedicationsDTO medicationDTO = transactionTemplate.execute(status -> medicationsMapper.toMedicationsDTO(
+                medicationsRepository.findByMedicationIdAndBranchId(medicationId, branchId)
+                        .orElseThrow(() -> new RuntimeException("Medication not found"))));
+        // A sale may already have landed after the count
+        medicationDTO.setStockQuantity(stockLedgerService.getQuantityOnHand(medicationId, branchId));
+        return medicationDTO;
     }
 
     public List<MedicationsDTO> uploadInventory(MultipartFile file, String branchId) throws IOException {
         log.info("Uploading inventory from file: {}", file.getOriginalFilename());
         
         List<MedicationsDTO> medications = new ArrayList<>();
-        Workbook workbook = new XSSFWorkbook(file.getInputStream());
-        Sheet sheet = workbook.getSheetAt(0);
+        try (InputStream input = file.getInputStream()) {
+            spreadsheetStreamReader.read(input, importChunkSize, chunk -> {
+                for (SheetRow row : chunk) {
+                    try {
+                        medications.add(createMedication(toImportedMedication(row, branchId), branchId));
+                    } catch (Exception e) {
+                        log.warn("Error processing row {}: {}", row.rowNumber(), e.getMessage());
+                    }
+                }
+            });
+        }
 
-        for (int i = 1; i <= sheet.getLastRowNum(); i++) { // Skip header row
-            Row row = sheet.getRow(i);
-            if (row != null) {
+        log.info("Uploaded {} medications from file", medications.size());
+        return medications;
+    }
+
+    // Streaming variant for large catalogues: rows are persisted chunk by chunk and only
+    // a summary is returned, so memory use does not depend on the size of the file
+    public ImportSummaryDTO importInventory(MultipartFile file, String branchId) throws IOException {
+        log.info("Streaming inventory import from file: {}", file.getOriginalFilename());
+
+        Path spooled = Files.createTempFile("inventory-upload-", ".xlsx");
+        try {
+            try (InputStream input = file.getInputStream()) {
+                Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return importInventory(spooled, branchId, new ImportSummaryDTO(), ImportProgressListener.NONE);
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+    }
+
+    public ImportSummaryDTO importInventory(Path file, String branchId, ImportSummaryDTO summary,
+                                            ImportProgressListener listener) throws IOException {
+        if (branchId == null || branchId.isEmpty()) {
+            throw new RuntimeException("Branch ID is required");
+        }
+
+        // Forms are looked up by name for every row, so load the branch's forms once
+        Map<String, Categories> forms = new HashMap<>();
+        for (Categories form : categoriesRepository.findByType(CategoryType.FORM, branchId)) {
+            forms.putIfAbsent(form.getName().trim().toLowerCase(), form);
+        }
+
+        int importedBefore = summary.getImported();
+        int resumeAfterRow = listener.resumeAfterRow();
+        int totalRows = spreadsheetStreamReader.read(file, importChunkSize, chunk -> {
+            List<SheetRow> pending = chunk.stream()
+                    .filter(row -> row.rowNumber() > resumeAfterRow)
+                    .collect(Collectors.toList());
+            if (!pending.isEmpty()) {
+                importChunk(pending, branchId, forms, summary);
+                listener.chunkCompleted(pending.get(pending.size() - 1).rowNumber(), summary);
+            }
+        });
+        summary.setTotalRows(totalRows);
+
+        if (summary.getImported() > importedBefore) {
+            eventPublisher.publishEvent(new MedicationsChangedEvent(branchId, List.of()));
+        }
+        log.info("Imported {} of {} medications from file, {} failed",
+                summary.getImported(), summary.getTotalRows(), summary.getFailed());
+        return summary;
+    }
+
+    private void importChunk(List<SheetRow> chunk, String branchId, Map<String, Categories> forms,
+                             ImportSummaryDTO summary) {
+        // One query for the whole chunk instead of existsByName per row
+        Set<String> existingNames = medicationsRepository.findExistingNames(
+                chunk.stream().map(row -> row.cell(0)).collect(Collectors.toSet()));
+
+        Set<String> chunkNames = new HashSet<>();
+        List<Medications> batch = new ArrayList<>();
+        List<Integer> rowNumbers = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (SheetRow row : chunk) {
+            try {
+                MedicationsDTO dto = toImportedMedication(row, branchId);
+                if (dto.getName().isEmpty()) {
+                    throw new RuntimeException("Medication name is required");
+                }
+                if (existingNames.contains(dto.getName()) || !chunkNames.add(dto.getName())) {
+                    throw new RuntimeException("Medication with name '" + dto.getName() + "' already exists");
+                }
+                Categories form = forms.get(dto.getForm().toLowerCase());
+                if (form == null) {
+                    throw new RuntimeException("Form not found with name: " + dto.getForm());
+                }
+                if (dto.getExpiryDate() == null) {
+                    throw new RuntimeException("Expiry date is missing or invalid");
+                }
+
+                batch.add(Medications.builder()
+                        .branchId(branchId)
+                        .name(dto.getName())
+                        .form(form)
+                        .strength(dto.getStrength())
+                        .stockQuantity(dto.getStockQuantity())
+                        .reorderLevel(dto.getReorderLevel())
+                        .price(dto.getPrice())
+                        .batchNumber(dto.getBatchNumber())
+                        .expiryDate(dto.getExpiryDate())
+                        .stockStatus(StockStatus.IN_STOCK)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build());
+                rowNumbers.add(row.rowNumber());
+            } catch (Exception e) {
+                summary.recordFailure(row.rowNumber(), e.getMessage());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // One transaction per chunk; if the batch is rejected, insert the rows one at a
+        // time so the report points at the offending rows
+        try {
+            transactionTemplate.executeWithoutResult(status -> medicationsBatchRepository.insertMedications(batch));
+            summary.setImported(summary.getImported() + batch.size());
+        } catch (Exception e) {
+            log.warn("Batch insert of {} rows failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                List<Medications> single = List.of(batch.get(i));
                 try {
-                    MedicationsDTO medication = MedicationsDTO.builder()
-                            .name(getCellValue(row.getCell(0)))
-                            .form(getCellValue(row.getCell(1)))
-                            .strength(getCellValue(row.getCell(2)))
-                            .stockQuantity(getIntValue(row.getCell(3)))
-                            .reorderLevel(getIntValue(row.getCell(4)))
-                            .price(getFloatValue(row.getCell(5)))
-                            .batchNumber(getCellValue(row.getCell(6)))
-                            .expiryDate(getLocalDateValue(row.getCell(7)))
-                            .build();
-
-                    medication.setBranchId(branchId);
-                    medication.setCreatedAt(LocalDateTime.now());
-                    medication.setUpdatedAt(LocalDateTime.now());
-                    medication.setStockStatus(StockStatus.IN_STOCK);
-                    medications.add(createMedication(medication, branchId));
-                } catch (Exception e) {
-                    log.warn("Error processing row {}: {}", i + 1, e.getMessage());
+                    transactionTemplate.executeWithoutResult(status -> medicationsBatchRepository.insertMedications(single));
+                    summary.setImported(summary.getImported() + 1);
+                } catch (Exception ex) {
+                    summary.recordFailure(rowNumbers.get(i), ex.getMessage());
                 }
             }
         }
+    }
 
-        workbook.close();
-        log.info("Uploaded {} medications from file", medications.size());
-        return medications;
+    // Columns: name, form, strength, stock quantity, reorder level, price, batch number, expiry date
+    private MedicationsDTO toImportedMedication(SheetRow row, String branchId) {
+        MedicationsDTO medication = MedicationsDTO.builder()
+                .name(row.cell(0))
+                .form(row.cell(1))
+                .strength(row.cell(2))
+                .stockQuantity(parseInt(row.cell(3)))
+                .reorderLevel(parseInt(row.cell(4)))
+                .price(parseFloat(row.cell(5)))
+                .batchNumber(row.cell(6))
+                .expiryDate(parseDate(row.cell(7)))
+                .build();
+
+        medication.setBranchId(branchId);
+        medication.setCreatedAt(LocalDateTime.now());
+        medication.setUpdatedAt(LocalDateTime.now());
+        medication.setStockStatus(StockStatus.IN_STOCK);
+        return medication;
     }
 
     public byte[] downloadTemplate() throws IOException {
@@ -238,112 +463,115 @@ public class MedicationsService {
         return outputStream.toByteArray();
     }
 
-    public byte[] exportToExcel(String branchId) throws IOException {
+    // Streams the branch's inventory as .xlsx. SXSSF keeps only a small window of rows in
+    // memory and medications are read page by page, so heap use does not grow with the branch.
+    public void exportToExcel(String branchId, OutputStream outputStream) throws IOException {
         log.info("Exporting inventory to Excel for branch: {}", branchId);
-        
-        // Get medications data
-        List<MedicationsDTO> medications = getAllMedications(branchId);
-        
-        try (Workbook workbook = new XSSFWorkbook()) {
+
+        String[] headers = {
+            "ID", "Name", "Form", "Strength", "Category", "Stock Quantity", "Reorder Level", "Price", "Supplier",
+            "Batch Number", "Expiry Date", "Status"
+        };
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXPORT_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
             Sheet sheet = workbook.createSheet("Medications");
-            
-            // Create header row
-            String[] headers = {
-                "ID", "Name", "Form", "Strength", "Category", "Stock Quantity", "Reorder Level","Price","Supplier" ,
-                "Batch Number", "Expiry Date", "Status"
-            };
-            
+
+            // One style shared by every date cell; a style per cell runs into the 64k style limit
+            CellStyle dateCellStyle = workbook.createCellStyle();
+            dateCellStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd/MM/yyyy"));
+
+            // Column widths are estimated from the longest value written instead of autoSizeColumn,
+            // which would need every row in memory
+            int[] widths = new int[headers.length];
             Row headerRow = sheet.createRow(0);
             for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
+                headerRow.createCell(i).setCellValue(headers[i]);
+                widths[i] = headers[i].length();
             }
-            
-            // Fill data rows
+
             int rowNum = 1;
-            for (MedicationsDTO med : medications) {
-                Row row = sheet.createRow(rowNum++);
-                
-                row.createCell(0).setCellValue(med.getMedicationId() != null ? med.getMedicationId() : 0);
-                row.createCell(1).setCellValue(med.getName() != null ? med.getName() : "");
-                row.createCell(2).setCellValue(med.getFormName() != null ? med.getFormName() : "");
-                row.createCell(3).setCellValue(med.getStrength() != null ? med.getStrength() : "");
-                row.createCell(4).setCellValue(med.getCategoryName() != null ? med.getCategoryName() : "");
-                row.createCell(5).setCellValue(med.getStockQuantity() != null ? med.getStockQuantity() : 0);
-                row.createCell(6).setCellValue(med.getReorderLevel() != null ? med.getReorderLevel() : 0);
-                row.createCell(7).setCellValue(med.getPrice() != null ? med.getPrice() : 0.0);
-                row.createCell(8).setCellValue(med.getSupplierName() != null ? med.getSupplierName() : "");
-                row.createCell(9).setCellValue(med.getBatchNumber() != null ? med.getBatchNumber() : "");
-                
-                // Format date  
-                if (med.getExpiryDate() != null) {
-                    Cell dateCell = row.createCell(6);
-                    dateCell.setCellValue(med.getExpiryDate());
-                    CellStyle dateCellStyle = workbook.createCellStyle();
-                    dateCellStyle.setDataFormat(workbook.getCreationHelper()
-                        .createDataFormat()
-                        .getFormat("dd/MM/yyyy"));
-                    dateCell.setCellStyle(dateCellStyle);
-                } else {
-                    row.createCell(6).setCellValue("");
+            long afterId = 0L;
+            List<Medications> page;
+            do {
+                page = medicationsRepository.findExportPage(branchId, afterId, PageRequest.of(0, exportPageSize));
+                // The rows carry the snapshot; the quantity on hand is looked up once per page
+                Map<Long, Integer> onHand = stockLedgerService.quantitiesOnHand(
+                        page.stream().map(Medications::getMedicationId).toList());
+                for (Medications med : page) {
+                    Row row = sheet.createRow(rowNum++);
+                    writeCell(row, 0, med.getMedicationId(), widths);
+                    writeCell(row, 1, med.getName(), widths);
+                    writeCell(row, 2, med.getForm() != null ? med.getForm().getName() : null, widths);
+                    writeCell(row, 3, med.getStrength(), widths);
+                    writeCell(row, 4, med.getCategory() != null ? med.getCategory().getName() : null, widths);
+                    writeCell(row, 5, onHand.getOrDefault(med.getMedicationId(), med.getStockQuantity()), widths);
+                    writeCell(row, 6, med.getReorderLevel(), widths);
+                    writeCell(row, 7, med.getPrice(), widths);
+                    writeCell(row, 8, med.getSuppliers() != null ? med.getSuppliers().getName() : null, widths);
+                    writeCell(row, 9, med.getBatchNumber(), widths);
+                    if (med.getExpiryDate() != null) {
+                        Cell dateCell = row.createCell(10);
+                        dateCell.setCellValue(med.getExpiryDate());
+                        dateCell.setCellStyle(dateCellStyle);
+                        widths[10] = Math.max(widths[10], 10);
+                    } else {
+                        row.createCell(10).setCellValue("");
+                    }
+                    writeCell(row, 11, med.getStockStatus() != null ? med.getStockStatus().name() : null, widths);
                 }
-                
-                row.createCell(7).setCellValue(med.getDescription() != null ? med.getDescription() : "");
-                row.createCell(8).setCellValue(med.getStockStatus() != null ? med.getStockStatus().name() : "");
-            }
-            
-            // Auto-size columns
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getMedicationId();
+                }
+            } while (page.size() == exportPageSize);
+
             for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+                sheet.setColumnWidth(i, Math.min(widths[i] + 2, MAX_COLUMN_CHARS) * 256);
             }
-            
-            // Write to byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
             workbook.write(outputStream);
-            return outputStream.toByteArray();
+            log.info("Exported {} medications for branch: {}", rowNum - 1, branchId);
+        } finally {
+            // Removes the temporary files backing the flushed rows
+            workbook.dispose();
+            workbook.close();
         }
     }
 
-    private String getCellValue(Cell cell) {
-        if (cell == null) return "";
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                return String.valueOf(cell.getNumericCellValue());
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            default:
-                return "";
+    private void writeCell(Row row, int column, Object value, int[] widths) {
+        Cell cell = row.createCell(column);
+        if (value instanceof Number number) {
+            cell.setCellValue(number.doubleValue());
+        } else {
+            cell.setCellValue(value != null ? value.toString() : "");
         }
+        widths[column] = Math.max(widths[column], value != null ? value.toString().length() : 0);
     }
 
-    private Integer getIntValue(Cell cell) {
-        if (cell == null) return 0;
+    private Integer parseInt(String value) {
         try {
-            return (int) cell.getNumericCellValue();
+            return (int) Double.parseDouble(value.replace(",", ""));
         } catch (Exception e) {
             return 0;
         }
     }
 
-    private Float getFloatValue(Cell cell) {
-        if (cell == null) return 0f;
+    private Float parseFloat(String value) {
         try {
-            return (float) cell.getNumericCellValue();
+            return Float.parseFloat(value.replace(",", ""));
         } catch (Exception e) {
             return 0f;
         }
     }
 
-    private LocalDate getLocalDateValue(Cell cell) {
-        if (cell == null) return null;
+    // The stream reader renders date cells as ISO-8601
+    private LocalDate parseDate(String value) {
+        if (value.isEmpty()) return null;
         try {
-            if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-                return cell.getLocalDateTimeCellValue().toLocalDate();
-            }
+            return LocalDate.parse(value);
         } catch (Exception e) {
-            log.warn("Error parsing date from cell");
+            log.warn("Error parsing date from cell: {}", value);
         }
         return null;
     }
@@ -0,0 +1,78 @@
+package com.pharmacyInventory.inventory.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Re-runs a write that lost an optimistic locking race (a @Version check failed) after a
+// jittered exponential backoff, so competing writers spread out instead of colliding again.
+// The write must run its own transaction and re-read what it changes. Called inside another
+// transaction it runs once: that transaction is already marked for rollback, so the retry
+// belongs to whoever started it.
+@Component
+@Slf4j
+public class OptimisticLockRetry {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${inventory.optimistic-lock.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${inventory.optimistic-lock.backoff-ms:20}")
+    private long backoffMs;
+
+    @Value("${inventory.optimistic-lock.max-backoff-ms:500}")
+    private long maxBackoffMs;
+
+    public OptimisticLockRetry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Conflict rate per operation is optimistic.lock.conflicts / optimistic.lock.writes
+    public <T> T execute(String operation, Supplier<T> write) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return write.get();
+        }
+        meterRegistry.counter("optimistic.lock.writes", "operation", operation).increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                meterRegistry.counter("optimistic.lock.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("optimistic.lock.exhausted", "operation", operation).increment();
+                    log.warn("Giving up on {} after {} conflicting attempts", operation, attempt);
+                    throw e;
+                }
+                long delay = backoff(attempt);
+                log.debug("Conflict in {} (attempt {}), retrying in {} ms", operation, attempt, delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public void run(String operation, Runnable write) {
+        execute(operation, () -> {
+            write.run();
+            return null;
+        });
+    }
+
+    // "Full jitter": uniform between 0 and an exponentially growing, capped ceiling
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
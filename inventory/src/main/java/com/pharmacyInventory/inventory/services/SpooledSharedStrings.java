@@ -0,0 +1,161 @@
+package com.pharmacyInventory.inventory.services;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+// The shared strings table of an .xlsx file, spooled to a temporary file instead of held in
+// the heap like POI's ReadOnlySharedStringsTable. Sheets that repeat few values have a
+// small table, but one with a distinct description per row has a table as large as the
+// sheet. The heap keeps only the end offset of each string, 8 bytes per string; a string is
+// read back from the file (usually the page cache) when a cell refers to it.
+//
+// Rich text runs are joined and phonetic runs left out, as ReadOnlySharedStringsTable does.
+final class SpooledSharedStrings implements SharedStrings, Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private long[] ends = new long[1024];
+    private int count;
+
+    SpooledSharedStrings(OPCPackage pkg) throws IOException, SAXException {
+        file = Files.createTempFile("inventory-shared-strings-", ".bin");
+        try {
+            List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+            if (!parts.isEmpty()) {
+                try (InputStream input = parts.get(0).getInputStream();
+                     OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new Spooler(output));
+                    parser.parse(new InputSource(input));
+                }
+            }
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException | SAXException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        } catch (ParserConfigurationException e) {
+            Files.deleteIfExists(file);
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        if (idx < 0 || idx >= count) {
+            throw new IndexOutOfBoundsException("Shared string " + idx + " of " + count);
+        }
+        long start = idx == 0 ? 0 : ends[idx - 1];
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(ends[idx] - start));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("Shared strings file ends before string " + idx);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Decodes the _xHHHH_ escapes of OOXML when the handler asks for the string
+        return new XSSFRichTextString(new String(buffer.array(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Writes the text of each <si> to the file and records where it ends
+    private final class Spooler extends DefaultHandler {
+
+        private final OutputStream output;
+        private final StringBuilder text = new StringBuilder();
+        private long written;
+        private boolean inText;
+        private boolean inPhonetic;
+
+        Spooler(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "si" -> text.setLength(0);
+                case "rPh" -> inPhonetic = true;
+                case "t" -> inText = !inPhonetic;
+                default -> { }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "t" -> inText = false;
+                case "rPh" -> inPhonetic = false;
+                case "si" -> add();
+                default -> { }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private void add() throws SAXException {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                output.write(bytes);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            written += bytes.length;
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = written;
+        }
+    }
+}
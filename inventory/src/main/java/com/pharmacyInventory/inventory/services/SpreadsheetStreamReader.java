@@ -0,0 +1,169 @@
+package com.pharmacyInventory.inventory.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Reads the first sheet of an .xlsx file with POI's SAX event model, handing rows over in
+// chunks. Unlike XSSFWorkbook, the sheet is never held in memory as a whole, and neither is
+// its shared strings table (see SpooledSharedStrings).
+@Component
+@Slf4j
+public class SpreadsheetStreamReader {
+
+    private static final Pattern DIMENSION = Pattern.compile("<dimension ref=\"[A-Z]+\\d+:[A-Z]+(\\d+)\"");
+
+    public record SheetRow(int rowNumber, List<String> cells) {
+
+        // Missing and blank cells read as an empty string
+        public String cell(int index) {
+            return index < cells.size() && cells.get(index) != null ? cells.get(index).trim() : "";
+        }
+    }
+
+    // Skips the header row and returns the number of data rows read
+    public int read(InputStream input, int chunkSize, Consumer<List<SheetRow>> chunkConsumer) throws IOException {
+        // OPCPackage needs random access to the zip entries; opening it from a file
+        // avoids buffering the whole upload in memory
+        Path tempFile = Files.createTempFile("inventory-upload-", ".xlsx");
+        try {
+            Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return read(tempFile, chunkSize, chunkConsumer);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public int read(Path file, int chunkSize, Consumer<List<SheetRow>> chunkConsumer) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             SpooledSharedStrings strings = new SpooledSharedStrings(pkg)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return 0;
+            }
+            try (InputStream sheet = sheets.next()) {
+                RowCollector collector = new RowCollector(chunkSize, chunkConsumer);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, collector, new IsoDateFormatter(), false));
+                parser.parse(new InputSource(sheet));
+                collector.flush();
+                return collector.rowCount;
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Unable to read spreadsheet: " + e.getMessage(), e);
+        }
+    }
+
+    // Reads the <dimension> element at the top of the first sheet, which gives the number
+    // of data rows without parsing the sheet. Returns null when the writer left it out.
+    public Integer estimateRowCount(Path file) {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            Iterator<InputStream> sheets = new XSSFReader(pkg).getSheetsData();
+            if (!sheets.hasNext()) {
+                return 0;
+            }
+            try (InputStream sheet = sheets.next()) {
+                String head = new String(sheet.readNBytes(4096), StandardCharsets.UTF_8);
+                Matcher matcher = DIMENSION.matcher(head);
+                return matcher.find() ? Math.max(Integer.parseInt(matcher.group(1)) - 1, 0) : null;
+            }
+        } catch (Exception e) {
+            log.debug("Could not read sheet dimension of {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final int chunkSize;
+        private final Consumer<List<SheetRow>> chunkConsumer;
+        private List<SheetRow> chunk = new ArrayList<>();
+        private List<String> cells;
+        private int currentRow;
+        private int rowCount;
+
+        RowCollector(int chunkSize, Consumer<List<SheetRow>> chunkConsumer) {
+            this.chunkSize = chunkSize;
+            this.chunkConsumer = chunkConsumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            currentRow = rowNum;
+            cells = new ArrayList<>();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum == 0 || cells.stream().allMatch(String::isBlank)) {
+                return;
+            }
+            chunk.add(new SheetRow(rowNum + 1, cells));
+            rowCount++;
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Blank cells are not reported, so pad up to this cell's column
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue != null ? formattedValue : "");
+        }
+
+        void flush() {
+            if (!chunk.isEmpty()) {
+                log.debug("Read {} rows up to row {}", chunk.size(), currentRow + 1);
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+    }
+
+    // Date cells come out as ISO-8601 (yyyy-MM-dd) whatever display format the sheet uses
+    private static class IsoDateFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+        }
+    }
+}
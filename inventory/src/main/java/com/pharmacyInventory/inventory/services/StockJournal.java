@@ -0,0 +1,124 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Local append-only journal of the deltas held by StockWriteBehindBuffer, so a crash before
+// a flush does not lose them. Deltas go to the open segment file, one line each; a flush
+// rotates to a new segment and deletes the old one once its deltas are in the database.
+// Segments left over from a crash are replayed on startup.
+@Slf4j
+class StockJournal {
+
+    record Entry(String branchId, Long medicationId, StockMovementType type, long delta) { }
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean sync;
+    // Segment names must not repeat across restarts: they mark flushed batches in the ledger
+    private final String instance = UUID.randomUUID().toString().substring(0, 8);
+    private long sequence;
+    private Path segment;
+    private FileChannel channel;
+
+    StockJournal(Path directory, boolean sync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.sync = sync;
+    }
+
+    // Segments left by earlier runs, oldest first; call before the first rotate()
+    List<Path> existingSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(file -> !file.equals(segment))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // FileChannel writes in append mode do not interleave, so appenders need no lock of
+    // their own; with sync each delta is forced to disk before it is acknowledged
+    void append(Entry entry) {
+        String line = URLEncoder.encode(entry.branchId(), StandardCharsets.UTF_8) + '\t' + entry.medicationId()
+                + '\t' + entry.type() + '\t' + entry.delta() + '\n';
+        try {
+            channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write stock journal " + segment, e);
+        }
+    }
+
+    // Closes the open segment, if any, and opens a new one. The caller must keep appenders
+    // out while this runs.
+    Path rotate() throws IOException {
+        FileChannel previous = channel;
+        // Millisecond timestamp first, so segments sort in the order they were written
+        segment = directory.resolve(String.format("%s%013d-%s-%06d%s",
+                PREFIX, System.currentTimeMillis(), instance, sequence++, SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (previous != null) {
+            previous.force(false);
+            previous.close();
+        }
+        return segment;
+    }
+
+    // Reads a segment back; a torn last line from a crash mid-write is skipped
+    static List<Entry> read(Path segment) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                try {
+                    entries.add(new Entry(URLDecoder.decode(fields[0], StandardCharsets.UTF_8), Long.valueOf(fields[1]),
+                            StockMovementType.valueOf(fields[2]), Long.parseLong(fields[3])));
+                } catch (RuntimeException e) {
+                    log.warn("Skipping unreadable line in stock journal {}: {}", segment.getFileName(), line);
+                }
+            }
+        }
+        return entries;
+    }
+
+    static String name(Path segment) {
+        String file = segment.getFileName().toString();
+        return file.substring(0, file.length() - SUFFIX.length());
+    }
+
+    void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            log.warn("Unable to delete flushed stock journal {}: {}", segment, e.getMessage());
+        }
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.dtos.bulk.StockAdjustmentDTO;
+import com.pharmacyInventory.inventory.dtos.medications.MedicationsDTO;
+import com.pharmacyInventory.inventory.dtos.stock.StockMovementDTO;
+import com.pharmacyInventory.inventory.events.StockMovedEvent;
+import com.pharmacyInventory.inventory.exception.ResourceNotFoundException;
+import com.pharmacyInventory.inventory.exception.ValidationException;
+import com.pharmacyInventory.inventory.model.StockMovement;
+import com.pharmacyInventory.inventory.repository.StockLedgerRepository;
+import com.pharmacyInventory.inventory.repository.StockLedgerRepository.FoldedMedication;
+import com.pharmacyInventory.inventory.repository.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Stock as an append-only ledger. Receipts, sales, adjustments, transfers and write-offs are
+// each one stock_movements row, and the quantity on hand is the medication's snapshot
+// (stock_quantity) plus the movements after it. A scheduled fold moves the ledger into the
+// snapshots, so the tail a read has to add up stays short. With the write-behind buffer
+// enabled, receipts and sales outside a transaction are buffered and reads add them in.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockLedgerService {
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final StockWriteBehindBuffer writeBehindBuffer;
+
+    @Value("${inventory.stock.ledger.fold-batch-size:50000}")
+    private int foldBatchSize;
+
+    // Records one movement and returns the new quantity on hand. quantity is the number of
+    // units moved; only ADJUSTMENT takes a signed value.
+    public int record(Long medicationId, String branchId, StockMovementType type, Integer quantity,
+                      String reason, String reference) {
+        int delta = signedQuantity(type, quantity);
+        if (buffers(type)) {
+            return recordBuffered(medicationId, branchId, type, delta);
+        }
+        StockMovement movement = movement(medicationId, branchId, type, delta, reason, reference);
+
+        Integer onHand = transactionTemplate.execute(status -> {
+            if (delta < 0) {
+                stockLedgerRepository.lock(List.of(medicationId));
+                if (writeBehindBuffer.isEnabled()) {
+                    // The append below only checks the database, which leaves out buffered sales
+                    writeBehindBuffer.reserve(medicationId, delta);
+                    int available = onHandWithPending(medicationId, branchId);
+                    if (available + delta < 0) {
+                        throw new ValidationException("Insufficient stock for medication with id: " + medicationId
+                                + ", on hand: " + available + ", requested: " + -delta);
+                    }
+                }
+            }
+            boolean appended = stockLedgerRepository.append(List.of(movement))[0] == 1;
+            stockLedgerRepository.refreshStockStatus(List.of(medicationId));
+            int current = onHandWithPending(medicationId, branchId);
+            if (!appended) {
+                throw new ValidationException("Insufficient stock for medication with id: " + medicationId
+                        + ", on hand: " + current + ", requested: " + -delta);
+            }
+            return current;
+        });
+        log.info("Recorded {} of {} units for medication id: {}, on hand: {}", type, delta, medicationId, onHand);
+        eventPublisher.publishEvent(StockMovedEvent.of(branchId, medicationId));
+        return onHand;
+    }
+
+    // Sets the quantity on hand by recording the difference as an adjustment
+    public int setQuantity(Long medicationId, String branchId, Integer quantity, String reason) {
+        if (quantity == null || quantity < 0) {
+            throw new ValidationException("Stock quantity cannot be negative");
+        }
+        int previous = transactionTemplate.execute(status -> {
+            // Held until commit, so no sale slips in between reading and adjusting
+            stockLedgerRepository.lock(List.of(medicationId));
+            int current = onHandWithPending(medicationId, branchId);
+            if (current != quantity) {
+                stockLedgerRepository.append(List.of(movement(medicationId, branchId, StockMovementType.ADJUSTMENT,
+                        quantity - current, reason, null)));
+                stockLedgerRepository.refreshStockStatus(List.of(medicationId));
+            }
+            return current;
+        });
+        if (previous != quantity) {
+            log.info("Adjusted stock of medication id: {} from {} to {}", medicationId, previous, quantity);
+            eventPublisher.publishEvent(StockMovedEvent.of(branchId, medicationId));
+        }
+        return quantity;
+    }
+
+    // Takes up to units out of stock as an adjustment, stopping at zero, and returns the units
+    // taken. For lot corrections: lots may add up to more than is on hand (see StockService),
+    // and removing such a lot must not fail.
+    public int takeAtMost(Long medicationId, String branchId, int units, String reason, String reference) {
+        int taken = transactionTemplate.execute(status -> {
+            stockLedgerRepository.lock(List.of(medicationId));
+            if (writeBehindBuffer.isEnabled()) {
+                writeBehindBuffer.reserve(medicationId, -units);
+            }
+            // Neither the database check of append() nor buffered sales may see less than this
+            int available = writeBehindBuffer.read(() -> {
+                int database = stockLedgerRepository.onHand(medicationId, branchId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Medication", "id", medicationId));
+                return Math.min(database, database + pending(medicationId));
+            });
+            int take = Math.min(units, Math.max(available, 0));
+            if (take > 0) {
+                stockLedgerRepository.append(List.of(movement(medicationId, branchId, StockMovementType.ADJUSTMENT,
+                        -take, reason, reference)));
+                stockLedgerRepository.refreshStockStatus(List.of(medicationId));
+            }
+            return take;
+        });
+        if (taken > 0) {
+            log.info("Took {} of {} units out of stock for medication id: {}", taken, units, medicationId);
+            eventPublisher.publishEvent(StockMovedEvent.of(branchId, medicationId));
+        }
+        return taken;
+    }
+
+    // Bulk adjustments in input order, in one transaction that also recomputes the stock
+    // status of every medication adjusted. Returns 1 per applied line and 0 for a line whose
+    // medication is gone or that would take its stock below zero, buffered deltas included.
+    public int[] adjust(List<StockAdjustmentDTO> adjustments) {
+        List<StockMovement> movements = adjustments.stream()
+                .map(adjustment -> StockMovement.builder()
+                        .medicationId(adjustment.getMedicationId())
+                        .movementType(StockMovementType.ADJUSTMENT)
+                        .quantity(adjustment.getQuantityAdjustment())
+                        .reason(adjustment.getReason())
+                        .build())
+                .toList();
+        return transactionTemplate.execute(status -> {
+            stockLedgerRepository.lock(adjustments.stream()
+                    .filter(adjustment -> adjustment.getQuantityAdjustment() < 0)
+                    .map(StockAdjustmentDTO::getMedicationId)
+                    .toList());
+            int[] applied = writeBehindBuffer.isEnabled()
+                    ? appendWithPending(movements)
+                    : stockLedgerRepository.append(movements);
+            stockLedgerRepository.refreshStockStatus(IntStream.range(0, applied.length)
+                    .filter(i -> applied[i] == 1)
+                    .mapToObj(i -> movements.get(i).getMedicationId())
+                    .collect(Collectors.toSet()));
+            return applied;
+        });
+    }
+
+    // Recomputes the stock status from the ledger; every write here already keeps it current
+    public void refreshStockStatus(Long medicationId, String branchId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            stockLedgerRepository.onHand(medicationId, branchId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Medication", "id", medicationId));
+            stockLedgerRepository.refreshStockStatus(List.of(medicationId));
+        });
+    }
+
+    public int getQuantityOnHand(Long medicationId, String branchId) {
+        return onHandWithPending(medicationId, branchId);
+    }
+
+    // Medications read from the table carry their snapshot; this swaps in the quantity on hand
+    // with one query for the whole list
+    public List<MedicationsDTO> withQuantityOnHand(List<MedicationsDTO> medications) {
+        Map<Long, Integer> onHand = quantitiesOnHand(medications.stream().map(MedicationsDTO::getMedicationId).toList());
+        medications.forEach(medication -> {
+            Integer quantity = onHand.get(medication.getMedicationId());
+            if (quantity != null) {
+                medication.setStockQuantity(quantity);
+            }
+        });
+        return medications;
+    }
+
+    // Quantity on hand by medication id, buffered deltas included, with one query for the whole
+    // collection. Ids that no longer exist are absent.
+    public Map<Long, Integer> quantitiesOnHand(Collection<Long> medicationIds) {
+        return writeBehindBuffer.read(() -> {
+            Map<Long, Integer> quantities = stockLedgerRepository.onHand(medicationIds);
+            quantities.replaceAll((medicationId, quantity) -> quantity + pending(medicationId));
+            return quantities;
+        });
+    }
+
+    // For lists whose query already computes the quantity on hand: adds the buffered deltas,
+    // re-running the query if a flush lands in between
+    public List<MedicationsDTO> withPending(Supplier<List<MedicationsDTO>> query) {
+        if (!writeBehindBuffer.isEnabled()) {
+            return query.get();
+        }
+        return writeBehindBuffer.read(() -> {
+            List<MedicationsDTO> medications = query.get();
+            medications.stream()
+                    .filter(medication -> medication.getStockQuantity() != null)
+                    .forEach(medication -> medication.setStockQuantity(
+                            medication.getStockQuantity() + pending(medication.getMedicationId())));
+            return medications;
+        });
+    }
+
+    public Page<StockMovementDTO> getMovements(Long medicationId, String branchId, Pageable pageable) {
+        log.info("Fetching stock movements for medication id: {}", medicationId);
+        return stockMovementRepository.findByMedicationIdAndBranchIdOrderByIdDesc(medicationId, branchId, pageable)
+                .map(this::toStockMovementDTO);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.ledger.fold-interval-ms:30000}")
+    public void foldSnapshots() {
+        long start = System.nanoTime();
+        List<FoldedMedication> folded = transactionTemplate.execute(status ->
+                stockLedgerRepository.fold(foldBatchSize));
+        if (folded.isEmpty()) {
+            return;
+        }
+        // Every figure shown adds the tail to the snapshot, so a fold changes none of them and
+        // publishes no StockMovedEvent
+        log.debug("Folded stock movements of {} medications in {} ms", folded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // The stock check of append() sees the database only. With buffered deltas about, the lines
+    // are first checked in input order against the quantities on hand including them, and only
+    // the lines that pass are appended (where the database check still applies).
+    private int[] appendWithPending(List<StockMovement> movements) {
+        movements.stream()
+                .filter(movement -> movement.getQuantity() < 0)
+                .forEach(movement -> writeBehindBuffer.reserve(movement.getMedicationId(), movement.getQuantity()));
+        Map<Long, Integer> available = quantitiesOnHand(movements.stream()
+                .map(StockMovement::getMedicationId)
+                .collect(Collectors.toSet()));
+        List<Integer> passed = new ArrayList<>();
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovement movement = movements.get(i);
+            Integer quantity = available.get(movement.getMedicationId());
+            if (quantity != null && quantity + movement.getQuantity() >= 0) {
+                available.put(movement.getMedicationId(), quantity + movement.getQuantity());
+                passed.add(i);
+            }
+        }
+        int[] appended = stockLedgerRepository.append(passed.stream().map(movements::get).toList());
+        int[] applied = new int[movements.size()];
+        for (int i = 0; i < appended.length; i++) {
+            applied[passed.get(i)] = appended[i];
+        }
+        return applied;
+    }
+
+    // Only receipts and sales are frequent enough to buffer, and only outside a transaction:
+    // a buffered delta cannot be rolled back with one
+    private boolean buffers(StockMovementType type) {
+        return writeBehindBuffer.isEnabled()
+                && (type == StockMovementType.RECEIPT || type == StockMovementType.SALE)
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    // Sales of a medication are checked and buffered one at a time, so each check sees the
+    // sales buffered before it, and the outgoing movements of open transactions through their
+    // reservations. Receipts cannot oversell and skip the lock. Reason and reference are not
+    // kept: the flush writes one movement per medication and type.
+    private int recordBuffered(Long medicationId, String branchId, StockMovementType type, int delta) {
+        Supplier<Integer> checkAndAdd = () -> {
+            int onHand = onHandWithPending(medicationId, branchId);
+            if (onHand + writeBehindBuffer.reserved(medicationId) + delta < 0) {
+                throw new ValidationException("Insufficient stock for medication with id: " + medicationId
+                        + ", on hand: " + onHand + ", requested: " + -delta);
+            }
+            writeBehindBuffer.add(branchId, medicationId, type, delta);
+            log.debug("Buffered {} of {} units for medication id: {}", type, delta, medicationId);
+            return onHand + delta;
+        };
+        return delta > 0 ? checkAndAdd.get() : writeBehindBuffer.serialized(medicationId, checkAndAdd);
+    }
+
+    private int onHandWithPending(Long medicationId, String branchId) {
+        return writeBehindBuffer.read(() -> stockLedgerRepository.onHand(medicationId, branchId)
+                .map(quantity -> quantity + pending(medicationId))
+                .orElseThrow(() -> new ResourceNotFoundException("Medication", "id", medicationId)));
+    }
+
+    private int pending(Long medicationId) {
+        return writeBehindBuffer.isEnabled() ? Math.toIntExact(writeBehindBuffer.pending(medicationId)) : 0;
+    }
+
+    private int signedQuantity(StockMovementType type, Integer quantity) {
+        if (type == null) {
+            throw new ValidationException("Movement type is required");
+        }
+        if (quantity == null || quantity == 0) {
+            throw new ValidationException("Movement quantity is required");
+        }
+        if (type == StockMovementType.ADJUSTMENT) {
+            return quantity;
+        }
+        if (quantity < 0) {
+            throw new ValidationException("Quantity of a " + type + " movement must be positive");
+        }
+        return switch (type) {
+            case RECEIPT, TRANSFER_IN -> quantity;
+            default -> -quantity;
+        };
+    }
+
+    private StockMovement movement(Long medicationId, String branchId, StockMovementType type, int quantity,
+                                   String reason, String reference) {
+        return StockMovement.builder()
+                .medicationId(medicationId)
+                .branchId(branchId)
+                .movementType(type)
+                .quantity(quantity)
+                .reason(reason)
+                .reference(reference)
+                .build();
+    }
+
+    private StockMovementDTO toStockMovementDTO(StockMovement movement) {
+        return StockMovementDTO.builder()
+                .id(movement.getId())
+                .medicationId(movement.getMedicationId())
+                .branchId(movement.getBranchId())
+                .movementType(movement.getMovementType())
+                .quantity(movement.getQuantity())
+                .reason(movement.getReason())
+                .reference(movement.getReference())
+                .createdAt(movement.getCreatedAt())
+                .build();
+    }
+}
@@ -1,38 +1,205 @@
 package com.pharmacyInventory.inventory.services;
 
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.dtos.stock.StockAllocationDTO;
+import com.pharmacyInventory.inventory.dtos.stock.StockDTO;
+import com.pharmacyInventory.inventory.exception.ResourceNotFoundException;
+import com.pharmacyInventory.inventory.exception.ValidationException;
+import com.pharmacyInventory.inventory.mapper.StockMapper;
+import com.pharmacyInventory.inventory.model.Medications;
 import com.pharmacyInventory.inventory.model.Stock;
+import com.pharmacyInventory.inventory.repository.MedicationsRepository;
 import com.pharmacyInventory.inventory.repository.StockRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+// Lot-level stock: each Stock row is one batch of a medication in a branch. Sales are
+// allocated first-expiry-first-out across the lots and recorded in the stock ledger.
+//
+// The ledger is authoritative for the quantity on hand; lots only break it down by batch.
+// Every change to a lot's quantity records the matching movement in the same transaction,
+// so lots never hold stock the ledger does not know about. Movements recorded without a lot
+// (till sales, stock counts) leave the lots as they are, so the lots may add up to more than
+// is on hand; an allocation is then refused by the ledger's stock check. Units removed from a
+// lot are written off only as far as they are on hand, so such a lot can still be reduced or
+// deleted.
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StockService {
-    
+
     private final StockRepository stockRepository;
-    
-    
-    public List<Stock> getAllStocks(Long branchId) {
+    private final StockMapper stockMapper;
+    private final MedicationsRepository medicationsRepository;
+    private final LotIndex lotIndex;
+    private final StockLedgerService stockLedgerService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Attempts before giving up when other allocations keep taking the same lots
+    private static final int MAX_ALLOCATION_ATTEMPTS = 3;
+    private static final int MAX_REFERENCE_LENGTH = 255;
+
+    public List<StockDTO> getAllStocks(String branchId) {
         log.info("Fetching all stocks for branch with id: {}", branchId);
-        return stockRepository.findAll();
+        return stockMapper.toStockDTO(stockRepository.findByBranchIdOrderByIdAsc(branchId));
     }
-    
+
     public Optional<Stock> getStockById(Long id) {
         log.info("Fetching stock with id: {}", id);
         return stockRepository.findById(id);
     }
-    
+
+    // Records the change in quantity in the ledger as an adjustment
     public Stock saveStock(Stock stock) {
-        return stockRepository.save(stock);
+        Stock saved = transactionTemplate.execute(status -> {
+            int before = stock.getId() == null ? 0 : stockRepository.findById(stock.getId())
+                    .map(StockService::quantity)
+                    .orElse(0);
+            Stock lot = stockRepository.save(stock);
+            recordLotChange(lot, quantity(lot) - before, "Lot updated");
+            return lot;
+        });
+        lotIndex.invalidate(saved.getBranchId(), saved.getMedication().getMedicationId());
+        return saved;
     }
-    
+
+    // Units left in the lot leave the ledger with it
     public void deleteStock(Long id) {
-        stockRepository.deleteById(id);
+        transactionTemplate.execute(status -> stockRepository.findById(id).map(stock -> {
+            stockRepository.delete(stock);
+            recordLotChange(stock, -quantity(stock), "Lot deleted");
+            return stock;
+        })).ifPresent(stock -> lotIndex.invalidate(stock.getBranchId(), stock.getMedication().getMedicationId()));
+    }
+
+    // Unexpired and expired lots with stock left, in allocation order
+    public List<StockDTO> getLots(Long medicationId, String branchId) {
+        log.info("Fetching lots of medication id: {} for branch: {}", medicationId, branchId);
+        return lotIndex.book(branchId, medicationId).lots().stream()
+                .map(lot -> StockDTO.builder()
+                        .id(lot.stockId())
+                        .branchId(branchId)
+                        .medicationId(medicationId)
+                        .batchNumber(lot.batchNumber())
+                        .expiryDate(lot.expiryDate())
+                        .quantity(lot.quantity())
+                        .build())
+                .toList();
+    }
+
+    // Books a delivered lot and records the receipt in the stock ledger
+    public StockDTO receiveLot(StockDTO stockDTO, String branchId) {
+        if (stockDTO.getMedicationId() == null) {
+            throw new ValidationException("Medication id is required");
+        }
+        if (stockDTO.getQuantity() == null || stockDTO.getQuantity() <= 0) {
+            throw new ValidationException("Lot quantity must be positive");
+        }
+        log.info("Receiving lot {} of {} units for medication id: {}", stockDTO.getBatchNumber(),
+                stockDTO.getQuantity(), stockDTO.getMedicationId());
+
+        Stock saved = transactionTemplate.execute(status -> {
+            Medications medication = medicationsRepository.findByMedicationIdAndBranchId(stockDTO.getMedicationId(), branchId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Medication", "id", stockDTO.getMedicationId()));
+            Stock stock = stockMapper.toStock(stockDTO);
+            stock.setId(null);
+            stock.setBranchId(branchId);
+            stock.setMedication(medication);
+            Stock lot = stockRepository.save(stock);
+            stockLedgerService.record(medication.getMedicationId(), branchId, StockMovementType.RECEIPT,
+                    lot.getQuantity(), "Lot received", "lot:" + lot.getId());
+            return lot;
+        });
+        lotIndex.update(branchId, stockDTO.getMedicationId(), book -> book.put(
+                new LotBook.Lot(saved.getId(), saved.getBatchNumber(), saved.getExpiryDate(), saved.getQuantity())));
+        return stockMapper.toStockDTO(saved);
+    }
+
+    // Picks lots for quantity units, earliest expiry first, skipping expired lots. With commit
+    // the units are taken from the lots and recorded as a sale; otherwise this is a preview.
+    public List<StockAllocationDTO> allocate(Long medicationId, String branchId, int quantity, boolean commit) {
+        if (quantity <= 0) {
+            throw new ValidationException("Quantity to allocate must be positive");
+        }
+        for (int attempt = 1; ; attempt++) {
+            LotBook book = lotIndex.book(branchId, medicationId);
+            List<LotBook.Lot> picks = book.allocate(quantity, LocalDate.now());
+            int allocated = picks.stream().mapToInt(LotBook.Lot::quantity).sum();
+            if (allocated < quantity) {
+                throw new ValidationException("Only " + allocated + " units of medication id: " + medicationId
+                        + " are in unexpired lots, requested: " + quantity);
+            }
+            if (!commit) {
+                return toAllocationDTO(picks);
+            }
+
+            boolean applied = transactionTemplate.execute(status -> {
+                for (LotBook.Lot pick : picks) {
+                    if (stockRepository.takeFromLot(pick.stockId(), pick.quantity()) == 0) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                }
+                stockLedgerService.record(medicationId, branchId, StockMovementType.SALE, quantity,
+                        "FEFO allocation", reference(picks));
+                return true;
+            });
+            if (applied) {
+                book.take(picks);
+                log.info("Allocated {} units of medication id: {} from {} lots", quantity, medicationId, picks.size());
+                return toAllocationDTO(picks);
+            }
+
+            // Another allocation or instance changed the lots since the book was loaded
+            lotIndex.invalidate(branchId, medicationId);
+            if (attempt == MAX_ALLOCATION_ATTEMPTS) {
+                throw new ValidationException("Lots of medication id: " + medicationId
+                        + " are changing concurrently, please retry");
+            }
+            log.debug("Lot book of medication id: {} was stale, reloading (attempt {})", medicationId, attempt);
+        }
+    }
+
+    private void recordLotChange(Stock lot, int delta, String reason) {
+        Long medicationId = lot.getMedication().getMedicationId();
+        if (delta > 0) {
+            stockLedgerService.record(medicationId, lot.getBranchId(), StockMovementType.ADJUSTMENT, delta, reason,
+                    "lot:" + lot.getId());
+        } else if (delta < 0) {
+            int taken = stockLedgerService.takeAtMost(medicationId, lot.getBranchId(), -delta, reason, "lot:" + lot.getId());
+            if (taken < -delta) {
+                log.info("Lot {} of medication id: {} held {} units more than on hand", lot.getId(), medicationId,
+                        -delta - taken);
+            }
+        }
+    }
+
+    private static int quantity(Stock lot) {
+        return lot.getQuantity() != null ? lot.getQuantity() : 0;
+    }
+
+    private String reference(List<LotBook.Lot> picks) {
+        String reference = picks.stream()
+                .map(pick -> String.valueOf(pick.stockId()))
+                .collect(Collectors.joining(",", "lots:", ""));
+        return reference.length() <= MAX_REFERENCE_LENGTH ? reference : reference.substring(0, MAX_REFERENCE_LENGTH);
+    }
+
+    private List<StockAllocationDTO> toAllocationDTO(List<LotBook.Lot> picks) {
+        return picks.stream()
+                .map(pick -> StockAllocationDTO.builder()
+                        .stockId(pick.stockId())
+                        .batchNumber(pick.batchNumber())
+                        .expiryDate(pick.expiryDate())
+                        .quantity(pick.quantity())
+                        .build())
+                .toList();
     }
-    
 }
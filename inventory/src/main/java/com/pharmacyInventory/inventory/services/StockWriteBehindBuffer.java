@@ -0,0 +1,403 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.events.StockMovedEvent;
+import com.pharmacyInventory.inventory.model.StockMovement;
+import com.pharmacyInventory.inventory.repository.StockLedgerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Optional write-behind for high-frequency receipts and sales. Instead of one ledger INSERT
+// per movement, deltas add up in memory per (branch, medication, type) and are flushed as
+// one batch of stock_movements rows every flush-interval-ms or flush-every-ops deltas,
+// whichever comes first. Every delta is written to a local StockJournal first, so deltas
+// buffered when the process dies are replayed on the next start.
+//
+// Reads of the quantity on hand go through read(), which adds the pending deltas to what the
+// database returns and retries if a flush committed in between, so a flushed delta is never
+// counted twice or missed.
+//
+// Pending deltas live in this process only, so the buffer must run on a single instance:
+// another instance would neither see them in its stock checks nor flush them. It is enforced
+// with a session advisory lock taken on startup and held on a dedicated connection; a second
+// instance with the buffer enabled fails to start.
+@Component
+@Slf4j
+public class StockWriteBehindBuffer {
+
+    static final String REFERENCE_PREFIX = "write-behind:";
+
+    // Key of the ownership lock; the two-key form keeps it apart from the single-key
+    // per-medication locks of StockLedgerRepository.lock
+    private static final int OWNERSHIP_LOCK_CLASS = 0x57424246;
+    private static final int STRIPES = 64;
+    // Readers spin this many times while a flush commits, then park between checks
+    private static final int READ_SPINS = 100;
+    private static final long READ_PARK_NANOS = 50_000;
+
+    private record Key(String branchId, Long medicationId, StockMovementType type) { }
+
+    // Deltas journaled to one segment; sealed when the segment is rotated
+    private static final class Batch {
+        final Path segment;
+        final Map<Key, LongAdder> deltas = new ConcurrentHashMap<>();
+        final Map<Long, LongAdder> byMedication = new ConcurrentHashMap<>();
+
+        Batch(Path segment) {
+            this.segment = segment;
+        }
+
+        void add(Key key, long delta) {
+            deltas.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+            byMedication.computeIfAbsent(key.medicationId(), k -> new LongAdder()).add(delta);
+        }
+
+        long pending(Long medicationId) {
+            LongAdder adder = byMedication.get(medicationId);
+            return adder != null ? adder.sum() : 0;
+        }
+    }
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor flushExecutor;
+
+    // Appenders share the read lock; rotating the journal takes the write lock
+    private final ReentrantReadWriteLock rotation = new ReentrantReadWriteLock();
+    // Serializes flushes. Readers never wait on it: it is held while the flush waits for a
+    // connection, which a reader may be holding.
+    private final ReentrantLock flushing = new ReentrantLock();
+    // Serialize the stock check and buffering of outgoing deltas per medication, see serialized()
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Outgoing deltas written by transactions still open, by medication; see reserve()
+    private final Map<Long, Long> reserved = new ConcurrentHashMap<>();
+    // Odd while the pending deltas and the database disagree about a batch (seqlock)
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong opsSinceFlush = new AtomicLong();
+    private final List<Batch> sealed = new CopyOnWriteArrayList<>();
+    private volatile Batch current;
+    private StockJournal journal;
+    private Connection ownership;
+
+    private final Counter deltaCounter;
+    private final Counter flushFailures;
+    private final Timer flushTimer;
+
+    @Value("${inventory.stock.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${inventory.stock.write-behind.flush-every-ops:5000}")
+    private long flushEveryOps;
+
+    @Value("${inventory.stock.write-behind.journal-dir:${java.io.tmpdir}/inventory-stock-journal}")
+    private String journalDir;
+
+    // Force every delta to disk before it is acknowledged. Off, the journal survives a crash
+    // of the process but not of the host.
+    @Value("${inventory.stock.write-behind.journal-sync:false}")
+    private boolean journalSync;
+
+    public StockWriteBehindBuffer(StockLedgerRepository stockLedgerRepository, DataSource dataSource,
+                                  TransactionTemplate transactionTemplate, ApplicationEventPublisher eventPublisher,
+                                  @Qualifier("stockFlushExecutor") Executor flushExecutor, MeterRegistry meterRegistry) {
+        this.stockLedgerRepository = stockLedgerRepository;
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.flushExecutor = flushExecutor;
+        this.deltaCounter = meterRegistry.counter("stock.write_behind.deltas");
+        this.flushFailures = meterRegistry.counter("stock.write_behind.flush.failures");
+        this.flushTimer = meterRegistry.timer("stock.write_behind.flush");
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        Gauge.builder("stock.write_behind.pending.keys", this, StockWriteBehindBuffer::pendingKeys)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Replays segments a previous run left behind. A segment whose batch already reached the
+    // ledger (the process died between commit and delete) is only deleted.
+    @PostConstruct
+    void recover() throws IOException, SQLException {
+        if (!enabled) {
+            return;
+        }
+        claimOwnership();
+        journal = new StockJournal(Path.of(journalDir), journalSync);
+        for (Path segment : journal.existingSegments()) {
+            if (stockLedgerRepository.isReferenced(reference(segment))) {
+                journal.delete(segment);
+                continue;
+            }
+            Batch batch = new Batch(segment);
+            StockJournal.read(segment).forEach(entry ->
+                    batch.add(new Key(entry.branchId(), entry.medicationId(), entry.type()), entry.delta()));
+            sealed.add(batch);
+            log.info("Recovered {} buffered stock deltas from {}", batch.deltas.size(), segment.getFileName());
+        }
+        current = new Batch(journal.rotate());
+    }
+
+    // Runs a stock check and the add() of the delta it allows as one step per medication, so
+    // the next check of the medication sees the delta. Medications share STRIPES locks.
+    public <T> T serialized(Long medicationId, Supplier<T> checkAndAdd) {
+        ReentrantLock stripe = stripes[Math.floorMod(medicationId.hashCode(), STRIPES)];
+        stripe.lock();
+        try {
+            return checkAndAdd.get();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Counts an outgoing delta written inside the current transaction against buffered sales
+    // until the transaction completes: their check reads the database, which does not show
+    // the delta before commit. Taken under the medication's stripe, so a buffered sale either
+    // counts it or was added before it and shows up in the transaction's own check. Between
+    // commit and release the delta is counted twice, which can refuse a sale but not oversell.
+    public void reserve(Long medicationId, int delta) {
+        serialized(medicationId, () -> reserved.merge(medicationId, (long) delta, Long::sum));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reserved.computeIfPresent(medicationId, (id, total) -> total == delta ? null : total - delta);
+            }
+        });
+    }
+
+    // Outgoing deltas of open transactions, for the stock check of buffered sales only
+    public long reserved(Long medicationId) {
+        return reserved.getOrDefault(medicationId, 0L);
+    }
+
+    public void add(String branchId, Long medicationId, StockMovementType type, int delta) {
+        rotation.readLock().lock();
+        try {
+            journal.append(new StockJournal.Entry(branchId, medicationId, type, delta));
+            current.add(new Key(branchId, medicationId, type), delta);
+        } finally {
+            rotation.readLock().unlock();
+        }
+        deltaCounter.increment();
+        if (opsSinceFlush.incrementAndGet() >= flushEveryOps) {
+            opsSinceFlush.set(0);
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    // Buffered deltas of a medication not yet in the database. Only meaningful inside read().
+    public long pending(Long medicationId) {
+        long pending = current.pending(medicationId);
+        for (Batch batch : sealed) {
+            pending += batch.pending(medicationId);
+        }
+        return pending;
+    }
+
+    // Runs a read that combines database quantities with pending(), retrying until no flush
+    // committed while it ran
+    public <T> T read(Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+        for (int spins = 0; ; spins++) {
+            long before = generation.get();
+            if ((before & 1) != 0) {
+                // A flush that already holds its connection is committing
+                if (spins < READ_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(READ_PARK_NANOS);
+                }
+                continue;
+            }
+            T result = read.get();
+            if (generation.get() == before) {
+                return result;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushing.lock();
+        try {
+            seal();
+            for (Batch batch : sealed) {
+                if (!flush(batch)) {
+                    // Keep later batches behind the failed one so they land in journal order
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            flushFailures.increment();
+            log.error("Unable to rotate stock journal", e);
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException, SQLException {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        journal.close();
+        // Closing the session releases the ownership lock
+        ownership.close();
+    }
+
+    private void claimOwnership() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?, 0)")) {
+            // The lock is session-scoped; a transaction left open on this connection would hold
+            // back the ledger fold's horizon for the life of the process
+            connection.setAutoCommit(true);
+            statement.setInt(1, OWNERSHIP_LOCK_CLASS);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next() && rs.getBoolean(1)) {
+                    ownership = connection;
+                    return;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        connection.close();
+        throw new IllegalStateException("Stock write-behind is already enabled on another instance; "
+                + "set inventory.stock.write-behind.enabled=false on all but one");
+    }
+
+    // Moves the current deltas to the sealed batches and starts a new journal segment
+    private void seal() throws IOException {
+        if (current.deltas.isEmpty()) {
+            return;
+        }
+        rotation.writeLock().lock();
+        generation.incrementAndGet();
+        try {
+            Path segment = journal.rotate();
+            sealed.add(current);
+            current = new Batch(segment);
+        } finally {
+            generation.incrementAndGet();
+            rotation.writeLock().unlock();
+        }
+    }
+
+    private boolean flush(Batch batch) {
+        String reference = reference(batch.segment);
+        List<StockMovement> movements = new ArrayList<>();
+        batch.deltas.forEach((key, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                movements.add(StockMovement.builder()
+                        .medicationId(key.medicationId())
+                        .branchId(key.branchId())
+                        .movementType(key.type())
+                        .quantity(Math.toIntExact(delta))
+                        .reason("Write-behind flush")
+                        .reference(reference)
+                        .build());
+            }
+        });
+
+        long start = System.nanoTime();
+        AtomicBoolean committing = new AtomicBoolean();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Readers retry from here until the batch leaves the pending deltas. Entered only
+                // once the transaction holds its connection, so retrying readers cannot starve it.
+                generation.incrementAndGet();
+                committing.set(true);
+                // A previous attempt may have committed before failing to report it
+                if (!stockLedgerRepository.isReferenced(reference)) {
+                    stockLedgerRepository.appendUnchecked(movements);
+                }
+            });
+            sealed.remove(batch);
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.error("Unable to flush {} buffered stock deltas, keeping them for the next flush", movements.size(), e);
+            return false;
+        } finally {
+            if (committing.get()) {
+                generation.incrementAndGet();
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        journal.delete(batch.segment);
+        log.debug("Flushed {} buffered stock deltas to the ledger", movements.size());
+
+        // Separately from the batch: readers spin while it commits, and this takes row locks
+        // that one of them may hold
+        try {
+            transactionTemplate.executeWithoutResult(status -> stockLedgerRepository.refreshStockStatus(
+                    movements.stream().map(StockMovement::getMedicationId).collect(Collectors.toSet())));
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh stock status after a write-behind flush, the next write corrects it", e);
+        }
+
+        movements.stream()
+                .collect(Collectors.groupingBy(StockMovement::getBranchId,
+                        Collectors.mapping(StockMovement::getMedicationId, Collectors.toList())))
+                .forEach((branchId, medicationIds) -> eventPublisher.publishEvent(new StockMovedEvent(branchId, medicationIds)));
+        return true;
+    }
+
+    private double pendingKeys() {
+        Batch batch = current;
+        return (batch != null ? batch.deltas.size() : 0) + sealed.stream().mapToInt(b -> b.deltas.size()).sum();
+    }
+
+    private static String reference(Path segment) {
+        return REFERENCE_PREFIX + StockJournal.name(segment);
+    }
+}
@@ -1,5 +1,6 @@
 package com.pharmacyInventory.inventory.services;
 
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
 import com.pharmacyInventory.inventory.dtos.suppliers.SuppliersDTO;
 import com.pharmacyInventory.inventory.exception.DuplicateResourceException;
 import com.pharmacyInventory.inventory.exception.ResourceNotFoundException;
@@ -9,6 +10,7 @@ import com.pharmacyInventory.inventory.repository.SuppliersRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +37,21 @@ public class SuppliersService {
                 .collect(Collectors.toList());
     }
 
+    // Keyset-paginated listing; sort is "id" (default) or "name"
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SuppliersDTO> listSuppliers(String branchId, String cursor, String sort, Integer size) {
+        log.info("Listing suppliers for branch: {} (sort: {}, size: {})", branchId, sort, size);
+        KeysetCursor position = KeysetCursor.decode(cursor, sort);
+        int pageSize = KeysetCursor.pageSize(size);
+        // One extra row tells whether there is a next page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Suppliers> rows = position.sort() == KeysetCursor.Sort.NAME
+                ? suppliersRepository.findPageAfterName(branchId, position.lastValue(), position.lastId(), limit)
+                : suppliersRepository.findPageAfterId(branchId, position.lastId(), limit);
+        return KeysetCursor.page(rows, pageSize, position.sort(), Suppliers::getId, Suppliers::getName,
+                suppliersMapper::toSuppliersDTO);
+    }
+
     @Transactional(readOnly = true)
     public SuppliersDTO getSuppliersById(Long id, String branchId) {
         log.info("Fetching supplier with id: {} for branch: {}", id, branchId);
@@ -4,6 +4,7 @@ import com.pharmacyInventory.inventory.dtos.transfers.TransfersDTO;
 import com.pharmacyInventory.inventory.mapper.TransfersMapper;
 import com.pharmacyInventory.inventory.model.Transfers;
 import com.pharmacyInventory.inventory.repository.TransfersRepository;
+import com.pharmacyInventory.inventory.repository.projection.TransfersView;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,8 +25,7 @@ public class TransfersService {
 
     public List<TransfersDTO> getAllTransfers(String branchId) {
         log.info("Fetching all transfers");
-        List<Transfers> transfers = transfersRepository.findAllByBranchId(branchId);
-        return transfersMapper.toTransfersDTO(transfers);
+        return transfersMapper.toTransfersDTOFromViews(transfersRepository.findViewsByBranchId(branchId));
     }
 
     public TransfersDTO getTransferById(Long id, String branchId) {
@@ -73,8 +73,7 @@ public class TransfersService {
 
     public List<TransfersDTO> getTransfersByBranch(String branchId, String toBranchId) {
         log.info("Fetching transfers for branch with id: {}", branchId);
-        List<Transfers> transfers = transfersRepository.findByBranchIdOrToBranchId(branchId, toBranchId);
-        return transfersMapper.toTransfersDTO(transfers);   
+        return transfersMapper.toTransfersDTOFromViews(transfersRepository.findViewsByBranchIdOrToBranchId(branchId, toBranchId));
     }
 
     public List<TransfersDTO> searchTransfersByIdorByBranchId(Long id, String branchId) {
@@ -85,7 +84,7 @@ public class TransfersService {
 
     public Page<TransfersDTO> filterByBranchId(String branchId, Pageable pageable) {
         log.info("Fetching transfers for branch with id: {} with pagination", branchId);
-        Page<Transfers> transfers = transfersRepository.findByBranchId(branchId, pageable);
+        Page<TransfersView> transfers = transfersRepository.findViewsByBranchId(branchId, pageable);
         return transfers.map(transfersMapper::toTransfersDTO);
     }
 }
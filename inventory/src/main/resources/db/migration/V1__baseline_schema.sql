@@ -0,0 +1,129 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). Databases that already have
+-- these tables are baselined at version 1 and skip this script (spring.flyway.baseline-on-migrate);
+-- fresh databases get it from here. Later changes go into new versioned scripts.
+
+CREATE TABLE IF NOT EXISTS categories (
+    category_id  bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id    varchar(255) NOT NULL,
+    name         varchar(255) NOT NULL,
+    type         varchar(255) NOT NULL,
+    color        varchar(255) NOT NULL,
+    description  varchar(255),
+    is_active    boolean,
+    created_at   timestamp(6),
+    updated_at   timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS suppliers (
+    id            bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id     varchar(255) NOT NULL,
+    name          varchar(255) NOT NULL,
+    contact_name  varchar(255) NOT NULL,
+    email         varchar(255) NOT NULL,
+    phone         varchar(255) NOT NULL,
+    address       varchar(255) NOT NULL,
+    is_active     boolean,
+    created_at    timestamp(6),
+    updated_at    timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS brands (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id  varchar(255) NOT NULL,
+    name       varchar(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS reference_sources (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id  varchar(255) NOT NULL,
+    name       varchar(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS taxes (
+    id           bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id    varchar(255) NOT NULL,
+    name         varchar(255) NOT NULL,
+    tax_code     varchar(255) NOT NULL,
+    rate         real NOT NULL,
+    description  varchar(255),
+    is_active    boolean,
+    created_at   timestamp(6),
+    updated_at   timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS medications (
+    medication_id   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id       varchar(255) NOT NULL,
+    name            varchar(255) NOT NULL,
+    form_id         bigint NOT NULL REFERENCES categories (category_id),
+    strength        varchar(255) NOT NULL,
+    stock_quantity  integer NOT NULL,
+    reorder_level   integer NOT NULL,
+    price           real NOT NULL,
+    batch_number    varchar(255) NOT NULL,
+    expiry_date     date NOT NULL,
+    description     varchar(255),
+    stock_status    varchar(255),
+    created_at      timestamp(6),
+    updated_at      timestamp(6),
+    category_id     bigint REFERENCES categories (category_id),
+    supplier_id     bigint REFERENCES suppliers (id)
+);
+
+CREATE TABLE IF NOT EXISTS transfers (
+    transfer_id     bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    from_branch_id  varchar(255) NOT NULL,
+    to_branch_id    varchar(255) NOT NULL,
+    quantity        integer NOT NULL,
+    status          varchar(255) NOT NULL,
+    notes           varchar(255),
+    created_at      timestamp(6) NOT NULL,
+    updated_at      timestamp(6),
+    medication_id   bigint NOT NULL REFERENCES medications (medication_id)
+);
+
+CREATE TABLE IF NOT EXISTS stock (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id      varchar(255) NOT NULL,
+    quantity       integer NOT NULL,
+    batch_number   varchar(255),
+    expiry_date    varchar(255),
+    medication_id  bigint NOT NULL REFERENCES medications (medication_id)
+);
+
+CREATE TABLE IF NOT EXISTS equivalents (
+    id                        bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id                 varchar(255) NOT NULL,
+    inn                       varchar(255) NOT NULL,
+    form                      varchar(255) NOT NULL,
+    strength                  varchar(255) NOT NULL,
+    reference_source_name     varchar(255) NOT NULL,
+    brand_ids                 bigint[] NOT NULL,
+    brand_names               varchar(255)[] NOT NULL,
+    created_at                timestamp(6),
+    medication_id             bigint NOT NULL REFERENCES medications (medication_id),
+    equivalent_medication_id  bigint NOT NULL REFERENCES medications (medication_id),
+    category_id               bigint NOT NULL REFERENCES categories (category_id),
+    reference_source_id       bigint NOT NULL REFERENCES reference_sources (id),
+    brand_id                  bigint NOT NULL REFERENCES brands (id)
+);
+
+CREATE TABLE IF NOT EXISTS import_jobs (
+    job_id            bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    branch_id         varchar(255) NOT NULL,
+    type              varchar(255) NOT NULL,
+    status            varchar(255) NOT NULL,
+    file_name         varchar(255) NOT NULL,
+    spool_path        varchar(255) NOT NULL,
+    total_rows        integer,
+    rows_imported     integer NOT NULL,
+    rows_failed       integer NOT NULL,
+    last_row_number   integer NOT NULL,
+    cancel_requested  boolean NOT NULL,
+    error_report      text,
+    failure_reason    varchar(1000),
+    created_at        timestamp(6),
+    started_at        timestamp(6),
+    finished_at       timestamp(6),
+    updated_at        timestamp(6)
+);
@@ -0,0 +1,23 @@
+-- Trigram indexes behind MedicationsSearchRepository. If the database user may not create
+-- the extension the migration still succeeds and search falls back to LIKE matching; run the
+-- statements below by hand once pg_trgm has been installed.
+DO $$
+BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+EXCEPTION WHEN insufficient_privilege THEN
+    RAISE NOTICE 'pg_trgm could not be created, skipping trigram indexes';
+END
+$$;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        CREATE INDEX IF NOT EXISTS idx_medications_name_trgm
+            ON medications USING gin (lower(name) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_medications_strength_trgm
+            ON medications USING gin (lower(strength) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_medications_batch_number_trgm
+            ON medications USING gin (lower(batch_number) gin_trgm_ops);
+    END IF;
+END
+$$;
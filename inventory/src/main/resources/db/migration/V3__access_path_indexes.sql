@@ -0,0 +1,45 @@
+-- Composite and partial indexes for the repository finders. Every branch-scoped finder leads
+-- with the branch column so the planner can range-scan one branch; the trailing column is
+-- whatever the finder filters or sorts on next.
+
+-- medications
+CREATE INDEX IF NOT EXISTS idx_medications_branch_id ON medications (branch_id, medication_id);
+CREATE INDEX IF NOT EXISTS idx_medications_branch_name ON medications (branch_id, name);
+CREATE INDEX IF NOT EXISTS idx_medications_branch_status ON medications (branch_id, stock_status);
+CREATE INDEX IF NOT EXISTS idx_medications_branch_category ON medications (branch_id, category_id);
+CREATE INDEX IF NOT EXISTS idx_medications_branch_expiry ON medications (branch_id, expiry_date);
+-- findByExpiryDateLessThan / findExpiringMedications run across branches
+CREATE INDEX IF NOT EXISTS idx_medications_expiry_in_stock ON medications (expiry_date)
+    WHERE stock_status = 'IN_STOCK';
+-- Alert queries only ever look at the small low / out-of-stock slice
+CREATE INDEX IF NOT EXISTS idx_medications_stock_alerts ON medications (branch_id, stock_status)
+    WHERE stock_status IN ('LOW_STOCK', 'OUT_OF_STOCK');
+
+-- transfers: findByBranchIdOrToBranchId becomes a BitmapOr of the two branch indexes
+CREATE INDEX IF NOT EXISTS idx_transfers_from_branch ON transfers (from_branch_id, transfer_id);
+CREATE INDEX IF NOT EXISTS idx_transfers_to_branch ON transfers (to_branch_id);
+CREATE INDEX IF NOT EXISTS idx_transfers_medication ON transfers (medication_id);
+
+-- equivalents
+CREATE INDEX IF NOT EXISTS idx_equivalents_branch_id ON equivalents (branch_id, id);
+CREATE INDEX IF NOT EXISTS idx_equivalents_branch_inn ON equivalents (branch_id, inn);
+CREATE INDEX IF NOT EXISTS idx_equivalents_medication ON equivalents (medication_id);
+CREATE INDEX IF NOT EXISTS idx_equivalents_equivalent_medication ON equivalents (equivalent_medication_id);
+
+-- stock
+CREATE INDEX IF NOT EXISTS idx_stock_branch ON stock (branch_id);
+CREATE INDEX IF NOT EXISTS idx_stock_medication ON stock (medication_id);
+
+-- reference data
+CREATE INDEX IF NOT EXISTS idx_suppliers_branch_id ON suppliers (branch_id, id);
+CREATE INDEX IF NOT EXISTS idx_suppliers_branch_name ON suppliers (branch_id, name);
+CREATE INDEX IF NOT EXISTS idx_categories_branch_type ON categories (branch_id, type);
+CREATE INDEX IF NOT EXISTS idx_categories_branch_name ON categories (branch_id, name);
+CREATE INDEX IF NOT EXISTS idx_taxes_branch_active ON taxes (branch_id, is_active);
+CREATE INDEX IF NOT EXISTS idx_brands_branch ON brands (branch_id);
+CREATE INDEX IF NOT EXISTS idx_reference_sources_name ON reference_sources (name);
+
+-- import jobs: per-branch history and the startup scan for unfinished jobs
+CREATE INDEX IF NOT EXISTS idx_import_jobs_branch ON import_jobs (branch_id, job_id);
+CREATE INDEX IF NOT EXISTS idx_import_jobs_unfinished ON import_jobs (job_id)
+    WHERE status IN ('QUEUED', 'RUNNING');
@@ -0,0 +1,43 @@
+-- Append-only stock ledger. Stock changes are inserted as movements instead of updating
+-- medications.stock_quantity, which becomes a snapshot: every movement written by a
+-- transaction below stock_folded_below. The quantity on hand is the snapshot plus the
+-- movements from there on, and StockLedgerService folds those into the snapshot in the
+-- background.
+--
+-- Movements are ordered by xact_id, the id of the transaction that wrote them, not by id:
+-- ids are handed out before commit, so a lower id can become visible after a higher one.
+-- The fold only takes movements below the oldest transaction still running
+-- (pg_snapshot_xmin), and nothing can appear behind that any more.
+--
+-- Quantities from before the ledger, and the initial quantity of a new or imported
+-- medication, only exist in the snapshot.
+
+ALTER TABLE medications ADD COLUMN IF NOT EXISTS stock_folded_below bigint NOT NULL DEFAULT 1;
+
+-- No foreign key to medications: movements of a deleted medication stay for the audit trail
+CREATE TABLE IF NOT EXISTS stock_movements (
+    id              bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    medication_id   bigint       NOT NULL,
+    branch_id       varchar(255) NOT NULL,
+    movement_type   varchar(255) NOT NULL,
+    quantity        integer      NOT NULL,
+    reason          varchar(255),
+    reference       varchar(255),
+    xact_id         bigint       NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+    created_at      timestamp(6) NOT NULL DEFAULT clock_timestamp()
+);
+
+-- Tail of one medication (movements from its snapshot on) as an index-only scan
+CREATE INDEX IF NOT EXISTS idx_stock_movements_tail ON stock_movements (medication_id, xact_id) INCLUDE (quantity);
+-- The fold's range of transactions
+CREATE INDEX IF NOT EXISTS idx_stock_movements_xact ON stock_movements (xact_id);
+-- Per-medication history, newest first
+CREATE INDEX IF NOT EXISTS idx_stock_movements_medication ON stock_movements (medication_id, id);
+
+-- How far the snapshots have been folded, one row shared by all instances
+CREATE TABLE IF NOT EXISTS stock_ledger_state (
+    id            integer PRIMARY KEY,
+    folded_below  bigint NOT NULL
+);
+
+INSERT INTO stock_ledger_state (id, folded_below) VALUES (1, 1) ON CONFLICT (id) DO NOTHING;
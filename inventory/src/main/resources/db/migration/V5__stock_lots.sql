@@ -0,0 +1,17 @@
+-- stock rows are lots: one batch of a medication in a branch with its own expiry date.
+-- expiry_date was free text; values that are not a date become NULL (no known expiry).
+
+CREATE FUNCTION pg_temp.to_date_or_null(value text) RETURNS date LANGUAGE plpgsql AS $$
+BEGIN
+    RETURN NULLIF(trim(value), '')::date;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END;
+$$;
+
+ALTER TABLE stock ALTER COLUMN expiry_date TYPE date USING pg_temp.to_date_or_null(expiry_date);
+
+-- First-expiry-first-out lookups: the lots of one medication in one branch, in allocation
+-- order. Empty lots are never allocated from, so they stay out of the index.
+CREATE INDEX IF NOT EXISTS idx_stock_fefo ON stock (branch_id, medication_id, expiry_date, id)
+    WHERE quantity > 0;
@@ -0,0 +1,5 @@
+-- Version columns for optimistic locking (@Version on Medications and Stock). Plain SQL
+-- writes to these tables increment version too, so a JPA save of an entity loaded before
+-- them fails instead of overwriting them.
+ALTER TABLE medications ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE stock ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
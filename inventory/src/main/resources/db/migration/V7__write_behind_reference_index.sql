@@ -0,0 +1,5 @@
+-- Batches flushed by the stock write-behind buffer carry a 'write-behind:<journal segment>'
+-- reference; the buffer looks them up on startup and before retrying a flush, to tell which
+-- journal segments already reached the ledger.
+CREATE INDEX IF NOT EXISTS idx_stock_movements_write_behind ON stock_movements (reference)
+    WHERE reference LIKE 'write-behind:%';
@@ -0,0 +1,5 @@
+-- Import job ownership. The instance running or queueing a job is its owner and refreshes
+-- heartbeat_at while it holds the job; another instance may only take the job over once the
+-- heartbeat is older than the lease, so a live job never runs twice.
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS owner varchar(255);
+ALTER TABLE import_jobs ADD COLUMN IF NOT EXISTS heartbeat_at timestamp(6);
@@ -0,0 +1,89 @@
+-- Opt-in migration: hash-partitions transfers, equivalents and medications on their branch column.
+-- Not run by the application. Apply it once, with the service stopped:
+--
+--     psql -d inventory_service_db -v ON_ERROR_STOP=1 -f partition-by-branch.sql
+--
+-- Why hash and not list: branch ids are free-form strings that appear when a branch starts
+-- writing, so list partitions would need DDL for every new branch. Hash partitions keep a
+-- fixed number of tables and every branch lands in exactly one of them.
+--
+-- Limits of partitioning these tables, all imposed by PostgreSQL:
+--   * A primary key on a partitioned table must contain the partition key, so the keys
+--     become (id, branch column). Ids still come from a single sequence and stay unique.
+--   * A foreign key must reference a unique constraint, so nothing can reference
+--     medications(medication_id) once medications is partitioned. The medication foreign
+--     keys on transfers, equivalents and stock are dropped by the last step. Skip that step
+--     to keep them; transfers and equivalents are partitioned either way.
+--   * Indexes other than the primary key are not copied. Re-run the CREATE INDEX statements
+--     of db/migration/V2 and V3 afterwards (they are all IF NOT EXISTS); on a partitioned
+--     table they create one index per partition.
+--
+-- Partition pruning: every repository query filters with branch_id = :branchId (from_branch_id
+-- for transfers), so only one partition is scanned, at plan time for literals and at executor
+-- startup for bind parameters. Queries that OR in to_branch_id (getTransfersByBranch) cannot
+-- prune and visit every partition through its to_branch_id index. To check a query:
+--
+--     EXPLAIN SELECT * FROM medications WHERE branch_id = 'branch-1';
+--
+-- should show a single medications_pN scan.
+
+BEGIN;
+
+CREATE FUNCTION pg_temp.partition_by_branch(tbl text, id_col text, branch_col text, partitions int)
+RETURNS void LANGUAGE plpgsql AS $$
+DECLARE
+    old_tbl text := tbl || '_unpartitioned';
+    -- Must not clash with the identity sequence that is dropped together with the old table
+    seq text := tbl || '_' || id_col || '_part_seq';
+    r record;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = tbl::regclass) THEN
+        RAISE NOTICE '% is already partitioned, skipping', tbl;
+        RETURN;
+    END IF;
+
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, old_tbl);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY HASH (%I)',
+                   tbl, old_tbl, branch_col);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (%I, %I)', tbl, id_col, branch_col);
+
+    -- The identity column stays behind with the old table; number new rows from a sequence
+    -- that continues where it stopped
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I', seq);
+    EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(%I) FROM %I), 0) + 1, false)', seq, id_col, old_tbl);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN %I SET DEFAULT nextval(%L)', tbl, id_col, seq);
+    EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.%I', seq, tbl, id_col);
+
+    FOR i IN 0 .. partitions - 1 LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                       tbl || '_p' || i, tbl, partitions, i);
+    END LOOP;
+
+    -- Outgoing foreign keys move over unchanged
+    FOR r IN SELECT conname, pg_get_constraintdef(oid) AS def
+             FROM pg_constraint WHERE conrelid = old_tbl::regclass AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', old_tbl, r.conname);
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I %s', tbl, r.conname, r.def);
+    END LOOP;
+
+    -- Incoming foreign keys cannot be recreated (see the header). Only the top-level ones are
+    -- dropped; the copies on the partitions of an already partitioned table go with them.
+    FOR r IN SELECT conname, conrelid::regclass AS child
+             FROM pg_constraint WHERE confrelid = old_tbl::regclass AND contype = 'f' AND conparentid = 0 LOOP
+        RAISE NOTICE 'Dropping foreign key % on % (references partitioned %)', r.conname, r.child, tbl;
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', r.child, r.conname);
+    END LOOP;
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', tbl, old_tbl);
+    EXECUTE format('DROP TABLE %I', old_tbl);
+    EXECUTE format('ANALYZE %I', tbl);
+END;
+$$;
+
+-- Sixteen partitions keep each one small into the hundreds of branches; the modulus can only
+-- be changed by repartitioning, so size it for the expected number of branches.
+SELECT pg_temp.partition_by_branch('transfers', 'transfer_id', 'from_branch_id', 16);
+SELECT pg_temp.partition_by_branch('equivalents', 'id', 'branch_id', 16);
+SELECT pg_temp.partition_by_branch('medications', 'medication_id', 'branch_id', 16);
+
+COMMIT;
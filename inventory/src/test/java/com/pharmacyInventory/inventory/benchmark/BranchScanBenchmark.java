@@ -0,0 +1,125 @@
+package com.pharmacyInventory.inventory.benchmark;
+
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Cost of reading one branch's medications as the number of branches grows, with the plain
+// table and with db/partitioning/partition-by-branch.sql applied. Both run against an
+// embedded PostgreSQL with the V3 indexes, so the difference is the partitioning alone.
+// Run main() on the test classpath (e.g. from the IDE); mvn test does not pick it up.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BranchScanBenchmark {
+
+    private static final int MEDICATIONS_PER_BRANCH = 500;
+
+    @Param({"10", "200"})
+    public int branches;
+
+    @Param({"false", "true"})
+    public boolean partitioned;
+
+    private Connection connection;
+    private PreparedStatement listing;
+    private PreparedStatement keysetPage;
+    private int nextBranch;
+
+    @Setup(Level.Trial)
+    public void seed() throws IOException, SQLException {
+        DataSource dataSource = EmbeddedPostgresDatabases.migrated();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO categories (branch_id, name, type, color) " +
+                "SELECT 'branch-' || b, 'Tablet', 'FORM', '#ffffff' FROM generate_series(1, ?) b", branches);
+        jdbcTemplate.update("INSERT INTO medications (branch_id, name, form_id, strength, stock_quantity, " +
+                "reorder_level, price, batch_number, expiry_date) " +
+                "SELECT c.branch_id, 'Medication ' || m, c.category_id, '500mg', 10, 5, 1.5, 'B' || m, DATE '2030-01-01' " +
+                "FROM categories c CROSS JOIN generate_series(1, ?) m", MEDICATIONS_PER_BRANCH);
+        if (partitioned) {
+            jdbcTemplate.execute(resource("/db/partitioning/partition-by-branch.sql"));
+            jdbcTemplate.execute(resource("/db/migration/V3__access_path_indexes.sql"));
+        }
+        jdbcTemplate.execute("VACUUM ANALYZE medications");
+
+        connection = dataSource.getConnection();
+        listing = connection.prepareStatement(
+                "SELECT medication_id, name, stock_quantity FROM medications WHERE branch_id = ? ORDER BY medication_id");
+        keysetPage = connection.prepareStatement(
+                "SELECT medication_id, name, stock_quantity FROM medications WHERE branch_id = ? AND medication_id > ? " +
+                "ORDER BY medication_id LIMIT 50");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    // Whole branch, as getAllMedications reads it
+    @Benchmark
+    public long branchListing() throws SQLException {
+        listing.setString(1, branch());
+        return drain(listing);
+    }
+
+    // First keyset page, as the cursor listings read it
+    @Benchmark
+    public long branchKeysetPage() throws SQLException {
+        keysetPage.setString(1, branch());
+        keysetPage.setLong(2, 0L);
+        return drain(keysetPage);
+    }
+
+    private String branch() {
+        nextBranch = nextBranch % branches + 1;
+        return "branch-" + nextBranch;
+    }
+
+    private static long drain(PreparedStatement statement) throws SQLException {
+        long sum = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                sum += rs.getLong(1);
+            }
+        }
+        return sum;
+    }
+
+    private static String resource(String path) throws IOException {
+        try (InputStream input = BranchScanBenchmark.class.getResourceAsStream(path)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BranchScanBenchmark.class.getSimpleName()).build()).run();
+    }
+}
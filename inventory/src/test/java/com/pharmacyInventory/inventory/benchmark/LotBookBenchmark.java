@@ -0,0 +1,90 @@
+package com.pharmacyInventory.inventory.benchmark;
+
+import com.pharmacyInventory.inventory.services.LotBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// FEFO allocation from one medication's lot book as the number of lots grows to 10,000.
+// Expiry dates are spread over ten years and today falls halfway, so half the lots have
+// expired and allocation has to seek past them.
+// Run main() on the test classpath (e.g. from the IDE); mvn test does not pick it up.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LotBookBenchmark {
+
+    private static final LocalDate FIRST_EXPIRY = LocalDate.of(2020, 1, 1);
+    private static final int EXPIRY_SPREAD_DAYS = 3650;
+    private static final int UNITS_PER_LOT = 20;
+
+    @Param({"100", "1000", "10000"})
+    public int lots;
+
+    private LotBook book;
+    private LocalDate today;
+    private List<LotBook.Lot> reload;
+    private long nextStockId;
+
+    @Setup(Level.Trial)
+    public void build() {
+        reload = new ArrayList<>(lots);
+        for (int i = 0; i < lots; i++) {
+            reload.add(new LotBook.Lot((long) i, "B" + i, FIRST_EXPIRY.plusDays((long) i * EXPIRY_SPREAD_DAYS / lots), UNITS_PER_LOT));
+        }
+        book = new LotBook(reload);
+        today = FIRST_EXPIRY.plusDays(EXPIRY_SPREAD_DAYS / 2);
+        nextStockId = lots;
+    }
+
+    // A typical sale, covered by the first unexpired lot
+    @Benchmark
+    public List<LotBook.Lot> allocateFromOneLot() {
+        return book.allocate(UNITS_PER_LOT / 2, today);
+    }
+
+    // A bulk order spanning ten lots
+    @Benchmark
+    public List<LotBook.Lot> allocateAcrossTenLots() {
+        return book.allocate(UNITS_PER_LOT * 10, today);
+    }
+
+    // A delivery arriving and being sold out, as receiveLot and allocate apply them
+    @Benchmark
+    public int receiveAndTake() {
+        LotBook.Lot received = new LotBook.Lot(nextStockId++, "N", today.plusDays(30), UNITS_PER_LOT);
+        book.put(received);
+        book.take(List.of(received));
+        return book.size();
+    }
+
+    // Building the book from the lots query, as LotIndex does on first use
+    @Benchmark
+    public LotBook load() {
+        return new LotBook(reload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LotBookBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,61 @@
+package com.pharmacyInventory.inventory.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+class FeignConfigTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void callerAuthorizationIsForwarded() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer caller");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertEquals("Bearer caller", authorizationSent(credentials("Bearer service")));
+    }
+
+    @Test
+    void callsOutsideARequestUseTheServiceCredential() {
+        assertEquals("Bearer service", authorizationSent(credentials("Bearer service")));
+    }
+
+    @Test
+    void noCredentialMeansNoHeader() {
+        RequestTemplate template = new RequestTemplate();
+        new FeignConfig().requestInterceptor(credentials("")).apply(template);
+
+        assertTrue(template.headers().getOrDefault("Authorization", List.of()).isEmpty());
+    }
+
+    private static String authorizationSent(ServiceCredentials serviceCredentials) {
+        RequestInterceptor interceptor = new FeignConfig().requestInterceptor(serviceCredentials);
+        RequestTemplate template = new RequestTemplate();
+        interceptor.apply(template);
+        Collection<String> values = template.headers().get("Authorization");
+        return values.iterator().next();
+    }
+
+    private static ServiceCredentials credentials(String authorization) {
+        ServiceCredentials serviceCredentials = new ServiceCredentials();
+        ReflectionTestUtils.setField(serviceCredentials, "authorization", authorization);
+        return serviceCredentials;
+    }
+}
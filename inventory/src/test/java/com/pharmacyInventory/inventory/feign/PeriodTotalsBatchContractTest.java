@@ -0,0 +1,148 @@
+package com.pharmacyInventory.inventory.feign;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.pharmacyInventory.inventory.config.CustomErrorDecoder;
+import com.pharmacyInventory.inventory.dtos.dashboard.PeriodTotalDTO;
+
+import feign.Feign;
+import feign.Retryer;
+
+// The batched period-total endpoints of the sales and purchase services, against a local
+// WireMock stub: one POST carries every bucket, and the totals come back keyed by period
+class PeriodTotalsBatchContractTest {
+
+    private static final String SALES_BATCH = "/api/sales/total-amount-by-date/batch";
+    private static final String PURCHASES_BATCH = "/api/purchases/total-amount-by-date/batch";
+
+    private static final String REQUEST = """
+            [{"period": "JANUARY 2026", "startDate": "2026-01-01T00:00:00", "endDate": "2026-01-31T23:59:59"},
+             {"period": "FEBRUARY 2026", "startDate": "2026-02-01T00:00:00", "endDate": "2026-02-28T23:59:59"}]""";
+
+    private static final String RESPONSE = """
+            [{"period": "JANUARY 2026", "startDate": "2026-01-01T00:00:00", "endDate": "2026-01-31T23:59:59", "total": 1250.5},
+             {"period": "FEBRUARY 2026", "startDate": "2026-02-01T00:00:00", "endDate": "2026-02-28T23:59:59", "total": null}]""";
+
+    private static WireMockServer wireMock;
+
+    private SalesServiceClient salesClient;
+    private PurchaseServiceClient purchaseClient;
+
+    @BeforeAll
+    static void startStub() {
+        wireMock = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        wireMock.start();
+    }
+
+    @AfterAll
+    static void stopStub() {
+        wireMock.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMock.resetAll();
+        salesClient = client(SalesServiceClient.class);
+        purchaseClient = client(PurchaseServiceClient.class);
+    }
+
+    @Test
+    void salesTotalsForAllPeriodsComeFromOneCall() {
+        wireMock.stubFor(post(urlEqualTo(SALES_BATCH))
+                .withRequestBody(equalToJson(REQUEST, false, true))
+                .willReturn(okJson(RESPONSE)));
+
+        List<PeriodTotalDTO> totals = salesClient.getTotalSalesByDateRanges(periods());
+
+        assertEquals(2, totals.size());
+        assertEquals("JANUARY 2026", totals.get(0).getPeriod());
+        assertEquals(1250.5, totals.get(0).getTotal());
+        assertNull(totals.get(1).getTotal());
+        wireMock.verify(1, postRequestedFor(urlEqualTo(SALES_BATCH)));
+    }
+
+    @Test
+    void purchaseTotalsForAllPeriodsComeFromOneCall() {
+        wireMock.stubFor(post(urlEqualTo(PURCHASES_BATCH))
+                .withRequestBody(equalToJson(REQUEST, false, true))
+                .willReturn(okJson(RESPONSE)));
+
+        List<PeriodTotalDTO> totals = purchaseClient.getTotalPurchasesByDateRanges(periods());
+
+        assertEquals(2, totals.size());
+        assertEquals(LocalDateTime.of(2026, 2, 1, 0, 0), totals.get(1).getStartDate());
+        wireMock.verify(1, postRequestedFor(urlEqualTo(PURCHASES_BATCH)));
+    }
+
+    // DashboardService falls back to per-month calls when the batch call throws
+    @Test
+    void missingBatchEndpointFailsTheCall() {
+        wireMock.stubFor(post(urlEqualTo(SALES_BATCH)).willReturn(aResponse().withStatus(404)));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> salesClient.getTotalSalesByDateRanges(periods()));
+
+        assertEquals("Resource not found", error.getMessage());
+    }
+
+    private static List<PeriodTotalDTO> periods() {
+        return List.of(
+                PeriodTotalDTO.builder()
+                        .period("JANUARY 2026")
+                        .startDate(LocalDateTime.of(2026, 1, 1, 0, 0))
+                        .endDate(LocalDateTime.of(2026, 1, 31, 23, 59, 59))
+                        .build(),
+                PeriodTotalDTO.builder()
+                        .period("FEBRUARY 2026")
+                        .startDate(LocalDateTime.of(2026, 2, 1, 0, 0))
+                        .endDate(LocalDateTime.of(2026, 2, 28, 23, 59, 59))
+                        .build());
+    }
+
+    // The clients as Spring Cloud builds them (Spring MVC annotations, Jackson bodies, the
+    // module's error decoder), pointed at the stub and without retries
+    private static <T> T client(Class<T> type) {
+        MappingJackson2HttpMessageConverter json = new MappingJackson2HttpMessageConverter(
+                Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build());
+        ObjectFactory<HttpMessageConverters> converters = () -> new HttpMessageConverters(false, List.of(json));
+        return Feign.builder()
+                .contract(new SpringMvcContract())
+                .encoder(new SpringEncoder(converters))
+                .decoder(new ResponseEntityDecoder(new SpringDecoder(converters,
+                        new DefaultListableBeanFactory().getBeanProvider(HttpMessageConverterCustomizer.class))))
+                .errorDecoder(new CustomErrorDecoder())
+                .retryer(Retryer.NEVER_RETRY)
+                .target(type, wireMock.baseUrl());
+    }
+}
@@ -0,0 +1,127 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The finders' access paths on a realistically shaped database: 200 branches with 100
+// medications each, plus their transfers, equivalents, lots, stock movements and import
+// history. Each query mirrors what a repository finder sends and must not sequentially scan
+// anything, which is what the db/migration/V3, V4 and V5 indexes are for.
+class AccessPathIndexesTest {
+
+    private static final int BRANCHES = 200;
+    private static final int MEDICATIONS_PER_BRANCH = 100;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static JdbcTemplate jdbcTemplate;
+    private static long medicationId;
+    private static long xactId;
+
+    @BeforeAll
+    static void seed() {
+        jdbcTemplate = new JdbcTemplate(EmbeddedPostgresDatabases.migrated());
+        jdbcTemplate.update("INSERT INTO categories (branch_id, name, type, color) " +
+                "SELECT 'branch-' || b, 'Tablet', 'FORM', '#ffffff' FROM generate_series(1, ?) b", BRANCHES);
+        jdbcTemplate.update("INSERT INTO reference_sources (branch_id, name) VALUES ('branch-1', 'WHO')");
+        jdbcTemplate.update("INSERT INTO brands (branch_id, name) VALUES ('branch-1', 'Brand')");
+        // One in fifty medications low on stock, one in a hundred out of it; expiry dates spread
+        // over four years
+        jdbcTemplate.update("INSERT INTO medications (branch_id, name, form_id, category_id, strength, stock_quantity, " +
+                "reorder_level, price, batch_number, expiry_date, stock_status) " +
+                "SELECT c.branch_id, 'Medication ' || m, c.category_id, c.category_id, '500mg', 10, 5, 1.5, 'B' || m, " +
+                "DATE '2026-01-01' + (m * 37 + c.category_id::int) % 1460, " +
+                "CASE WHEN m % 100 = 0 THEN 'OUT_OF_STOCK' WHEN m % 50 = 0 THEN 'LOW_STOCK' ELSE 'IN_STOCK' END " +
+                "FROM categories c CROSS JOIN generate_series(1, ?) m", MEDICATIONS_PER_BRANCH);
+        jdbcTemplate.update("INSERT INTO transfers (from_branch_id, to_branch_id, quantity, status, created_at, medication_id) " +
+                "SELECT m.branch_id, 'branch-' || (m.medication_id % ? + 1), 1, 'COMPLETED', now(), m.medication_id " +
+                "FROM medications m", BRANCHES);
+        jdbcTemplate.update("INSERT INTO equivalents (branch_id, inn, form, strength, reference_source_name, brand_ids, " +
+                "brand_names, medication_id, equivalent_medication_id, category_id, reference_source_id, brand_id) " +
+                "SELECT m.branch_id, 'inn-' || (m.medication_id % 40), 'Tablet', '500mg', 'WHO', ARRAY[b.id], " +
+                "ARRAY[b.name]::varchar[], m.medication_id, m.medication_id, m.form_id, r.id, b.id " +
+                "FROM medications m CROSS JOIN reference_sources r CROSS JOIN brands b");
+        jdbcTemplate.update("INSERT INTO stock (branch_id, quantity, batch_number, expiry_date, medication_id) " +
+                "SELECT m.branch_id, (m.medication_id % 7)::int, m.batch_number, m.expiry_date, m.medication_id " +
+                "FROM medications m CROSS JOIN generate_series(1, 2)");
+        // Ten transactions' worth of unfolded sales, one per medication each
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("INSERT INTO stock_movements (medication_id, branch_id, movement_type, quantity) " +
+                    "SELECT medication_id, branch_id, 'SALE', -1 FROM medications");
+        }
+        jdbcTemplate.update("INSERT INTO import_jobs (branch_id, type, status, file_name, spool_path, rows_imported, " +
+                "rows_failed, last_row_number, cancel_requested) " +
+                "SELECT 'branch-' || (j % ? + 1), 'MEDICATIONS', CASE WHEN j % 1000 = 0 THEN 'RUNNING' ELSE 'COMPLETED' END, " +
+                "'import.xlsx', '/tmp/import', 0, 0, 0, false FROM generate_series(1, 20000) j", BRANCHES);
+        jdbcTemplate.execute("VACUUM ANALYZE");
+
+        medicationId = jdbcTemplate.queryForObject(
+                "SELECT medication_id FROM medications WHERE branch_id = 'branch-42' ORDER BY medication_id LIMIT 1", Long.class);
+        xactId = jdbcTemplate.queryForObject("SELECT MAX(xact_id) FROM stock_movements", Long.class);
+    }
+
+    static Stream<String> finderQueries() {
+        return Stream.of(
+                // Medications listing and keyset pages by id and by name
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' ORDER BY medication_id",
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' AND medication_id > 0 ORDER BY medication_id LIMIT 51",
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' AND (name > 'Medication 5' " +
+                        "OR (name = 'Medication 5' AND medication_id > 0)) ORDER BY name, medication_id LIMIT 51",
+                // Status, category and expiry filters
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' AND stock_status = 'LOW_STOCK'",
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' AND category_id = 42",
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' AND expiry_date < DATE '2026-03-01'",
+                "SELECT * FROM medications WHERE expiry_date < DATE '2026-01-10' AND stock_status = 'IN_STOCK'",
+                "SELECT * FROM medications WHERE branch_id = 'branch-42' AND stock_status IN ('LOW_STOCK', 'OUT_OF_STOCK')",
+                // Transfers out of and into a branch, and of one medication
+                "SELECT * FROM transfers WHERE from_branch_id = 'branch-42' OR to_branch_id = 'branch-42'",
+                "SELECT * FROM transfers WHERE medication_id = :medication",
+                // Equivalents pages, INN lookup and per medication
+                "SELECT * FROM equivalents WHERE branch_id = 'branch-42' AND id > 0 ORDER BY id LIMIT 51",
+                "SELECT * FROM equivalents WHERE branch_id = 'branch-42' AND inn = 'inn-7'",
+                "SELECT * FROM equivalents WHERE medication_id = :medication",
+                "SELECT * FROM equivalents WHERE equivalent_medication_id = :medication",
+                // Lots: per branch and first-expiry-first-out allocation
+                "SELECT * FROM stock WHERE branch_id = 'branch-42'",
+                "SELECT * FROM stock WHERE branch_id = 'branch-42' AND medication_id = :medication AND quantity > 0 " +
+                        "ORDER BY expiry_date, id",
+                // Ledger tail of one medication, and the next transaction for the fold
+                "SELECT SUM(quantity) FROM stock_movements WHERE medication_id = :medication AND xact_id >= 1",
+                "SELECT xact_id FROM stock_movements WHERE xact_id >= :xact AND xact_id < :xact + 1 " +
+                        "ORDER BY xact_id LIMIT 50000",
+                // Import job history and the startup scan for unfinished jobs
+                "SELECT * FROM import_jobs WHERE branch_id = 'branch-42' ORDER BY job_id DESC LIMIT 20",
+                "SELECT * FROM import_jobs WHERE status IN ('QUEUED', 'RUNNING') ORDER BY job_id");
+    }
+
+    @ParameterizedTest
+    @MethodSource("finderQueries")
+    void finderDoesNotScanWholeTables(String query) throws IOException {
+        String sql = query.replace(":medication", Long.toString(medicationId)).replace(":xact", Long.toString(xactId));
+        JsonNode plan = JSON.readTree(jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class));
+
+        List<String> seqScans = new ArrayList<>();
+        collectSeqScans(plan, seqScans);
+        assertTrue(seqScans.isEmpty(), () -> "Sequential scan of " + seqScans + " for " + sql + "\n" + plan.toPrettyString());
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> seqScans) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            seqScans.add(node.path("Relation Name").asText());
+        }
+        node.forEach(child -> collectSeqScans(child, seqScans));
+    }
+}
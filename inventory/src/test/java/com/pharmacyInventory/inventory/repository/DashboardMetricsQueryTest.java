@@ -0,0 +1,77 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.repository.projection.MedicationMetrics;
+import com.pharmacyInventory.inventory.support.JpaTestConfiguration;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The dashboard aggregate counts the quantity on hand, not the snapshot: the movements below
+// are not folded, so only the ledger tail moves these medications between stock levels.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+class DashboardMetricsQueryTest {
+
+    @Autowired
+    private MedicationsRepository medicationsRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private String branchId;
+
+    @BeforeEach
+    void seed() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        branchId = "branch-" + UUID.randomUUID();
+        long form = SeedRows.form(jdbcTemplate, branchId);
+        // Reorder level 10 and price 1.5 each
+        long sold = SeedRows.medication(jdbcTemplate, branchId, form, "Sold", "500mg", "B1", 20);
+        long emptied = SeedRows.medication(jdbcTemplate, branchId, form, "Emptied", "500mg", "B2", 20);
+        long received = SeedRows.medication(jdbcTemplate, branchId, form, "Received", "500mg", "B3", 0);
+        movement(jdbcTemplate, sold, -15);
+        movement(jdbcTemplate, emptied, -20);
+        movement(jdbcTemplate, received, 30);
+    }
+
+    @Test
+    void metricsAddTheLedgerTail() {
+        LocalDate today = LocalDate.now();
+        MedicationMetrics metrics = medicationsRepository.aggregateDashboardMetrics(
+                branchId, today, today.plusDays(30), today.plusDays(60), today.plusDays(90));
+
+        assertEquals(52.5, metrics.getStockValue(), 0.001);
+        assertEquals(2, metrics.getLowStockItems());
+        assertEquals(1, metrics.getOutOfStock());
+        assertEquals(1, metrics.getLowStock());
+        assertEquals(1, metrics.getInStock());
+    }
+
+    @Test
+    void allBranchesIncludeThisOne() {
+        LocalDate today = LocalDate.now();
+        MedicationMetrics metrics = medicationsRepository.aggregateDashboardMetrics(
+                null, today, today.plusDays(30), today.plusDays(60), today.plusDays(90));
+
+        assertTrue(metrics.getInStock() >= 1);
+        assertTrue(metrics.getStockValue() >= 52.5);
+    }
+
+    private void movement(JdbcTemplate jdbcTemplate, long medicationId, int quantity) {
+        jdbcTemplate.update("INSERT INTO stock_movements (medication_id, branch_id, movement_type, quantity) " +
+                "VALUES (?, ?, 'ADJUSTMENT', ?)", medicationId, branchId, quantity);
+    }
+}
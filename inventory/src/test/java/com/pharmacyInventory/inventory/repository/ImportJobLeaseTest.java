@@ -0,0 +1,69 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.support.JpaTestConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// An unfinished import job is held by one instance until its heartbeat is older than the lease
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+class ImportJobLeaseTest {
+
+    private static final long LEASE_MS = 60_000;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private long jobId;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jobId = jdbcTemplate.queryForObject(
+                "INSERT INTO import_jobs (branch_id, type, status, file_name, spool_path, rows_imported, rows_failed, " +
+                "last_row_number, cancel_requested, owner, heartbeat_at) " +
+                "VALUES ('branch-1', 'INVENTORY', 'RUNNING', 'stock.xlsx', '/tmp/stock.xlsx', 0, 0, 0, false, " +
+                "'instance-a', now()) RETURNING job_id", Long.class);
+    }
+
+    @Test
+    void liveLeaseIsOnlyRenewedByItsOwner() {
+        assertEquals(0, importJobRepository.claim(jobId, "instance-b", LEASE_MS));
+        assertEquals(1, importJobRepository.claim(jobId, "instance-a", LEASE_MS));
+        assertEquals("instance-a", owner());
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        jdbcTemplate.update("UPDATE import_jobs SET heartbeat_at = now() - interval '2 minutes' WHERE job_id = ?", jobId);
+
+        assertEquals(1, importJobRepository.claim(jobId, "instance-b", LEASE_MS));
+        assertEquals("instance-b", owner());
+        assertEquals(0, importJobRepository.claim(jobId, "instance-a", LEASE_MS));
+    }
+
+    @Test
+    void finishedJobIsNotClaimed() {
+        jdbcTemplate.update("UPDATE import_jobs SET status = 'COMPLETED', owner = NULL WHERE job_id = ?", jobId);
+
+        assertEquals(0, importJobRepository.claim(jobId, "instance-b", LEASE_MS));
+    }
+
+    private String owner() {
+        return jdbcTemplate.queryForObject("SELECT owner FROM import_jobs WHERE job_id = ?", String.class, jobId);
+    }
+}
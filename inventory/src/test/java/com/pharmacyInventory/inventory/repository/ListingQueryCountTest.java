@@ -0,0 +1,154 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.Enum.StockStatus;
+import com.pharmacyInventory.inventory.model.Equivalents;
+import com.pharmacyInventory.inventory.repository.projection.EquivalentsView;
+import com.pharmacyInventory.inventory.repository.projection.MedicationsView;
+import com.pharmacyInventory.inventory.repository.projection.TransfersView;
+import com.pharmacyInventory.inventory.support.JpaTestConfiguration;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// The listing queries read their associations in the same statement, however many rows
+// they return. Counted with Hibernate's statistics (hibernate.generate_statistics is on in
+// application.properties), after the rows were written with plain JDBC so nothing is cached.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+class ListingQueryCountTest {
+
+    private static final String BRANCH = "branch-1";
+    private static final int ROWS = 20;
+
+    @Autowired
+    private MedicationsRepository medicationsRepository;
+
+    @Autowired
+    private EquivalentsRepository equivalentsRepository;
+
+    @Autowired
+    private TransfersRepository transfersRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Statistics statistics;
+    private long firstMedication;
+
+    @BeforeEach
+    void seed() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long form = SeedRows.form(jdbcTemplate, BRANCH);
+        long referenceSource = SeedRows.referenceSource(jdbcTemplate, BRANCH, "WHO");
+        long brand = SeedRows.brand(jdbcTemplate, BRANCH, "Brand");
+        Long previous = null;
+        for (int i = 0; i < ROWS; i++) {
+            // A category and a supplier per row, so lazy loading would cost a query per row
+            long category = SeedRows.category(jdbcTemplate, BRANCH, "Category " + i);
+            long supplier = SeedRows.supplier(jdbcTemplate, BRANCH, "Supplier " + i);
+            long medication = SeedRows.medication(jdbcTemplate, BRANCH, form, "Medication " + i, "500mg", "B-" + i, 10);
+            SeedRows.assign(jdbcTemplate, medication, category, supplier);
+            SeedRows.transfer(jdbcTemplate, BRANCH, "branch-2", medication);
+            if (previous != null) {
+                SeedRows.equivalent(jdbcTemplate, BRANCH, previous, medication, category, referenceSource, brand);
+            } else {
+                firstMedication = medication;
+            }
+            previous = medication;
+        }
+
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void medicationListingIsOneStatement() {
+        List<MedicationsView> views = medicationsRepository.findViewsByBranchId(BRANCH);
+
+        assertEquals(ROWS, views.size());
+        assertEquals("Category 3", views.get(3).getCategoryName());
+        assertEquals("Supplier 3", views.get(3).getSupplierName());
+        assertEquals("Tablet", views.get(3).getFormName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void medicationStatusFilterIsOneStatement() {
+        List<MedicationsView> views = medicationsRepository.findViewsByStockStatusAndBranchId(StockStatus.IN_STOCK, BRANCH);
+
+        assertEquals(ROWS, views.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void equivalentListingIsOneStatement() {
+        List<EquivalentsView> views = equivalentsRepository.findViewsByBranchId(BRANCH);
+
+        assertEquals(ROWS - 1, views.size());
+        assertEquals("WHO", views.get(0).getReferenceSourceName());
+        assertEquals("Medication 0", views.get(0).getOriginalMedicationName());
+        assertEquals("Medication 1", views.get(0).getEquivalentMedicationName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void equivalentsOfOneMedicationAreOneStatement() {
+        assertEquals(1, equivalentsRepository.findViewsByOriginalMedicationId(firstMedication).size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // Entity queries with an entity graph: touching the associations loads nothing more
+    @Test
+    void equivalentEntityPageFetchesItsAssociations() {
+        List<Equivalents> page = equivalentsRepository.findPageAfterId(BRANCH, 0L, PageRequest.of(0, ROWS));
+
+        page.forEach(equivalent -> {
+            equivalent.getReferenceSource().getName();
+            equivalent.getOriginalMedication().getName();
+            equivalent.getEquivalentMedication().getName();
+        });
+        assertEquals(ROWS - 1, page.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void transferListingIsOneStatement() {
+        List<TransfersView> views = transfersRepository.findViewsByBranchId(BRANCH);
+
+        assertEquals(ROWS, views.size());
+        views.forEach(view -> assertNotNull(view.getMedicationName()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // One statement for the page, one for the explicit count query
+    @Test
+    void pagedTransferListingIsTwoStatements() {
+        assertEquals(ROWS, transfersRepository.findViewsByBranchId(BRANCH, PageRequest.of(0, 5)).getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
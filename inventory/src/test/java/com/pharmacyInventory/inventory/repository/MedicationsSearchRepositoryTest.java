@@ -0,0 +1,97 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.repository.MedicationsSearchRepository.SearchHit;
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Against the Flyway schema on an embedded PostgreSQL, so the pg_trgm indexes from V2 and
+// the LIKE fallback are both the real thing
+class MedicationsSearchRepositoryTest {
+
+    private static MedicationsSearchRepository repository;
+    private static JdbcTemplate jdbcTemplate;
+    private static long amoxicillin;
+    private static long amoxicillinSyrup;
+    private static long ibuprofen;
+
+    @BeforeAll
+    static void seed() {
+        DataSource dataSource = EmbeddedPostgresDatabases.migrated();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new MedicationsSearchRepository(new NamedParameterJdbcTemplate(dataSource));
+
+        long form = SeedRows.form(jdbcTemplate, "branch-1");
+        amoxicillinSyrup = SeedRows.medication(jdbcTemplate, "branch-1", form, "Co-Amoxicillin Syrup", "250mg/5ml", "LOT-7", 5);
+        amoxicillin = SeedRows.medication(jdbcTemplate, "branch-1", form, "Amoxicillin", "500mg", "AMX-2026", 40);
+        ibuprofen = SeedRows.medication(jdbcTemplate, "branch-1", form, "Ibuprofen", "400mg", "IBU-100%", 12);
+        for (int i = 1; i <= 5; i++) {
+            SeedRows.medication(jdbcTemplate, "branch-1", form, "Paracetamol " + i, "500mg", "PCM-" + i, 1);
+        }
+        long otherForm = SeedRows.form(jdbcTemplate, "branch-2");
+        SeedRows.medication(jdbcTemplate, "branch-2", otherForm, "Amoxicillin", "500mg", "AMX-OTHER", 3);
+    }
+
+    @Test
+    void namePrefixRanksFirst() {
+        List<SearchHit> hits = repository.search("branch-1", "amoxi", 0, 10);
+
+        assertEquals(List.of(amoxicillin, amoxicillinSyrup), ids(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void misspelledNameStillMatchesWithTrigrams() {
+        assumeTrue(trigramInstalled(), "pg_trgm is not available in this PostgreSQL build");
+
+        assertEquals(amoxicillin, repository.search("branch-1", "amoxicilin", 0, 10).get(0).medicationId());
+    }
+
+    @Test
+    void strengthAndBatchNumberMatch() {
+        assertTrue(ids(repository.search("branch-1", "250mg", 0, 10)).contains(amoxicillinSyrup));
+        assertEquals(List.of(amoxicillin), ids(repository.search("branch-1", "amx-2026", 0, 10)));
+    }
+
+    @Test
+    void likeWildcardsInTheQueryAreLiteral() {
+        assertEquals(List.of(ibuprofen), ids(repository.search("branch-1", "100%", 0, 10)));
+    }
+
+    @Test
+    void otherBranchesAreNotSearched() {
+        assertEquals(2, repository.count("branch-1", "amoxicillin"));
+        assertEquals(1, repository.count("branch-2", "amoxicillin"));
+    }
+
+    @Test
+    void pagesFollowTheRankingWithoutOverlap() {
+        List<Long> all = ids(repository.search("branch-1", "paracetamol", 0, 10));
+        List<Long> first = ids(repository.search("branch-1", "paracetamol", 0, 2));
+        List<Long> second = ids(repository.search("branch-1", "paracetamol", 2, 2));
+
+        assertEquals(5, all.size());
+        assertEquals(all.subList(0, 2), first);
+        assertEquals(all.subList(2, 4), second);
+        assertEquals(5, repository.count("branch-1", "paracetamol"));
+    }
+
+    private static boolean trigramInstalled() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::medicationId).toList();
+    }
+}
@@ -0,0 +1,154 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// db/partitioning/partition-by-branch.sql applied to a seeded database, followed by the V3
+// indexes as its header says, then checked with EXPLAIN: a branch filter scans exactly one
+// partition, whether the branch is a literal or a bind parameter.
+class PartitionByBranchTest {
+
+    private static final int BRANCHES = 40;
+    private static final int MEDICATIONS_PER_BRANCH = 5;
+    private static final int PARTITIONS = 16;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static JdbcTemplate jdbcTemplate;
+    private static long maxMedicationIdBefore;
+
+    @BeforeAll
+    static void partition() throws IOException {
+        jdbcTemplate = new JdbcTemplate(EmbeddedPostgresDatabases.migrated());
+        for (int b = 1; b <= BRANCHES; b++) {
+            String branchId = "branch-" + b;
+            long form = SeedRows.form(jdbcTemplate, branchId);
+            long category = SeedRows.category(jdbcTemplate, branchId, "Category");
+            long referenceSource = SeedRows.referenceSource(jdbcTemplate, branchId, "WHO");
+            long brand = SeedRows.brand(jdbcTemplate, branchId, "Brand");
+            long previous = 0;
+            for (int m = 1; m <= MEDICATIONS_PER_BRANCH; m++) {
+                long medication = SeedRows.medication(jdbcTemplate, branchId, form, "Medication " + m, "500mg", "B" + m, 10);
+                SeedRows.transfer(jdbcTemplate, branchId, "branch-" + (b % BRANCHES + 1), medication);
+                if (previous != 0) {
+                    SeedRows.equivalent(jdbcTemplate, branchId, previous, medication, category, referenceSource, brand);
+                }
+                previous = medication;
+            }
+        }
+        maxMedicationIdBefore = jdbcTemplate.queryForObject("SELECT MAX(medication_id) FROM medications", Long.class);
+
+        jdbcTemplate.execute(resource("/db/partitioning/partition-by-branch.sql"));
+        jdbcTemplate.execute(resource("/db/migration/V3__access_path_indexes.sql"));
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void tablesArePartitionedWithTheirRows() {
+        for (String table : List.of("medications", "transfers", "equivalents")) {
+            assertTrue(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = ?::regclass)",
+                    Boolean.class, table), table);
+            assertEquals(PARTITIONS, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = ?::regclass", Integer.class, table), table);
+        }
+        assertEquals(BRANCHES * MEDICATIONS_PER_BRANCH, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM medications WHERE branch_id <> 'branch-new'", Long.class));
+        assertEquals(BRANCHES * MEDICATIONS_PER_BRANCH, count("transfers"));
+        assertEquals(BRANCHES * (MEDICATIONS_PER_BRANCH - 1), count("equivalents"));
+    }
+
+    // Inserts into its own branch, which the row counts above leave out
+    @Test
+    void newRowsContinueTheOldIds() {
+        long form = SeedRows.form(jdbcTemplate, "branch-new");
+        long id = SeedRows.medication(jdbcTemplate, "branch-new", form, "Fresh", "1mg", "N1", 1);
+
+        assertTrue(id > maxMedicationIdBefore);
+    }
+
+    @Test
+    void literalBranchIsPrunedAtPlanTime() throws IOException {
+        JsonNode plan = explain("EXPLAIN (FORMAT JSON) SELECT * FROM medications WHERE branch_id = 'branch-1'");
+
+        assertEquals(List.of(partitionOf("medications", "branch_id", "branch-1")), relations(plan));
+    }
+
+    // What the repositories send: a bind parameter, pruned when the executor starts. A generic
+    // plan is forced so the pruning cannot have happened at plan time.
+    @Test
+    void boundBranchIsPrunedAtExecutorStartup() throws IOException {
+        String json = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                statement.execute("PREPARE by_branch(varchar) AS SELECT * FROM equivalents WHERE branch_id = $1 ORDER BY id");
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (ANALYZE, FORMAT JSON) EXECUTE by_branch('branch-7')")) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+        JsonNode plan = JSON.readTree(json);
+
+        assertEquals(List.of(partitionOf("equivalents", "branch_id", "branch-7")), relations(plan));
+        assertEquals(PARTITIONS - 1, plan.findValue("Subplans Removed").asInt());
+    }
+
+    // Documented limit: OR-ing in to_branch_id keeps every transfers partition in the plan
+    @Test
+    void incomingTransfersCannotBePruned() throws IOException {
+        JsonNode plan = explain("EXPLAIN (FORMAT JSON) SELECT * FROM transfers " +
+                "WHERE from_branch_id = 'branch-1' OR to_branch_id = 'branch-1'");
+
+        assertEquals(PARTITIONS, relations(plan).stream().distinct().count());
+    }
+
+    @Test
+    void runningTheScriptAgainChangesNothing() {
+        assertDoesNotThrow(() -> jdbcTemplate.execute(resource("/db/partitioning/partition-by-branch.sql")));
+        assertEquals(BRANCHES * MEDICATIONS_PER_BRANCH, count("transfers"));
+    }
+
+    private static long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static String partitionOf(String table, String branchColumn, String branchId) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM " + table +
+                " WHERE " + branchColumn + " = ? LIMIT 1", String.class, branchId);
+    }
+
+    private static JsonNode explain(String sql) throws IOException {
+        return JSON.readTree(jdbcTemplate.queryForObject(sql, String.class));
+    }
+
+    private static List<String> relations(JsonNode plan) {
+        List<String> relations = new ArrayList<>();
+        plan.findValues("Relation Name").forEach(name -> relations.add(name.asText()));
+        return relations;
+    }
+
+    private static String resource(String path) throws IOException {
+        try (InputStream input = PartitionByBranchTest.class.getResourceAsStream(path)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
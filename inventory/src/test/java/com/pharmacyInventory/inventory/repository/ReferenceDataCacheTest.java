@@ -0,0 +1,166 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.Enum.CategoryType;
+import com.pharmacyInventory.inventory.model.Brands;
+import com.pharmacyInventory.inventory.model.Categories;
+import com.pharmacyInventory.inventory.model.ReferenceSource;
+import com.pharmacyInventory.inventory.model.Taxes;
+import com.pharmacyInventory.inventory.support.JpaTestConfiguration;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Writes through the repositories, the way CategoriesService, TaxesService, BrandService and
+// ReferenceSourceService make them, invalidate both the cached entities and the cached
+// lookup results. Every repository call commits on its own, as in the services, so the
+// cache sees real transaction boundaries.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = JpaTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private CategoriesRepository categoriesRepository;
+
+    @Autowired
+    private TaxesRepository taxesRepository;
+
+    @Autowired
+    private BrandRepository brandRepository;
+
+    @Autowired
+    private ReferenceSourceRepository referenceSourceRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String branchId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        branchId = "branch-" + UUID.randomUUID();
+    }
+
+    @Test
+    void repeatedLookupIsServedFromTheCache() {
+        categoriesRepository.save(category("Antibiotics"));
+        categoriesRepository.findByBranchId(branchId);
+        statistics.clear();
+
+        assertEquals(1, categoriesRepository.findByBranchId(branchId).size());
+
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void updatedCategoryReplacesTheCachedOne() {
+        Categories saved = categoriesRepository.save(category("Antibiotics"));
+        categoriesRepository.findByBranchId(branchId);
+        categoriesRepository.findById(saved.getId());
+
+        saved.setName("Antivirals");
+        categoriesRepository.save(saved);
+
+        assertEquals(List.of("Antivirals"), categoriesRepository.findByBranchId(branchId).stream()
+                .map(Categories::getName).toList());
+        assertEquals("Antivirals", categoriesRepository.findById(saved.getId()).orElseThrow().getName());
+        assertEquals(1, categoriesRepository.findByType(CategoryType.CATEGORY, branchId).size());
+    }
+
+    @Test
+    void deletedCategoryLeavesTheCache() {
+        Categories saved = categoriesRepository.save(category("Antibiotics"));
+        categoriesRepository.findByBranchId(branchId);
+        categoriesRepository.findById(saved.getId());
+
+        categoriesRepository.delete(saved);
+
+        assertTrue(categoriesRepository.findByBranchId(branchId).isEmpty());
+        assertFalse(categoriesRepository.findById(saved.getId()).isPresent());
+    }
+
+    @Test
+    void newTaxShowsUpInACachedBranchListing() {
+        taxesRepository.save(tax("VAT", true));
+        assertEquals(1, taxesRepository.findAllByBranchId(branchId).size());
+
+        taxesRepository.save(tax("Excise", true));
+
+        assertEquals(2, taxesRepository.findAllByBranchId(branchId).size());
+    }
+
+    @Test
+    void deactivatedTaxLeavesTheCachedActiveListing() {
+        Taxes saved = taxesRepository.save(tax("VAT", true));
+        assertEquals(1, taxesRepository.findByIsActiveAndBranchId(true, branchId).size());
+
+        saved.setIsActive(false);
+        taxesRepository.save(saved);
+
+        assertTrue(taxesRepository.findByIsActiveAndBranchId(true, branchId).isEmpty());
+    }
+
+    @Test
+    void renamedBrandIsNotFoundUnderItsOldName() {
+        String name = "Brand " + branchId;
+        Brands saved = brandRepository.save(Brands.builder().name(name).branchId(branchId).build());
+        assertTrue(brandRepository.findByName(name).isPresent());
+
+        saved.setName(name + " Renamed");
+        brandRepository.save(saved);
+
+        assertFalse(brandRepository.findByName(name).isPresent());
+        assertTrue(brandRepository.findByName(name + " Renamed").isPresent());
+    }
+
+    @Test
+    void deletedReferenceSourceIsNotFound() {
+        String name = "Source " + branchId;
+        ReferenceSource saved = referenceSourceRepository.save(
+                ReferenceSource.builder().name(name).branchId(branchId).build());
+        assertEquals(1, referenceSourceRepository.findByNameIn(List.of(name)).size());
+
+        referenceSourceRepository.deleteById(saved.getId());
+
+        assertTrue(referenceSourceRepository.findByNameIn(List.of(name)).isEmpty());
+        assertFalse(referenceSourceRepository.findByName(name).isPresent());
+    }
+
+    private Categories category(String name) {
+        return Categories.builder()
+                .branchId(branchId)
+                .name(name)
+                .type(CategoryType.CATEGORY)
+                .color("#336699")
+                .build();
+    }
+
+    private Taxes tax(String name, boolean active) {
+        return Taxes.builder()
+                .branchId(branchId)
+                .name(name)
+                .taxCode(name.toUpperCase())
+                .rate(0.16f)
+                .isActive(active)
+                .build();
+    }
+}
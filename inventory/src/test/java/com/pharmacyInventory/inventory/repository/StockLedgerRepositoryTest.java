@@ -0,0 +1,184 @@
+package com.pharmacyInventory.inventory.repository;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.model.StockMovement;
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The stock ledger against the V4 schema: the stock check of append(), the quantity
+// on hand across snapshot and tail, the stock status and the fold's committed horizon.
+class StockLedgerRepositoryTest {
+
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static StockLedgerRepository repository;
+
+    private String branchId;
+    private long medicationId;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = EmbeddedPostgresDatabases.migrated();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new StockLedgerRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        branchId = "branch-" + UUID.randomUUID();
+        medicationId = SeedRows.medication(jdbcTemplate, branchId, SeedRows.form(jdbcTemplate, branchId),
+                "Amoxicillin", "500mg", "B1", 20);
+        foldEverything();
+    }
+
+    @Test
+    void appendAddsToTheQuantityOnHand() {
+        assertArrayEquals(new int[] {1, 1}, repository.append(List.of(
+                movement(StockMovementType.RECEIPT, 5), movement(StockMovementType.SALE, -8))));
+
+        assertEquals(17, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    @Test
+    void appendRejectsAMovementBelowZeroAndOneForAnotherBranch() {
+        StockMovement elsewhere = movement(StockMovementType.RECEIPT, 5);
+        elsewhere.setBranchId("other-branch");
+
+        assertArrayEquals(new int[] {1, 0, 0}, repository.append(List.of(
+                movement(StockMovementType.SALE, -15), movement(StockMovementType.SALE, -6), elsewhere)));
+        assertEquals(5, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    @Test
+    void databaseStampsEachMovement() {
+        transactionTemplate.executeWithoutResult(status -> repository.appendUnchecked(List.of(
+                movement(StockMovementType.RECEIPT, 1), movement(StockMovementType.RECEIPT, 2))));
+
+        List<Long> xactIds = jdbcTemplate.queryForList(
+                "SELECT xact_id FROM stock_movements WHERE medication_id = ? AND created_at IS NOT NULL",
+                Long.class, medicationId);
+        assertEquals(2, xactIds.size());
+        assertEquals(xactIds.get(0), xactIds.get(1));
+        assertTrue(xactIds.get(0) > 0);
+    }
+
+    @Test
+    void refreshedStatusFollowsTheQuantityOnHand() {
+        repository.append(List.of(movement(StockMovementType.SALE, -12)));
+        repository.refreshStockStatus(List.of(medicationId));
+        assertEquals("LOW_STOCK", status());
+
+        repository.append(List.of(movement(StockMovementType.SALE, -8)));
+        repository.refreshStockStatus(List.of(medicationId));
+        assertEquals("OUT_OF_STOCK", status());
+    }
+
+    @Test
+    void unchangedStatusIsNotRewritten() {
+        repository.refreshStockStatus(List.of(medicationId));
+        assertEquals("IN_STOCK", status());
+        long version = version();
+
+        repository.refreshStockStatus(List.of(medicationId));
+
+        assertEquals(version, version());
+    }
+
+    @Test
+    void foldMovesTheTailIntoTheSnapshot() {
+        repository.append(List.of(movement(StockMovementType.RECEIPT, 5), movement(StockMovementType.SALE, -3)));
+
+        foldEverything();
+
+        assertEquals(22, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM medications WHERE medication_id = ?", Integer.class, medicationId));
+        assertEquals(22, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    // A transaction still open when the fold runs holds it back, even past later committed
+    // ones, so its movement is counted exactly once whenever it commits
+    @Test
+    void foldStopsBelowATransactionStillRunning() throws Exception {
+        try (Connection open = dataSource.getConnection()) {
+            open.setAutoCommit(false);
+            try (PreparedStatement insert = open.prepareStatement(
+                    "INSERT INTO stock_movements (medication_id, branch_id, movement_type, quantity) " +
+                    "VALUES (?, ?, 'RECEIPT', 7)")) {
+                insert.setLong(1, medicationId);
+                insert.setString(2, branchId);
+                insert.executeUpdate();
+            }
+            repository.append(List.of(movement(StockMovementType.RECEIPT, 3)));
+
+            transactionTemplate.execute(status -> repository.fold(1000));
+
+            assertEquals(20, jdbcTemplate.queryForObject(
+                    "SELECT stock_quantity FROM medications WHERE medication_id = ?", Integer.class, medicationId));
+            assertEquals(23, repository.onHand(medicationId, branchId).orElseThrow());
+
+            open.commit();
+        }
+        assertEquals(30, repository.onHand(medicationId, branchId).orElseThrow());
+
+        foldEverything();
+
+        assertEquals(30, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM medications WHERE medication_id = ?", Integer.class, medicationId));
+        assertEquals(30, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    @Test
+    void foldTakesWholeTransactions() {
+        transactionTemplate.executeWithoutResult(status -> repository.appendUnchecked(List.of(
+                movement(StockMovementType.RECEIPT, 1), movement(StockMovementType.RECEIPT, 2),
+                movement(StockMovementType.RECEIPT, 3))));
+
+        transactionTemplate.execute(status -> repository.fold(1));
+
+        assertEquals(26, jdbcTemplate.queryForObject(
+                "SELECT stock_quantity FROM medications WHERE medication_id = ?", Integer.class, medicationId));
+    }
+
+    private void foldEverything() {
+        while (!transactionTemplate.execute(status -> repository.fold(10_000)).isEmpty()) {
+            // until the ledger is folded up to the horizon
+        }
+    }
+
+    private StockMovement movement(StockMovementType type, int quantity) {
+        return StockMovement.builder()
+                .medicationId(medicationId)
+                .branchId(branchId)
+                .movementType(type)
+                .quantity(quantity)
+                .build();
+    }
+
+    private String status() {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_status FROM medications WHERE medication_id = ?", String.class, medicationId);
+    }
+
+    private long version() {
+        return jdbcTemplate.queryForObject(
+                "SELECT version FROM medications WHERE medication_id = ?", Long.class, medicationId);
+    }
+}
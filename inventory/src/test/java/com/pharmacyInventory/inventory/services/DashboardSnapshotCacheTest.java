@@ -0,0 +1,121 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.events.MedicationsChangedEvent;
+import com.pharmacyInventory.inventory.events.StockMovedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardSnapshotCacheTest {
+
+    private static final Map<String, Object> VALUES = Map.of("totalMedications", 42L);
+
+    private AnnotationConfigApplicationContext context;
+    private DashboardSnapshotCache cache;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(SimpleMeterRegistry.class);
+        context.registerBean(TransactionalEventListenerFactory.class);
+        context.registerBean(DashboardSnapshotCache.class);
+        context.refresh();
+        cache = context.getBean(DashboardSnapshotCache.class);
+        meterRegistry = context.getBean(MeterRegistry.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void snapshotIsServedUntilItsBranchChanges() {
+        cache.putInventory("branch-1", VALUES, cache.currentGeneration());
+        cache.putInventory("branch-2", VALUES, cache.currentGeneration());
+
+        context.publishEvent(MedicationsChangedEvent.of("branch-1", 7L));
+
+        assertFalse(cache.getInventory("branch-1").isPresent());
+        assertEquals(VALUES, cache.getInventory("branch-2").orElseThrow());
+    }
+
+    @Test
+    void changeWithoutBranchDropsEverySnapshot() {
+        cache.putInventory("branch-1", VALUES, cache.currentGeneration());
+        cache.putInventory("branch-2", VALUES, cache.currentGeneration());
+
+        context.publishEvent(new StockMovedEvent(null, List.of(7L)));
+
+        assertFalse(cache.getInventory("branch-1").isPresent());
+        assertFalse(cache.getInventory("branch-2").isPresent());
+    }
+
+    @Test
+    void sectionComputedAcrossAChangeIsNotStored() {
+        long generation = cache.currentGeneration();
+        context.publishEvent(StockMovedEvent.of("branch-1", 7L));
+
+        cache.putInventory("branch-1", VALUES, generation);
+
+        assertFalse(cache.getInventory("branch-1").isPresent());
+    }
+
+    // A write inside a transaction must not drop the snapshot before it commits: a section
+    // recomputed in between would read, and then cache, the old numbers
+    @Test
+    void invalidationWaitsForTheWriterToCommit() {
+        cache.putInventory("branch-1", VALUES, cache.currentGeneration());
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            context.publishEvent(StockMovedEvent.of("branch-1", 7L));
+            assertTrue(cache.getInventory("branch-1").isPresent());
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(cache.getInventory("branch-1").isPresent());
+    }
+
+    @Test
+    void hitRatioIsPublished() {
+        cache.putInventory("branch-1", VALUES, cache.currentGeneration());
+
+        cache.getInventory("branch-1");
+        cache.getInventory("branch-1");
+        cache.getInventory("branch-1");
+        cache.getInventory("branch-2");
+
+        assertEquals(0.75, meterRegistry.get("dashboard.snapshot.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void remoteSnapshotOlderThanTheRequestedAgeIsAMiss() throws InterruptedException {
+        cache.putRemote("totals", VALUES);
+        Thread.sleep(20);
+
+        assertTrue(cache.getRemote("totals").isPresent());
+        assertFalse(cache.getRemote("totals", 10).isPresent());
+    }
+}
@@ -0,0 +1,91 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.dtos.common.CursorPageDTO;
+import com.pharmacyInventory.inventory.exception.ValidationException;
+import com.pharmacyInventory.inventory.services.KeysetCursor.Sort;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    private record Row(long id, String name) { }
+
+    @Test
+    void tokenRoundTripsIncludingSeparatorsInTheName() {
+        KeysetCursor cursor = new KeysetCursor(Sort.NAME, 42L, "Vitamin B\n12 / 100%");
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode(), "name"));
+    }
+
+    @Test
+    void missingTokenStartsAtTheFirstPage() {
+        assertEquals(KeysetCursor.first(Sort.ID), KeysetCursor.decode(null, null));
+        assertEquals(KeysetCursor.first(Sort.NAME), KeysetCursor.decode(" ", "Name"));
+    }
+
+    @Test
+    void tokenIsRejectedForAnotherSort() {
+        String token = new KeysetCursor(Sort.ID, 7L, "").encode();
+
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode(token, "name"));
+    }
+
+    @Test
+    void malformedTokensAndSortsAreValidationErrors() {
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode("not base64!", "id"));
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode("SUQ", "id"));
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode(null, "price"));
+    }
+
+    @Test
+    void pageSizeIsDefaultedAndCapped() {
+        assertEquals(KeysetCursor.DEFAULT_PAGE_SIZE, KeysetCursor.pageSize(null));
+        assertEquals(KeysetCursor.DEFAULT_PAGE_SIZE, KeysetCursor.pageSize(0));
+        assertEquals(20, KeysetCursor.pageSize(20));
+        assertEquals(KeysetCursor.MAX_PAGE_SIZE, KeysetCursor.pageSize(10_000));
+    }
+
+    @Test
+    void extraRowMeansAnotherPageStartingAfterTheLastItem() {
+        List<Row> rows = List.of(new Row(3, "Aspirin"), new Row(5, "Aspirin"), new Row(2, "Ibuprofen"));
+
+        CursorPageDTO<String> page = page(rows, 2, Sort.NAME);
+
+        assertEquals(List.of("Aspirin", "Aspirin"), page.getItems());
+        assertEquals(2, page.getSize());
+        assertEquals("name", page.getSort());
+        assertNotNull(page.getNextCursor());
+        assertEquals(new KeysetCursor(Sort.NAME, 5L, "Aspirin"), KeysetCursor.decode(page.getNextCursor(), "name"));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        List<Row> rows = List.of(new Row(1, "Aspirin"), new Row(2, "Ibuprofen"));
+
+        CursorPageDTO<String> page = page(rows, 2, Sort.ID);
+
+        assertEquals(2, page.getSize());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void idCursorDoesNotCarryTheName() {
+        List<Row> rows = List.of(new Row(1, "Aspirin"), new Row(2, "Ibuprofen"));
+
+        CursorPageDTO<String> page = page(rows, 1, Sort.ID);
+
+        assertEquals(new KeysetCursor(Sort.ID, 1L, ""), KeysetCursor.decode(page.getNextCursor(), "id"));
+    }
+
+    private static CursorPageDTO<String> page(List<Row> rows, int size, Sort sort) {
+        Function<List<Row>, List<String>> names = items -> items.stream().map(Row::name).toList();
+        return KeysetCursor.page(rows, size, sort, Row::id, Row::name, names);
+    }
+}
@@ -0,0 +1,94 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.services.LotBook.Lot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LotBookTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 1);
+
+    @Test
+    void allocatesEarliestExpiryFirst() {
+        LotBook book = new LotBook(List.of(
+                lot(1, TODAY.plusMonths(6), 10),
+                lot(2, TODAY.plusMonths(1), 4),
+                lot(3, TODAY.plusMonths(3), 10)));
+
+        assertEquals(List.of(lot(2, TODAY.plusMonths(1), 4), lot(3, TODAY.plusMonths(3), 3)), book.allocate(7, TODAY));
+    }
+
+    @Test
+    void lotsWithoutExpiryComeLast() {
+        LotBook book = new LotBook(List.of(lot(1, null, 10), lot(2, TODAY.plusYears(5), 10)));
+
+        assertEquals(List.of(2L, 1L), book.lots().stream().map(Lot::stockId).toList());
+    }
+
+    @Test
+    void sameExpiryIsOrderedByStockId() {
+        LotBook book = new LotBook(List.of(lot(9, TODAY, 1), lot(4, TODAY, 1), lot(6, TODAY, 1)));
+
+        assertEquals(List.of(4L, 6L, 9L), book.lots().stream().map(Lot::stockId).toList());
+    }
+
+    // A lot expiring today can still be sold today
+    @Test
+    void skipsLotsExpiredBeforeToday() {
+        LotBook book = new LotBook(List.of(lot(1, TODAY.minusDays(1), 10), lot(2, TODAY, 10)));
+
+        assertEquals(List.of(lot(2, TODAY, 5)), book.allocate(5, TODAY));
+    }
+
+    @Test
+    void fallsShortWhenUnexpiredLotsHoldTooLittle() {
+        LotBook book = new LotBook(List.of(lot(1, TODAY.minusDays(1), 10), lot(2, TODAY.plusDays(1), 3)));
+
+        assertEquals(3, book.allocate(5, TODAY).stream().mapToInt(Lot::quantity).sum());
+    }
+
+    @Test
+    void allocatingLeavesTheBookAlone() {
+        LotBook book = new LotBook(List.of(lot(1, TODAY, 10)));
+
+        book.allocate(4, TODAY);
+
+        assertEquals(List.of(lot(1, TODAY, 10)), book.lots());
+    }
+
+    @Test
+    void takeReducesLotsAndDropsEmptyOnes() {
+        LotBook book = new LotBook(List.of(lot(1, TODAY, 4), lot(2, TODAY.plusDays(1), 10)));
+
+        book.take(book.allocate(7, TODAY));
+
+        assertEquals(List.of(lot(2, TODAY.plusDays(1), 7)), book.lots());
+    }
+
+    @Test
+    void putReplacesALotAndRemovesItWhenEmpty() {
+        LotBook book = new LotBook(List.of(lot(1, TODAY, 4)));
+
+        book.put(lot(1, TODAY.plusDays(3), 8));
+        assertEquals(List.of(lot(1, TODAY.plusDays(3), 8)), book.lots());
+
+        book.put(lot(1, TODAY.plusDays(3), 0));
+        assertTrue(book.lots().isEmpty());
+    }
+
+    @Test
+    void emptyLotsAreNotKept() {
+        LotBook book = new LotBook(List.of(lot(1, TODAY, 0), lot(2, TODAY, 5)));
+
+        assertEquals(1, book.size());
+    }
+
+    private static Lot lot(long stockId, LocalDate expiryDate, int quantity) {
+        return new Lot(stockId, "B" + stockId, expiryDate, quantity);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.model.Stock;
+import com.pharmacyInventory.inventory.repository.StockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Loading and updating books against a StockRepository stand-in that only answers
+// findAvailableLots
+class LotIndexTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile Supplier<List<Stock>> lots = () -> List.of(lot(1, 10));
+    private LotIndex index;
+
+    @BeforeEach
+    void setUp() {
+        StockRepository repository = (StockRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {StockRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findAvailableLots")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    loads.incrementAndGet();
+                    return lots.get();
+                });
+        index = new LotIndex(repository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "maxBranches", 50);
+    }
+
+    @Test
+    void bookIsLoadedOnce() {
+        LotBook book = index.book("branch-1", 1L);
+
+        assertSame(book, index.book("branch-1", 1L));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        lots = () -> {
+            loading.countDown();
+            await(release);
+            return List.of(lot(1, 10));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<LotBook> first = executor.submit(() -> index.book("branch-1", 1L));
+            loading.await(5, TimeUnit.SECONDS);
+            List<Future<LotBook>> waiting = List.of(
+                    executor.submit(() -> index.book("branch-1", 1L)),
+                    executor.submit(() -> index.book("branch-1", 1L)));
+            // Another book of the branch does not wait for the slow one
+            lots = () -> List.of(lot(2, 5));
+            assertEquals(5, index.book("branch-1", 2L).lots().get(0).quantity());
+
+            release.countDown();
+            for (Future<LotBook> other : waiting) {
+                assertSame(first.get(5, TimeUnit.SECONDS), other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(2, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadIsTriedAgain() {
+        lots = () -> {
+            throw new IllegalStateException("database unavailable");
+        };
+        assertThrows(IllegalStateException.class, () -> index.book("branch-1", 1L));
+
+        lots = () -> List.of(lot(1, 10));
+        assertEquals(1, index.book("branch-1", 1L).size());
+    }
+
+    @Test
+    void updateChangesALoadedBookOnly() {
+        index.update("branch-1", 1L, book -> book.put(new LotBook.Lot(2L, "B2", LocalDate.of(2030, 1, 1), 3)));
+        assertEquals(0, loads.get());
+
+        LotBook book = index.book("branch-1", 1L);
+        index.update("branch-1", 1L, added -> added.put(new LotBook.Lot(2L, "B2", LocalDate.of(2030, 1, 1), 3)));
+
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    void invalidatedBookIsReloaded() {
+        LotBook book = index.book("branch-1", 1L);
+
+        index.invalidate("branch-1", 1L);
+
+        assertTrue(book != index.book("branch-1", 1L));
+        assertEquals(2, loads.get());
+    }
+
+    private static Stock lot(long id, int quantity) {
+        return Stock.builder().id(id).branchId("branch-1").quantity(quantity)
+                .batchNumber("B" + id).expiryDate(LocalDate.of(2030, 1, 1)).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.pharmacyInventory.inventory.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticLockRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticLockRetry retry;
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retry = new OptimisticLockRetry(meterRegistry);
+        ReflectionTestUtils.setField(retry, "maxAttempts", 4);
+        ReflectionTestUtils.setField(retry, "backoffMs", 1L);
+        ReflectionTestUtils.setField(retry, "maxBackoffMs", 2L);
+    }
+
+    @AfterEach
+    void clearTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void conflictIsRetriedUntilTheWriteSucceeds() {
+        String result = retry.execute("medications.update", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Medications", 1L);
+            }
+            return "saved";
+        });
+
+        assertEquals("saved", result);
+        assertEquals(3, attempts.get());
+        assertEquals(1, count("optimistic.lock.writes"));
+        assertEquals(2, count("optimistic.lock.conflicts"));
+        assertEquals(0, count("optimistic.lock.exhausted"));
+    }
+
+    @Test
+    void jpaConflictIsRetriedToo() {
+        retry.run("stock.update", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new OptimisticLockException("stale");
+            }
+        });
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        assertThrows(OptimisticLockingFailureException.class, () -> retry.run("medications.update", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(4, attempts.get());
+        assertEquals(4, count("optimistic.lock.conflicts"));
+        assertEquals(1, count("optimistic.lock.exhausted"));
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        assertThrows(IllegalStateException.class, () -> retry.run("medications.update", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("broken");
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    // The surrounding transaction is already marked for rollback; retrying inside it cannot help
+    @Test
+    void runsOnceInsideATransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> retry.run("medications.update", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, count("optimistic.lock.writes"));
+    }
+
+    @Test
+    void interruptedBackoffStopsRetrying() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(OptimisticLockingFailureException.class, () -> retry.run("medications.update", () -> {
+                attempts.incrementAndGet();
+                throw new OptimisticLockingFailureException("stale");
+            }));
+
+            assertEquals(1, attempts.get());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).tag("operation", "medications.update").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+}
@@ -0,0 +1,76 @@
+package com.pharmacyInventory.inventory.services;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpooledSharedStringsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void stringsAreReadBackFromTheFile() throws Exception {
+        Path file = directory.resolve("strings.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue("Amoxicillin");
+            row.createCell(1).setCellValue("Paracétamol 500 µg");
+            row.createCell(2).setCellValue("Amoxicillin");
+            XSSFRichTextString rich = new XSSFRichTextString("Bold and plain");
+            XSSFFont bold = workbook.createFont();
+            bold.setBold(true);
+            rich.applyFont(0, 4, bold);
+            row.createCell(3).setCellValue(rich);
+            try (OutputStream output = Files.newOutputStream(file)) {
+                workbook.write(output);
+            }
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             SpooledSharedStrings strings = new SpooledSharedStrings(pkg)) {
+            assertEquals(3, strings.getUniqueCount());
+            assertEquals("Amoxicillin", strings.getItemAt(0).getString());
+            assertEquals("Paracétamol 500 µg", strings.getItemAt(1).getString());
+            assertEquals("Bold and plain", strings.getItemAt(2).getString());
+            assertThrows(IndexOutOfBoundsException.class, () -> strings.getItemAt(3));
+        }
+    }
+
+    @Test
+    void temporaryFileIsRemovedOnClose() throws Exception {
+        Path file = directory.resolve("empty.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet().createRow(0).createCell(0).setCellValue(1);
+            try (OutputStream output = Files.newOutputStream(file)) {
+                workbook.write(output);
+            }
+        }
+
+        Path spooled;
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             SpooledSharedStrings strings = new SpooledSharedStrings(pkg)) {
+            spooled = (Path) ReflectionTestUtils.getField(strings, "file");
+            assertTrue(Files.exists(spooled));
+            assertEquals(0, strings.getCount());
+        }
+        assertFalse(Files.exists(spooled));
+    }
+}
@@ -0,0 +1,126 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.services.SpreadsheetStreamReader.SheetRow;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpreadsheetStreamReaderTest {
+
+    private final SpreadsheetStreamReader reader = new SpreadsheetStreamReader();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rowsArriveInChunksWithoutTheHeader() throws IOException {
+        Path file = write(5);
+        List<List<SheetRow>> chunks = new ArrayList<>();
+
+        int rows = reader.read(file, 2, chunks::add);
+
+        assertEquals(5, rows);
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        assertEquals(2, chunks.get(0).get(0).rowNumber());
+        assertEquals("Medication 1", chunks.get(0).get(0).cell(0));
+        assertEquals("Medication 5", chunks.get(2).get(0).cell(0));
+    }
+
+    @Test
+    void blankCellsArePaddedAndBlankRowsSkipped() throws IOException {
+        Path file = directory.resolve("gaps.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            header(sheet);
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("Amoxicillin");
+            row.createCell(3).setCellValue(12);
+            sheet.createRow(2).createCell(1).setCellValue("  ");
+            sheet.createRow(3).createCell(0).setCellValue("Ibuprofen");
+            save(workbook, file);
+        }
+        List<SheetRow> rows = new ArrayList<>();
+
+        reader.read(file, 100, rows::addAll);
+
+        assertEquals(2, rows.size());
+        assertEquals("", rows.get(0).cell(1));
+        assertEquals("", rows.get(0).cell(2));
+        assertEquals("12", rows.get(0).cell(3));
+        assertEquals("", rows.get(0).cell(9));
+        assertEquals(4, rows.get(1).rowNumber());
+    }
+
+    @Test
+    void datesReadAsIsoWhateverTheirDisplayFormat() throws IOException {
+        Path file = directory.resolve("dates.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            header(sheet);
+            CellStyle dayFirst = workbook.createCellStyle();
+            dayFirst.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy"));
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("Insulin");
+            row.createCell(1).setCellValue(LocalDate.of(2027, 3, 9));
+            row.getCell(1).setCellStyle(dayFirst);
+            save(workbook, file);
+        }
+        List<SheetRow> rows = new ArrayList<>();
+
+        reader.read(file, 100, rows::addAll);
+
+        assertEquals("2027-03-09", rows.get(0).cell(1));
+    }
+
+    @Test
+    void uploadStreamIsReadLikeAFile() throws IOException {
+        Path file = write(3);
+        List<SheetRow> rows = new ArrayList<>();
+
+        try (InputStream input = Files.newInputStream(file)) {
+            assertEquals(3, reader.read(input, 100, rows::addAll));
+        }
+        assertEquals("Medication 3", rows.get(2).cell(0));
+    }
+
+    private Path write(int dataRows) throws IOException {
+        Path file = directory.resolve("medications-" + dataRows + ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            header(sheet);
+            for (int i = 1; i <= dataRows; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("Medication " + i);
+                row.createCell(1).setCellValue(i * 10);
+            }
+            save(workbook, file);
+        }
+        return file;
+    }
+
+    private static void header(Sheet sheet) {
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("Name");
+        header.createCell(1).setCellValue("Quantity");
+    }
+
+    private static void save(XSSFWorkbook workbook, Path file) throws IOException {
+        try (OutputStream output = Files.newOutputStream(file)) {
+            workbook.write(output);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.services.StockJournal.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void entriesAreReadBackInOrder() throws IOException {
+        StockJournal journal = new StockJournal(directory, false);
+        Path segment = journal.rotate();
+        journal.append(new Entry("branch-1", 7L, StockMovementType.SALE, -3));
+        journal.append(new Entry("branch-1", 8L, StockMovementType.RECEIPT, 12));
+        journal.close();
+
+        assertEquals(List.of(
+                new Entry("branch-1", 7L, StockMovementType.SALE, -3),
+                new Entry("branch-1", 8L, StockMovementType.RECEIPT, 12)), StockJournal.read(segment));
+    }
+
+    @Test
+    void branchIdsWithSeparatorsSurvive() throws IOException {
+        StockJournal journal = new StockJournal(directory, true);
+        Path segment = journal.rotate();
+        Entry entry = new Entry("north\tbranch %2 ü\n", 1L, StockMovementType.SALE, -1);
+        journal.append(entry);
+        journal.close();
+
+        assertEquals(List.of(entry), StockJournal.read(segment));
+    }
+
+    // What a crash in the middle of a write leaves behind
+    @Test
+    void tornLastLineIsSkipped() throws IOException {
+        StockJournal journal = new StockJournal(directory, false);
+        Path segment = journal.rotate();
+        journal.append(new Entry("branch-1", 7L, StockMovementType.SALE, -3));
+        journal.close();
+        Files.writeString(segment, "branch-1\t8\tREC", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(new Entry("branch-1", 7L, StockMovementType.SALE, -3)), StockJournal.read(segment));
+    }
+
+    @Test
+    void rotatingStartsAFreshSegment() throws IOException {
+        StockJournal journal = new StockJournal(directory, false);
+        Path first = journal.rotate();
+        journal.append(new Entry("branch-1", 7L, StockMovementType.SALE, -3));
+        Path second = journal.rotate();
+        journal.append(new Entry("branch-1", 7L, StockMovementType.SALE, -4));
+        journal.close();
+
+        assertEquals(1, StockJournal.read(first).size());
+        assertEquals(List.of(new Entry("branch-1", 7L, StockMovementType.SALE, -4)), StockJournal.read(second));
+        assertTrue(StockJournal.name(first).compareTo(StockJournal.name(second)) < 0);
+    }
+
+    @Test
+    void segmentsOfEarlierRunsAreListedOldestFirst() throws IOException {
+        StockJournal earlier = new StockJournal(directory, false);
+        Path first = earlier.rotate();
+        Path second = earlier.rotate();
+        earlier.close();
+        Files.writeString(directory.resolve("unrelated.txt"), "ignored");
+
+        StockJournal next = new StockJournal(directory, false);
+
+        assertEquals(List.of(first, second), next.existingSegments());
+    }
+
+    @Test
+    void segmentNamesDoNotRepeatAcrossRuns() throws IOException {
+        StockJournal one = new StockJournal(directory, false);
+        StockJournal other = new StockJournal(directory, false);
+
+        String name = StockJournal.name(one.rotate());
+        assertFalse(name.equals(StockJournal.name(other.rotate())));
+        assertFalse(name.endsWith(".log"));
+        one.close();
+        other.close();
+    }
+
+    @Test
+    void deletingAFlushedSegmentRemovesIt() throws IOException {
+        StockJournal journal = new StockJournal(directory, false);
+        Path first = journal.rotate();
+        journal.rotate();
+
+        journal.delete(first);
+
+        assertFalse(Files.exists(first));
+        journal.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.dtos.bulk.StockAdjustmentDTO;
+import com.pharmacyInventory.inventory.exception.ResourceNotFoundException;
+import com.pharmacyInventory.inventory.exception.ValidationException;
+import com.pharmacyInventory.inventory.repository.StockLedgerRepository;
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Every write through the ledger leaves stock_status matching the quantity on hand when its
+// transaction commits, without waiting for a fold. The write-behind buffer stays disabled.
+class StockLedgerServiceTest {
+
+    private static JdbcTemplate jdbcTemplate;
+    private static StockLedgerService service;
+
+    private String branchId;
+    private long formId;
+
+    @BeforeAll
+    static void setUpService() {
+        DataSource dataSource = EmbeddedPostgresDatabases.migrated();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        StockLedgerRepository repository = new StockLedgerRepository(jdbcTemplate);
+        StockWriteBehindBuffer buffer = new StockWriteBehindBuffer(repository, dataSource, transactionTemplate, event -> { },
+                Runnable::run, new SimpleMeterRegistry());
+        // getMovements is not exercised, so no StockMovementRepository
+        service = new StockLedgerService(repository, null, event -> { }, transactionTemplate, buffer);
+    }
+
+    @BeforeEach
+    void setUp() {
+        branchId = "branch-" + UUID.randomUUID();
+        formId = SeedRows.form(jdbcTemplate, branchId);
+    }
+
+    @Test
+    void adjustRecomputesTheStatusOfAppliedLines() {
+        long low = medication(20);
+        long out = medication(20);
+        long refused = medication(5);
+
+        int[] applied = service.adjust(List.of(
+                adjustment(low, -12), adjustment(out, -20), adjustment(refused, -6)));
+
+        assertArrayEquals(new int[] {1, 1, 0}, applied);
+        assertEquals("LOW_STOCK", status(low));
+        assertEquals("OUT_OF_STOCK", status(out));
+        assertEquals("IN_STOCK", status(refused));
+    }
+
+    @Test
+    void recordedSaleUpdatesTheStatus() {
+        long medicationId = medication(20);
+
+        assertEquals(9, service.record(medicationId, branchId, StockMovementType.SALE, 11, null, null));
+
+        assertEquals("LOW_STOCK", status(medicationId));
+    }
+
+    @Test
+    void refusedSaleLeavesTheStatus() {
+        long medicationId = medication(20);
+
+        assertThrows(ValidationException.class,
+                () -> service.record(medicationId, branchId, StockMovementType.SALE, 21, null, null));
+
+        assertEquals("IN_STOCK", status(medicationId));
+    }
+
+    @Test
+    void setQuantityUpdatesTheStatus() {
+        long medicationId = medication(20);
+
+        service.setQuantity(medicationId, branchId, 0, "Count");
+
+        assertEquals("OUT_OF_STOCK", status(medicationId));
+        assertEquals(0, service.getQuantityOnHand(medicationId, branchId));
+    }
+
+    // A lot holding more than is on hand is written off down to zero instead of being refused
+    @Test
+    void takeAtMostStopsAtZero() {
+        long medicationId = medication(5);
+
+        assertEquals(5, service.takeAtMost(medicationId, branchId, 8, "Lot deleted", "lot:1"));
+        assertEquals(0, service.takeAtMost(medicationId, branchId, 3, "Lot deleted", "lot:2"));
+
+        assertEquals(0, service.getQuantityOnHand(medicationId, branchId));
+        assertEquals("OUT_OF_STOCK", status(medicationId));
+    }
+
+    @Test
+    void refreshStockStatusRecomputesAStaleStatus() {
+        long medicationId = medication(5);
+
+        service.refreshStockStatus(medicationId, branchId);
+
+        assertEquals("LOW_STOCK", status(medicationId));
+        assertThrows(ResourceNotFoundException.class, () -> service.refreshStockStatus(medicationId, "other-branch"));
+    }
+
+    // Seeded as IN_STOCK whatever the quantity, so a line that is not recomputed keeps it
+    private long medication(int stockQuantity) {
+        long medicationId = SeedRows.medication(jdbcTemplate, branchId, formId, "Medication", "500mg", "B1", stockQuantity);
+        jdbcTemplate.update("UPDATE medications SET stock_status = 'IN_STOCK' WHERE medication_id = ?", medicationId);
+        return medicationId;
+    }
+
+    private static StockAdjustmentDTO adjustment(long medicationId, int quantity) {
+        return StockAdjustmentDTO.builder().medicationId(medicationId).quantityAdjustment(quantity).reason("Count").build();
+    }
+
+    private static String status(long medicationId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT stock_status FROM medications WHERE medication_id = ?", String.class, medicationId);
+    }
+}
@@ -0,0 +1,217 @@
+package com.pharmacyInventory.inventory.services;
+
+import com.pharmacyInventory.inventory.Enum.StockMovementType;
+import com.pharmacyInventory.inventory.dtos.bulk.StockAdjustmentDTO;
+import com.pharmacyInventory.inventory.exception.ValidationException;
+import com.pharmacyInventory.inventory.repository.StockLedgerRepository;
+import com.pharmacyInventory.inventory.support.EmbeddedPostgresDatabases;
+import com.pharmacyInventory.inventory.support.SeedRows;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The write-behind buffer enabled against embedded PostgreSQL: buffered sales are checked
+// one at a time, reads count a delta exactly once whether or not it was flushed, a crash
+// loses nothing, and only one instance may buffer.
+class StockWriteBehindBufferTest {
+
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static StockLedgerRepository repository;
+
+    @TempDir
+    Path journalDir;
+
+    private StockWriteBehindBuffer buffer;
+    private StockLedgerService service;
+    private String branchId;
+    private long medicationId;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = EmbeddedPostgresDatabases.migrated();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new StockLedgerRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        branchId = "branch-" + UUID.randomUUID();
+        medicationId = SeedRows.medication(jdbcTemplate, branchId, SeedRows.form(jdbcTemplate, branchId),
+                "Paracetamol", "500mg", "B1", 10);
+        buffer = start();
+        service = new StockLedgerService(repository, null, event -> { }, transactionTemplate, buffer);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (buffer != null) {
+            buffer.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentBufferedSalesDoNotOversell() throws Exception {
+        int sellers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(sellers);
+        List<Future<Boolean>> sales = new ArrayList<>();
+        try {
+            for (int i = 0; i < sellers; i++) {
+                sales.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        service.record(medicationId, branchId, StockMovementType.SALE, 1, null, null);
+                        return true;
+                    } catch (ValidationException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int sold = 0;
+            for (Future<Boolean> sale : sales) {
+                sold += sale.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertEquals(10, sold);
+            assertEquals(-10, buffer.pending(medicationId));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deltaIsCountedOnceBeforeAndAfterTheFlush() {
+        service.record(medicationId, branchId, StockMovementType.SALE, 4, null, null);
+        service.record(medicationId, branchId, StockMovementType.RECEIPT, 1, null, null);
+        assertEquals(7, service.getQuantityOnHand(medicationId, branchId));
+
+        buffer.flush();
+
+        assertEquals(0, buffer.pending(medicationId));
+        assertEquals(7, service.getQuantityOnHand(medicationId, branchId));
+        assertEquals(7, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    // Reads keep going while other threads flush, and never see a delta twice or not at all
+    @Test
+    void readsStayConsistentDuringFlushes() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> flushes = executor.submit((Callable<Void>) () -> {
+                for (int i = 0; i < 20; i++) {
+                    service.record(medicationId, branchId, StockMovementType.RECEIPT, 1, null, null);
+                    service.record(medicationId, branchId, StockMovementType.SALE, 1, null, null);
+                    buffer.flush();
+                }
+                return null;
+            });
+            while (!flushes.isDone()) {
+                int onHand = service.getQuantityOnHand(medicationId, branchId);
+                assertTrue(onHand == 10 || onHand == 11, "on hand " + onHand);
+            }
+            flushes.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(10, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    @Test
+    void movementsInATransactionCountBufferedSales() {
+        service.record(medicationId, branchId, StockMovementType.SALE, 8, null, null);
+
+        assertThrows(ValidationException.class,
+                () -> service.record(medicationId, branchId, StockMovementType.ADJUSTMENT, -5, "Count", null));
+        assertArrayEquals(new int[] {0, 1}, service.adjust(List.of(adjustment(-5), adjustment(-2))));
+
+        buffer.flush();
+        assertEquals(0, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    // The open transaction's write-off is not in the database yet, but the buffered sale sees it
+    @Test
+    void bufferedSaleCountsAnOpenTransaction() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                service.record(medicationId, branchId, StockMovementType.EXPIRY_WRITE_OFF, 8, "Expired", null);
+                Future<?> sale = executor.submit(
+                        () -> service.record(medicationId, branchId, StockMovementType.SALE, 5, null, null));
+                ExecutionException refused = assertThrows(ExecutionException.class, () -> sale.get(30, TimeUnit.SECONDS));
+                assertTrue(refused.getCause() instanceof ValidationException);
+            });
+            assertEquals(0, buffer.reserved(medicationId));
+            assertEquals(2, service.getQuantityOnHand(medicationId, branchId));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deltasOfACrashedRunAreReplayed() throws Exception {
+        service.record(medicationId, branchId, StockMovementType.SALE, 3, null, null);
+        crash(buffer);
+
+        buffer = start();
+        assertEquals(-3, buffer.pending(medicationId));
+        buffer.flush();
+
+        assertEquals(7, repository.onHand(medicationId, branchId).orElseThrow());
+    }
+
+    @Test
+    void secondInstanceRefusesToStart() {
+        assertThrows(IllegalStateException.class, this::start);
+    }
+
+    private StockAdjustmentDTO adjustment(int quantity) {
+        return StockAdjustmentDTO.builder().medicationId(medicationId).quantityAdjustment(quantity).reason("Count").build();
+    }
+
+    private StockWriteBehindBuffer start() throws Exception {
+        StockWriteBehindBuffer started = new StockWriteBehindBuffer(repository, dataSource, transactionTemplate,
+                event -> { }, Runnable::run, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(started, "enabled", true);
+        ReflectionTestUtils.setField(started, "flushEveryOps", 1_000_000L);
+        ReflectionTestUtils.setField(started, "journalDir", journalDir.toString());
+        started.recover();
+        return started;
+    }
+
+    // Stops without flushing: the journal is left as it is and the ownership lock goes with
+    // the session
+    private static void crash(StockWriteBehindBuffer crashed) throws Exception {
+        ((StockJournal) ReflectionTestUtils.getField(crashed, "journal")).close();
+        ((Connection) ReflectionTestUtils.getField(crashed, "ownership")).close();
+    }
+}
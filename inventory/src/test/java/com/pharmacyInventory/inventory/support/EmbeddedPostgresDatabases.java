@@ -0,0 +1,50 @@
+package com.pharmacyInventory.inventory.support;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One PostgreSQL server for the whole test run, started on first use from the binaries
+// bundled with embedded-postgres (no Docker, no local installation). Each caller gets its
+// own database with the Flyway migrations applied, so tests cannot see each other's rows.
+public final class EmbeddedPostgresDatabases {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static EmbeddedPostgres postgres;
+
+    private EmbeddedPostgresDatabases() {
+    }
+
+    public static DataSource migrated() {
+        String name = "inventory_test_" + DATABASES.incrementAndGet();
+        EmbeddedPostgres server = server();
+        new JdbcTemplate(server.getPostgresDatabase()).execute("CREATE DATABASE " + name);
+        DataSource dataSource = server.getDatabase("postgres", name);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return dataSource;
+    }
+
+    private static synchronized EmbeddedPostgres server() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to start embedded PostgreSQL", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // The data directory is temporary either way
+                }
+            }));
+        }
+        return postgres;
+    }
+}
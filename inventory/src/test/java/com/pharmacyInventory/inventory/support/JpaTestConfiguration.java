@@ -0,0 +1,22 @@
+package com.pharmacyInventory.inventory.support;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import javax.sql.DataSource;
+
+// Configuration for @DataJpaTest slices against an embedded PostgreSQL. Used through
+// @ContextConfiguration instead of InventoryApplication, whose @EnableFeignClients would
+// pull the Feign clients into a JPA-only context.
+@SpringBootConfiguration
+@EntityScan("com.pharmacyInventory.inventory.model")
+@EnableJpaRepositories("com.pharmacyInventory.inventory.repository")
+public class JpaTestConfiguration {
+
+    @Bean
+    DataSource dataSource() {
+        return EmbeddedPostgresDatabases.migrated();
+    }
+}
@@ -0,0 +1,69 @@
+package com.pharmacyInventory.inventory.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Minimal rows for repository tests: only the NOT NULL columns, the rest left to defaults
+public final class SeedRows {
+
+    private SeedRows() {
+    }
+
+    public static long form(JdbcTemplate jdbcTemplate, String branchId) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO categories (branch_id, name, type, color) VALUES (?, 'Tablet', 'FORM', '#ffffff') " +
+                "RETURNING category_id", Long.class, branchId);
+    }
+
+    public static long medication(JdbcTemplate jdbcTemplate, String branchId, long formId, String name,
+                                  String strength, String batchNumber, int stockQuantity) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO medications (branch_id, name, form_id, strength, stock_quantity, reorder_level, price, " +
+                "batch_number, expiry_date) VALUES (?, ?, ?, ?, ?, 10, 1.5, ?, DATE '2030-01-01') " +
+                "RETURNING medication_id", Long.class, branchId, name, formId, strength, stockQuantity, batchNumber);
+    }
+
+    public static long category(JdbcTemplate jdbcTemplate, String branchId, String name) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO categories (branch_id, name, type, color) VALUES (?, ?, 'CATEGORY', '#000000') " +
+                "RETURNING category_id", Long.class, branchId, name);
+    }
+
+    public static long supplier(JdbcTemplate jdbcTemplate, String branchId, String name) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO suppliers (branch_id, name, contact_name, email, phone, address) " +
+                "VALUES (?, ?, 'Contact', 'orders@example.com', '000', 'Main Street') RETURNING id",
+                Long.class, branchId, name);
+    }
+
+    public static long brand(JdbcTemplate jdbcTemplate, String branchId, String name) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO brands (branch_id, name) VALUES (?, ?) RETURNING id", Long.class, branchId, name);
+    }
+
+    public static long referenceSource(JdbcTemplate jdbcTemplate, String branchId, String name) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO reference_sources (branch_id, name) VALUES (?, ?) RETURNING id", Long.class, branchId, name);
+    }
+
+    public static void assign(JdbcTemplate jdbcTemplate, long medicationId, long categoryId, long supplierId) {
+        jdbcTemplate.update("UPDATE medications SET category_id = ?, supplier_id = ? WHERE medication_id = ?",
+                categoryId, supplierId, medicationId);
+    }
+
+    public static long equivalent(JdbcTemplate jdbcTemplate, String branchId, long medicationId, long equivalentId,
+                                  long categoryId, long referenceSourceId, long brandId) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO equivalents (branch_id, inn, form, strength, reference_source_name, brand_ids, brand_names, " +
+                "medication_id, equivalent_medication_id, category_id, reference_source_id, brand_id) " +
+                "VALUES (?, 'amoxicillin', 'Tablet', '500mg', 'WHO', ARRAY[?]::bigint[], ARRAY['Brand']::varchar[], " +
+                "?, ?, ?, ?, ?) RETURNING id",
+                Long.class, branchId, brandId, medicationId, equivalentId, categoryId, referenceSourceId, brandId);
+    }
+
+    public static long transfer(JdbcTemplate jdbcTemplate, String fromBranchId, String toBranchId, long medicationId) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO transfers (from_branch_id, to_branch_id, quantity, status, created_at, medication_id) " +
+                "VALUES (?, ?, 1, 'PENDING', now(), ?) RETURNING transfer_id",
+                Long.class, fromBranchId, toBranchId, medicationId);
+    }
+}